@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import edu.cnm.deepdive.gallery.GalleryApplication;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Starts (and stops) a non-web {@link GalleryApplication} context for benchmarks that exercise
+ * Spring-managed components. Configuration properties are overridden with command-line arguments
+ * (which take precedence over {@code application.yml}), so that the context uses an in-memory
+ * Derby database and places all stored files in a temporary directory; thus, benchmark runs
+ * neither depend on nor modify the state of a local development instance.
+ */
+class BenchmarkContext implements AutoCloseable {
+
+  private static final String DATABASE_URL_FORMAT =
+      "jdbc:derby:memory:%s;create=true;collation=TERRITORY_BASED:PRIMARY";
+  private static final int JDBC_BATCH_SIZE = 500;
+  private static final String REQUEST_SCHEME = "https";
+  private static final String REQUEST_HOST = "gallery.example.com";
+  private static final int REQUEST_PORT = 443;
+
+  private final Path directory;
+  private final ConfigurableApplicationContext context;
+
+  /**
+   * Starts an application context with a new in-memory database.
+   *
+   * @param name      Name of the in-memory database (should be unique within a JVM).
+   * @param arguments Additional command-line arguments (e.g. {@code --property=value}), for
+   *                  properties not already set by this class.
+   * @throws IOException If the temporary directory cannot be created.
+   */
+  BenchmarkContext(String name, String... arguments) throws IOException {
+    directory = Files.createTempDirectory(name);
+    List<String> args = new ArrayList<>(List.of(
+        "--spring.datasource.url=" + String.format(DATABASE_URL_FORMAT, name),
+        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + JDBC_BATCH_SIZE,
+        "--upload.application-home=false",
+        "--upload.directory=" + directory.resolve("uploads"),
+        "--upload.derivatives.directory=" + directory.resolve("derivatives"),
+        "--upload.cache.directory=" + directory.resolve("resized")
+    ));
+    args.addAll(List.of(arguments));
+    context = new SpringApplicationBuilder(GalleryApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(args.toArray(new String[0]));
+  }
+
+  /**
+   * Returns the bean of the specified type from the application context.
+   *
+   * @param type Bean type.
+   * @param <T>  Bean type.
+   * @return Bean instance.
+   */
+  <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  /**
+   * Binds a synthetic request to the current thread, so that resource locations (e.g. {@code href}
+   * properties) can be constructed outside of request processing.
+   */
+  void bindRequest() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setScheme(REQUEST_SCHEME);
+    request.setServerName(REQUEST_HOST);
+    request.setServerPort(REQUEST_PORT);
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  /**
+   * Stops the application context and deletes the temporary directory.
+   *
+   * @throws IOException If the temporary directory cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    context.close();
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
+import edu.cnm.deepdive.gallery.service.FilenameGenerator;
+import java.security.SecureRandom;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the stored-filename, subdirectory, and extension helpers at 32
+ * concurrent threads, comparing {@link FilenameGenerator} with the approach it replaced: a {@link
+ * SimpleDateFormat} (synchronized here, since it is not thread-safe), {@link String#format(String,
+ * Object...)}, a shared {@link SecureRandom}, and a regular expression {@link Matcher} for every
+ * subdirectory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilenameGeneratorBenchmark {
+
+  private static final String FILENAME_FORMAT = "%1$s-%2$d.%3$s";
+  private static final int RANDOMIZER_LIMIT = 1_000_000;
+  private static final String TIMESTAMP_FORMAT = "yyyyMMddHHmmssSSS";
+  private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("UTC");
+  private static final Pattern SUBDIRECTORY_PATTERN = Pattern.compile("^(.{4})(.{2})(.{2}).*$");
+  private static final String DIGEST =
+      "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+  private static final String EXTENSION = "jpg";
+  private static final String ORIGINAL_FILENAME = "IMG_20201118_093512.jpg";
+
+  private FilenameGenerator generator;
+  private DateFormat legacyFormatter;
+  private Random legacyRng;
+
+  /**
+   * Configures the generator with the default application property values.
+   */
+  @Setup
+  public void setup() {
+    TimestampProperties timestamp = new TimestampProperties();
+    timestamp.setFormat(TIMESTAMP_FORMAT);
+    timestamp.setTimeZone(TIME_ZONE);
+    FilenameProperties filename = new FilenameProperties();
+    filename.setFormat(FILENAME_FORMAT);
+    filename.setRandomizerLimit(RANDOMIZER_LIMIT);
+    filename.setTimestamp(timestamp);
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.setFilename(filename);
+    configuration.setSubdirectoryPattern(SUBDIRECTORY_PATTERN);
+    generator = new FilenameGenerator(configuration);
+    legacyFormatter = new SimpleDateFormat(TIMESTAMP_FORMAT);
+    legacyFormatter.setTimeZone(TIME_ZONE);
+    legacyRng = new SecureRandom();
+  }
+
+  /**
+   * Generates a staged filename with {@link FilenameGenerator#generate(String)}.
+   */
+  @Benchmark
+  public String generate() {
+    return generator.generate(EXTENSION);
+  }
+
+  /**
+   * Computes a subdirectory path with {@link FilenameGenerator#getSubdirectory(String)}.
+   */
+  @Benchmark
+  public String subdirectory() {
+    return generator.getSubdirectory(DIGEST);
+  }
+
+  /**
+   * Extracts a filename extension with {@link FilenameGenerator#getExtension(String)}.
+   */
+  @Benchmark
+  public String extension() {
+    return generator.getExtension(ORIGINAL_FILENAME);
+  }
+
+  /**
+   * Generates a staged filename as previously done in the storage service.
+   */
+  @Benchmark
+  public String legacyGenerate() {
+    String timestamp;
+    synchronized (legacyFormatter) {
+      timestamp = legacyFormatter.format(new Date());
+    }
+    return String.format(
+        FILENAME_FORMAT, timestamp, legacyRng.nextInt(RANDOMIZER_LIMIT), EXTENSION);
+  }
+
+  /**
+   * Computes a subdirectory path as previously done in the storage service.
+   */
+  @Benchmark
+  public String legacySubdirectory() {
+    Matcher matcher = SUBDIRECTORY_PATTERN.matcher(DIGEST);
+    return matcher.matches()
+        ? IntStream.rangeClosed(1, matcher.groupCount())
+            .mapToObj(matcher::group)
+            .collect(Collectors.joining("/"))
+        : "";
+  }
+
+}
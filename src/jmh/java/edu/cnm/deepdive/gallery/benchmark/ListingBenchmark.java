@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import edu.cnm.deepdive.gallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.gallery.model.dao.UserRepository;
+import edu.cnm.deepdive.gallery.model.dto.ImageSummary;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Measures the latency of selecting the first page of the image listing from a synthetic catalog
+ * of 10,000 images (from a few hundred contributors) in an embedded (in-memory) Derby database,
+ * comparing the selection of managed {@link Image} entities (with their eagerly fetched
+ * contributors) by {@link ImageRepository#getAllByOrderByCreatedDescIdDesc(Pageable)}, with the
+ * selection of {@link ImageSummary} projections by {@link
+ * ImageRepository#getAllSummaries(Pageable)}. The second-level and query caches are disabled, so
+ * that every invocation executes its query. Run with {@code -prof gc} to compare allocation
+ * rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ListingBenchmark {
+
+  private static final int CATALOG_SIZE = 10_000;
+  private static final int CONTRIBUTORS = 250;
+  private static final int BATCH_SIZE = 1_000;
+  private static final long START_TIME = 1_600_000_000_000L;
+
+  @Param({"20", "100"})
+  private int limit;
+
+  private BenchmarkContext context;
+  private ImageRepository imageRepository;
+  private Pageable page;
+
+  /**
+   * Starts the application context and populates the catalog.
+   *
+   * @throws IOException If the application context cannot be started.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext("listing",
+        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+    imageRepository = context.getBean(ImageRepository.class);
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    List<User> contributors = new ArrayList<>(CONTRIBUTORS);
+    for (int i = 0; i < CONTRIBUTORS; i++) {
+      User contributor = new User();
+      contributor.setOauthKey(String.format("benchmark-oauth-key-%d", i));
+      contributor.setDisplayName(String.format("Benchmark User %d", i));
+      contributors.add(contributor);
+    }
+    contributors = userRepository.saveAll(contributors);
+    List<Image> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < CATALOG_SIZE; i++) {
+      Image image = new Image();
+      image.setTitle(String.format("Image %d", i));
+      image.setDescription(String.format("Synthetic image %d, for listing benchmarks.", i));
+      image.setName(String.format("IMG_%06d.jpg", i));
+      image.setPath(String.format("%08x.jpg", i));
+      image.setContentType("image/jpeg");
+      image.setWidth(4032);
+      image.setHeight(3024);
+      image.setCaptured(new Date(START_TIME + i * 60_000L));
+      image.setContributor(contributors.get(i % CONTRIBUTORS));
+      batch.add(image);
+      if (batch.size() == BATCH_SIZE) {
+        imageRepository.saveAll(batch);
+        batch.clear();
+      }
+    }
+    imageRepository.saveAll(batch);
+    page = PageRequest.of(0, limit);
+  }
+
+  /**
+   * Stops the application context.
+   *
+   * @throws IOException If the temporary directory cannot be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+  }
+
+  /**
+   * Selects a page of managed {@link Image} entities.
+   */
+  @Benchmark
+  public Slice<Image> entities() {
+    return imageRepository.getAllByOrderByCreatedDescIdDesc(page);
+  }
+
+  /**
+   * Selects a page of {@link ImageSummary} projections.
+   */
+  @Benchmark
+  public Slice<ImageSummary> summaries() {
+    return imageRepository.getAllSummaries(page);
+  }
+
+}
@@ -0,0 +1,184 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import edu.cnm.deepdive.gallery.configuration.TimeOrderedUuidGenerator;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares random (version 4, as generated by Hibernate's {@code uuid2} strategy) and time-ordered
+ * ({@link TimeOrderedUuidGenerator}) primary keys in a {@code CHAR(16) FOR BIT DATA} column of an
+ * embedded (in-memory) Derby table, preloaded with 200,000 rows. Insert throughput is measured in
+ * committed batches; the retrieval of recent rows is measured as primary key lookups of the 1,000
+ * most recently inserted keys, which are clustered in a few index pages with time-ordered keys, but
+ * scattered throughout the index with random keys. JDBC is used directly (rather than JPA), so that
+ * only the key generation strategy differs between the two cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PrimaryKeyBenchmark {
+
+  private static final String RANDOM_KEYS = "random";
+  private static final String TIME_ORDERED_KEYS = "time-ordered";
+  private static final String DATABASE_URL_FORMAT = "jdbc:derby:memory:keys-%s;create=true";
+  private static final String DROP_URL_FORMAT = "jdbc:derby:memory:keys-%s;drop=true";
+  private static final String DROPPED_SQL_STATE = "08006";
+  private static final String CREATE_TABLE = "CREATE TABLE image_key ("
+      + "image_id CHAR(16) FOR BIT DATA NOT NULL PRIMARY KEY, "
+      + "created TIMESTAMP NOT NULL, "
+      + "title VARCHAR(255))";
+  private static final String INSERT = "INSERT INTO image_key VALUES (?, ?, ?)";
+  private static final String SELECT = "SELECT created, title FROM image_key WHERE image_id = ?";
+  private static final int PRELOADED_ROWS = 200_000;
+  private static final int BATCH_SIZE = 100;
+  private static final int RECENT_ROWS = 1_000;
+
+  @Param({RANDOM_KEYS, TIME_ORDERED_KEYS})
+  private String keys;
+
+  private Connection connection;
+  private PreparedStatement insert;
+  private PreparedStatement select;
+  private Deque<byte[]> recent;
+  private int inserted;
+
+  /**
+   * Creates and preloads the table.
+   *
+   * @throws SQLException If the database cannot be created or populated.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    connection = DriverManager.getConnection(String.format(DATABASE_URL_FORMAT, keys));
+    connection.setAutoCommit(false);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(CREATE_TABLE);
+    }
+    insert = connection.prepareStatement(INSERT);
+    select = connection.prepareStatement(SELECT);
+    recent = new ArrayDeque<>(RECENT_ROWS + BATCH_SIZE);
+    for (int i = 0; i < PRELOADED_ROWS; i += BATCH_SIZE) {
+      insertBatch();
+    }
+  }
+
+  /**
+   * Closes the connection and drops the database.
+   *
+   * @throws SQLException If the connection cannot be closed.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    connection.close();
+    try {
+      DriverManager.getConnection(String.format(DROP_URL_FORMAT, keys));
+    } catch (SQLException e) {
+      if (!DROPPED_SQL_STATE.equals(e.getSQLState())) {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Inserts and commits a batch of rows.
+   *
+   * @throws SQLException If the rows cannot be inserted.
+   */
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void insert() throws SQLException {
+    insertBatch();
+  }
+
+  /**
+   * Selects each of the most recently inserted rows by primary key.
+   *
+   * @return Number of rows selected.
+   * @throws SQLException If the rows cannot be selected.
+   */
+  @Benchmark
+  @OperationsPerInvocation(RECENT_ROWS)
+  public int recent() throws SQLException {
+    int found = 0;
+    for (byte[] key : recent) {
+      select.setBytes(1, key);
+      try (ResultSet resultSet = select.executeQuery()) {
+        if (resultSet.next()) {
+          found++;
+        }
+      }
+    }
+    connection.commit();
+    return found;
+  }
+
+  private void insertBatch() throws SQLException {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      byte[] key = toBytes(nextKey());
+      insert.setBytes(1, key);
+      insert.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+      insert.setString(3, String.format("Image %d", inserted++));
+      insert.addBatch();
+      recent.addLast(key);
+      if (recent.size() > RECENT_ROWS) {
+        recent.removeFirst();
+      }
+    }
+    insert.executeBatch();
+    connection.commit();
+  }
+
+  private UUID nextKey() {
+    return keys.equals(RANDOM_KEYS) ? UUID.randomUUID() : TimeOrderedUuidGenerator.next();
+  }
+
+  private static byte[] toBytes(UUID id) {
+    return ByteBuffer.allocate(2 * Long.BYTES)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import edu.cnm.deepdive.gallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.gallery.model.dao.UserRepository;
+import edu.cnm.deepdive.gallery.model.dto.ImageSummary;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import edu.cnm.deepdive.gallery.service.ImageService;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Measures the latency of fragment searches (for the first page of results) over a synthetic
+ * catalog of 100,000 images in an embedded (in-memory) Derby database, comparing the {@code
+ * LIKE}-based {@link ImageRepository#findAllSummariesByFragment(String, Pageable)} with the
+ * trigram-index-backed {@link ImageService#search(String, Date, UUID, int)}. Titles and descriptions are assembled from a small vocabulary with
+ * a skewed distribution, so that the {@code fragment} parameter values cover common, rare, and
+ * absent text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SearchBenchmark {
+
+  private static final int CATALOG_SIZE = 100_000;
+  private static final int BATCH_SIZE = 1_000;
+  private static final int PAGE_SIZE = 50;
+  private static final long SEED = 20201118L;
+  private static final String[] COMMON_WORDS = {
+      "mountain", "sunset", "river", "desert", "city", "portrait", "street", "garden", "snow",
+      "cloud", "bridge", "market", "canyon", "forest", "harbor", "window"
+  };
+  private static final String[] RARE_WORDS = {
+      "quetzal", "zeppelin", "obsidian", "xylophone", "kumquat", "fjord", "jacaranda", "yurt"
+  };
+  private static final int RARE_WORD_ODDS = 500;
+  private static final int TITLE_WORDS = 3;
+  private static final int DESCRIPTION_WORDS = 12;
+
+  @Param({"sunset", "jacaranda", "platypus"})
+  private String fragment;
+
+  private BenchmarkContext context;
+  private ImageRepository imageRepository;
+  private ImageService imageService;
+
+  /**
+   * Starts the application context, populates the catalog, and rebuilds the search index.
+   *
+   * @throws IOException If the application context cannot be started.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext("search");
+    imageRepository = context.getBean(ImageRepository.class);
+    imageService = context.getBean(ImageService.class);
+    User contributor = new User();
+    contributor.setOauthKey("benchmark-oauth-key");
+    contributor.setDisplayName("Benchmark User");
+    contributor = context.getBean(UserRepository.class).save(contributor);
+    Random rng = new Random(SEED);
+    List<Image> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < CATALOG_SIZE; i++) {
+      Image image = new Image();
+      image.setTitle(phrase(rng, TITLE_WORDS));
+      image.setDescription(phrase(rng, DESCRIPTION_WORDS));
+      image.setName(String.format("IMG_%06d.jpg", i));
+      image.setPath(String.format("%08x.jpg", i));
+      image.setContentType("image/jpeg");
+      image.setContributor(contributor);
+      batch.add(image);
+      if (batch.size() == BATCH_SIZE) {
+        imageRepository.saveAll(batch);
+        batch.clear();
+      }
+    }
+    imageRepository.saveAll(batch);
+    imageService.buildSearchIndex();
+  }
+
+  /**
+   * Stops the application context.
+   *
+   * @throws IOException If the temporary directory cannot be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+  }
+
+  /**
+   * Searches with a {@code LIKE '%fragment%'} predicate on title and description.
+   */
+  @Benchmark
+  public Iterable<ImageSummary> like() {
+    return imageRepository.findAllSummariesByFragment(fragment, PageRequest.of(0, PAGE_SIZE));
+  }
+
+  /**
+   * Searches with the trigram index, fetching only the matching images from the database.
+   */
+  @Benchmark
+  public Iterable<ImageSummary> trigram() {
+    return imageService.search(fragment, null, null, PAGE_SIZE);
+  }
+
+  private String phrase(Random rng, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      if (i > 0) {
+        builder.append(' ');
+      }
+      builder.append((rng.nextInt(RARE_WORD_ODDS) == 0)
+          ? RARE_WORDS[rng.nextInt(RARE_WORDS.length)]
+          : COMMON_WORDS[(int) Math.abs(rng.nextGaussian() * COMMON_WORDS.length / 3)
+              % COMMON_WORDS.length]);
+    }
+    return builder.toString();
+  }
+
+}
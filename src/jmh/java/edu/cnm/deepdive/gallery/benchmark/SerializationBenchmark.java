@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.cnm.deepdive.gallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.gallery.model.dao.UserRepository;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of serializing {@link Image} and {@link User} instances to JSON with the
+ * application's {@link ObjectMapper}, and of constructing their {@code href} properties via {@link
+ * org.springframework.hateoas.server.EntityLinks}, which is included in every serialization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+  private BenchmarkContext context;
+  private ObjectMapper mapper;
+  private User user;
+  private Image image;
+
+  /**
+   * Starts the application context, and persists a user and an image to be serialized.
+   *
+   * @throws IOException If the application context cannot be started.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    context = new BenchmarkContext("serialization");
+    context.bindRequest();
+    mapper = context.getBean(ObjectMapper.class);
+    user = new User();
+    user.setOauthKey("benchmark-oauth-key");
+    user.setDisplayName("Benchmark User");
+    user = context.getBean(UserRepository.class).save(user);
+    image = new Image();
+    image.setTitle("Sandia Mountains at sunset");
+    image.setDescription("View of the Sandia Mountains from the west mesa, shortly after sunset.");
+    image.setName("IMG_20201118_173512.jpg");
+    image.setPath("2020/11/18/20201118173512000-123456.jpg");
+    image.setContentType("image/jpeg");
+    image.setContributor(user);
+    image = context.getBean(ImageRepository.class).save(image);
+  }
+
+  /**
+   * Stops the application context.
+   *
+   * @throws IOException If the temporary directory cannot be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+  }
+
+  /**
+   * Serializes an {@link Image} (including its contributor) to a JSON string.
+   */
+  @Benchmark
+  public String serializeImage() throws IOException {
+    return mapper.writeValueAsString(image);
+  }
+
+  /**
+   * Serializes a {@link User} to a JSON string.
+   */
+  @Benchmark
+  public String serializeUser() throws IOException {
+    return mapper.writeValueAsString(user);
+  }
+
+  /**
+   * Constructs the resource location of an {@link Image}.
+   */
+  @Benchmark
+  public URI imageHref() {
+    return image.getHref();
+  }
+
+  /**
+   * Constructs the resource location of a {@link User}.
+   */
+  @Benchmark
+  public URI userHref() {
+    return user.getHref();
+  }
+
+}
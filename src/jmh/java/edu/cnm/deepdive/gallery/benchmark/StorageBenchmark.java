@@ -0,0 +1,189 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.benchmark;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
+import edu.cnm.deepdive.gallery.service.ContentSniffer;
+import edu.cnm.deepdive.gallery.service.FilenameGenerator;
+import edu.cnm.deepdive.gallery.service.LocalFilesystemStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Measures the latency of {@link LocalFilesystemStorageService#store(
+ * org.springframework.web.multipart.MultipartFile)}, {@link LocalFilesystemStorageService#stage(
+ * InputStream, String, String, long)} (followed by {@link LocalFilesystemStorageService#commit(
+ * String)}), and {@link LocalFilesystemStorageService#retrieve(String)} against a file store in a
+ * temporary directory, for several content sizes. Since every stored file has distinct content (and thus a distinct
+ * reference), each store operation is followed by deletion of the stored file, to keep the size of
+ * the temporary directory bounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+
+  private static final String CONTENT_TYPE = "image/jpeg";
+  private static final String ORIGINAL_FILENAME = "benchmark.jpg";
+  private static final String FILENAME_FORMAT = "%1$s-%2$d.%3$s";
+  private static final int RANDOMIZER_LIMIT = 1_000_000;
+  private static final String TIMESTAMP_FORMAT = "yyyyMMddHHmmssSSS";
+  private static final Pattern SUBDIRECTORY_PATTERN = Pattern.compile("^(.{4})(.{2})(.{2}).*$");
+  private static final byte[] JPEG_SIGNATURE = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+
+  @Param({"65536", "1048576"})
+  private int size;
+
+  private Path directory;
+  private LocalFilesystemStorageService storageService;
+  private byte[] content;
+  private String reference;
+  private long counter;
+
+  /**
+   * Creates the temporary file store, and stores a file to be retrieved.
+   *
+   * @throws Exception If the temporary directory cannot be created or written.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    directory = Files.createTempDirectory("storage-benchmark");
+    TimestampProperties timestamp = new TimestampProperties();
+    timestamp.setFormat(TIMESTAMP_FORMAT);
+    timestamp.setTimeZone(TimeZone.getTimeZone("UTC"));
+    FilenameProperties filename = new FilenameProperties();
+    filename.setFormat(FILENAME_FORMAT);
+    filename.setRandomizerLimit(RANDOMIZER_LIMIT);
+    filename.setTimestamp(timestamp);
+    UploadConfiguration configuration = new UploadConfiguration();
+    configuration.setApplicationHome(false);
+    configuration.setDirectory(directory.toString());
+    configuration.setSubdirectoryPattern(SUBDIRECTORY_PATTERN);
+    configuration.setFilename(filename);
+    configuration.setWhitelist(Set.of(CONTENT_TYPE));
+    storageService = new LocalFilesystemStorageService(new FilenameGenerator(configuration),
+        new ContentSniffer(), configuration, new ApplicationHome(StorageBenchmark.class),
+        new SimpleMeterRegistry());
+    content = new byte[size];
+    ThreadLocalRandom.current().nextBytes(content);
+    System.arraycopy(JPEG_SIGNATURE, 0, content, 0, JPEG_SIGNATURE.length);
+    reference = storageService.store(file()).getReference();
+  }
+
+  /**
+   * Deletes the temporary file store.
+   *
+   * @throws IOException If the temporary directory cannot be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  /**
+   * Stores (and then deletes) a file with content not already in the store.
+   *
+   * @return Reference to the stored file.
+   * @throws Exception If the file cannot be stored or deleted.
+   */
+  @Benchmark
+  public String storeAndDelete() throws Exception {
+    ByteBuffer.wrap(content).putLong(ContentSniffer.SIGNATURE_LENGTH, counter++); // Unique digest.
+    String stored = storageService.store(file()).getReference();
+    storageService.delete(stored);
+    return stored;
+  }
+
+  /**
+   * Stages, commits, and then deletes content, not already in the store, read from a stream.
+   *
+   * @return Reference to the stored file.
+   * @throws Exception If the content cannot be stored or deleted.
+   */
+  @Benchmark
+  public String streamAndDelete() throws Exception {
+    ByteBuffer.wrap(content).putLong(ContentSniffer.SIGNATURE_LENGTH, counter++); // Unique digest.
+    String stored = storageService.commit(storageService.stage(
+        new ByteArrayInputStream(content), ORIGINAL_FILENAME, CONTENT_TYPE, content.length))
+        .getReference();
+    storageService.delete(stored);
+    return stored;
+  }
+
+  /**
+   * Stores a file with content identical to that of a file already in the store.
+   *
+   * @return Reference to the existing file.
+   * @throws Exception If the file cannot be stored.
+   */
+  @Benchmark
+  public String storeDuplicate() throws Exception {
+    return storageService.store(new MockMultipartFile(
+        ORIGINAL_FILENAME, ORIGINAL_FILENAME, CONTENT_TYPE,
+        Files.readAllBytes(storageService.retrieve(reference).getFile().toPath())))
+        .getReference();
+  }
+
+  /**
+   * Retrieves a stored file, reading its content completely.
+   *
+   * @return Number of bytes read.
+   * @throws IOException If the file cannot be read.
+   */
+  @Benchmark
+  public long retrieve() throws IOException {
+    try (InputStream input = storageService.retrieve(reference).getInputStream()) {
+      return input.transferTo(OutputStream.nullOutputStream());
+    }
+  }
+
+  private MockMultipartFile file() {
+    return new MockMultipartFile(ORIGINAL_FILENAME, ORIGINAL_FILENAME, CONTENT_TYPE, content);
+  }
+
+}
@@ -17,14 +17,18 @@ package edu.cnm.deepdive.gallery;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
 import org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Serves as the main entry point for the resource server application.
  */
 @SpringBootApplication
 @EnableHypermediaSupport(type = {HypermediaType.HAL})
+@EnableScheduling
+@EnableCaching
 public class GalleryApplication {
 
   /**
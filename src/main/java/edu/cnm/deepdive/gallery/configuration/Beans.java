@@ -15,11 +15,16 @@
  */
 package edu.cnm.deepdive.gallery.configuration;
 
+import edu.cnm.deepdive.gallery.service.LocalFilesystemStorageService;
+import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.util.Random;
+import javax.servlet.MultipartConfigElement;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.boot.system.ApplicationHome;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
 /**
  * Implements methods to satisfy dependencies on classes implemented outside of Spring and this
@@ -29,6 +34,8 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class Beans {
 
+  private static final String MULTIPART_SUBDIRECTORY = "multipart";
+
   /**
    * Constructs and returns an instance of {@link Random} (or a suitable subclass),
    */
@@ -46,4 +53,32 @@ public class Beans {
     return new ApplicationHome(this.getClass());
   }
 
+  /**
+   * Constructs and returns the {@link MultipartConfigElement} used by the servlet container when
+   * parsing multipart requests, as configured by the {@code spring.servlet.multipart} properties.
+   * However, if no {@code location} is specified in those properties, uploaded content exceeding
+   * the file size threshold is spooled to a subdirectory of the file store's staging directory,
+   * rather than to the container's temporary directory; since this is on the same file system as
+   * the file store, spooled content can be moved into the file store by renaming, not copying.
+   */
+  @Bean
+  public MultipartConfigElement multipartConfigElement(MultipartProperties multipartProperties,
+      UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
+    MultipartConfigElement config = multipartProperties.createMultipartConfig();
+    if (!StringUtils.hasText(config.getLocation())) {
+      String uploadPath = uploadConfiguration.getDirectory();
+      Path uploadDirectory = uploadConfiguration.isApplicationHome()
+          ? applicationHome.getDir().toPath().resolve(uploadPath)
+          : Path.of(uploadPath);
+      Path location = uploadDirectory
+          .resolve(LocalFilesystemStorageService.STAGING_DIRECTORY)
+          .resolve(MULTIPART_SUBDIRECTORY);
+      //noinspection ResultOfMethodCallIgnored
+      location.toFile().mkdirs();
+      config = new MultipartConfigElement(location.toAbsolutePath().toString(),
+          config.getMaxFileSize(), config.getMaxRequestSize(), config.getFileSizeThreshold());
+    }
+    return config;
+  }
+
 }
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Map;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * Hibernate second-level cache provider backed by in-process, size-bounded Caffeine caches. Entity
+ * and query result regions are bounded by the number of entries (and query results additionally
+ * expire after a configurable time); the update timestamps region, which Hibernate uses to
+ * invalidate cached query results when the tables they depend on are modified, is never evicted,
+ * since that would make stale query results appear valid. The concurrency strategies (and thus
+ * invalidation on insert, update, and delete) are those provided by Hibernate; this class only
+ * supplies the storage.
+ * <p>This class is instantiated by Hibernate, as specified by the {@code
+ * hibernate.cache.region.factory_class} property; the bounds of the regions are read from the
+ * {@code hibernate.cache.caffeine.maximum-size} (default 10000 per region) and {@code
+ * hibernate.cache.caffeine.query-expiration} (in seconds; default 600) properties.</p>
+ */
+public class CaffeineRegionFactory extends RegionFactoryTemplate {
+
+  /** Property specifying the maximum number of entries in each entity or query result region. */
+  public static final String MAXIMUM_SIZE_PROPERTY = "hibernate.cache.caffeine.maximum-size";
+  /** Property specifying the time (in seconds) after which a cached query result expires. */
+  public static final String QUERY_EXPIRATION_PROPERTY =
+      "hibernate.cache.caffeine.query-expiration";
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+  private static final long DEFAULT_QUERY_EXPIRATION = 600;
+
+  private long maximumSize;
+  private Duration queryExpiration;
+
+  @Override
+  protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+    maximumSize = getLong(configValues, MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE);
+    queryExpiration = Duration.ofSeconds(
+        getLong(configValues, QUERY_EXPIRATION_PROPERTY, DEFAULT_QUERY_EXPIRATION));
+  }
+
+  @Override
+  protected void releaseFromUse() {
+    // Caches are released with their regions.
+  }
+
+  @Override
+  public AccessType getDefaultAccessType() {
+    return AccessType.READ_WRITE;
+  }
+
+  @Override
+  protected DomainDataStorageAccess createDomainDataStorageAccess(
+      DomainDataRegionConfig regionConfig, DomainDataRegionBuildingContext buildingContext) {
+    return new CaffeineStorageAccess(Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .build());
+  }
+
+  @Override
+  protected StorageAccess createQueryResultsRegionStorageAccess(
+      String regionName, SessionFactoryImplementor sessionFactory) {
+    return new CaffeineStorageAccess(Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(queryExpiration)
+        .build());
+  }
+
+  @Override
+  protected StorageAccess createTimestampsRegionStorageAccess(
+      String regionName, SessionFactoryImplementor sessionFactory) {
+    return new CaffeineStorageAccess(Caffeine.newBuilder().build());
+  }
+
+  private static long getLong(Map<?, ?> configValues, String name, long defaultValue) {
+    Object value = configValues.get(name);
+    return (value != null) ? Long.parseLong(value.toString().trim()) : defaultValue;
+  }
+
+  private static class CaffeineStorageAccess implements DomainDataStorageAccess {
+
+    private final Cache<Object, Object> cache;
+
+    CaffeineStorageAccess(Cache<Object, Object> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+      return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+      cache.put(key, value);
+    }
+
+    @Override
+    public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+      cache.invalidate(key);
+    }
+
+    @Override
+    public void clearCache(SharedSessionContractImplementor session) {
+      cache.invalidateAll();
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return cache.asMap().containsKey(key);
+    }
+
+    @Override
+    public void evictData() {
+      cache.invalidateAll();
+    }
+
+    @Override
+    public void evictData(Object key) {
+      cache.invalidate(key);
+    }
+
+    @Override
+    public void release() {
+      cache.invalidateAll();
+      cache.cleanUp();
+    }
+
+  }
+
+}
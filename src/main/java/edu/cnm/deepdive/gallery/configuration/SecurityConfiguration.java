@@ -15,9 +15,18 @@
  */
 package edu.cnm.deepdive.gallery.configuration;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import edu.cnm.deepdive.gallery.service.CachingJwtDecoder;
+import edu.cnm.deepdive.gallery.service.JwkSetService;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -32,7 +41,6 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimNames;
 import org.springframework.security.oauth2.jwt.JwtClaimValidator;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtDecoders;
 import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 
@@ -65,7 +73,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
   /**
    * Declares access-control rules on REST endpoints, based on HTTP method, authentication status,
-   * and roles/authorities granted.
+   * and roles/authorities granted. The health and Prometheus scrape endpoints are accessible without
+   * authentication; these are served on a separate management port, bound (by default) to the
+   * loopback interface only.
    *
    * @param http Security builder.
    * @throws Exception If an error occurs.
@@ -76,6 +86,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         .authorizeRequests((auth) ->
             auth
                 .antMatchers(HttpMethod.GET, "/images/**").permitAll()
+                .requestMatchers(EndpointRequest.to(
+                    HealthEndpoint.class, PrometheusScrapeEndpoint.class)).permitAll()
                 .anyRequest().authenticated()
         )
         .oauth2ResourceServer().jwt()
@@ -85,12 +97,24 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
   /**
    * Constructs and returns an injectable {@link JwtDecoder} that will be used automatically for
    * extended validation of the JSON web token (JWT) included as a bearer token in the request.
+   * Signatures are verified with the keys provided by {@link JwkSetService} (rather than by keys
+   * discovered from the issuer location at startup), and verified tokens are cached until they
+   * expire.
    *
+   * @param jwkSetService      Source of signature verification keys.
+   * @param tokenConfiguration Configuration object read from application properties.
    * @return Token decoder.
    */
   @Bean
-  public JwtDecoder jwtDecoder() {
-    NimbusJwtDecoder decoder = (NimbusJwtDecoder) JwtDecoders.fromIssuerLocation(issuerUri);
+  public JwtDecoder jwtDecoder(
+      JwkSetService jwkSetService, TokenConfiguration tokenConfiguration) {
+    DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+    processor.setJWSKeySelector(
+        new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSetService));
+    processor.setJWTClaimsSetVerifier((claims, context) -> {
+      // Claims are validated by the OAuth2TokenValidator set below.
+    });
+    NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
     OAuth2TokenValidator<Jwt> audienceValidator =
         new JwtClaimValidator<List<String>>(JwtClaimNames.AUD, (aud) -> aud.contains(clientId));
     OAuth2TokenValidator<Jwt> issuerAndTimestampValidator =
@@ -98,7 +122,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     OAuth2TokenValidator<Jwt> combinedValidator =
         new DelegatingOAuth2TokenValidator<Jwt>(issuerAndTimestampValidator, audienceValidator);
     decoder.setJwtValidator(combinedValidator);
-    return decoder;
+    return new CachingJwtDecoder(decoder, tokenConfiguration.getCacheMaxSize());
   }
 
 }
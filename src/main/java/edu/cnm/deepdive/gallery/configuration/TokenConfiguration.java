@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Declares a set of properties, mapping to the corresponding application properties with the
+ * {@code "token."} prefix. These properties customize the source of the keys used to verify the
+ * signatures of bearer tokens, as provided by the {@link
+ * edu.cnm.deepdive.gallery.service.JwkSetService}, and the caching of verified tokens by the {@link
+ * edu.cnm.deepdive.gallery.service.CachingJwtDecoder}.
+ */
+@Component
+@ConfigurationProperties(prefix = "token")
+public class TokenConfiguration {
+
+  /**
+   * Path of a local JSON Web Key (JWK) set file, used to seed the set of verification keys at
+   * startup, without contacting the issuer. If not specified, verification keys are only available
+   * after they are first retrieved from the issuer.
+   */
+  private String jwkSetFile;
+  /**
+   * Interval between background refreshes of the verification keys from the issuer.
+   */
+  private Duration jwkRefreshInterval = Duration.ofHours(1);
+  /**
+   * Minimum interval between refreshes triggered by a token signed with an unknown key.
+   */
+  private Duration jwkMinRefreshInterval = Duration.ofMinutes(1);
+  /**
+   * Maximum number of verified tokens held in the cache.
+   */
+  private long cacheMaxSize = 10_000;
+
+  /**
+   * Returns the path of the local JSON Web Key (JWK) set file used to seed the set of verification
+   * keys at startup, or {@code null} if none is specified.
+   */
+  public String getJwkSetFile() {
+    return jwkSetFile;
+  }
+
+  /**
+   * Sets the path of the local JSON Web Key (JWK) set file used to seed the set of verification
+   * keys at startup. A relative path is interpreted relative to the current working directory.
+   */
+  public void setJwkSetFile(String jwkSetFile) {
+    this.jwkSetFile = jwkSetFile;
+  }
+
+  /**
+   * Returns the interval between background refreshes of the verification keys from the issuer.
+   */
+  public Duration getJwkRefreshInterval() {
+    return jwkRefreshInterval;
+  }
+
+  /**
+   * Sets the interval between background refreshes of the verification keys from the issuer.
+   */
+  public void setJwkRefreshInterval(Duration jwkRefreshInterval) {
+    this.jwkRefreshInterval = jwkRefreshInterval;
+  }
+
+  /**
+   * Returns the minimum interval between refreshes triggered by a token signed with an unknown
+   * key.
+   */
+  public Duration getJwkMinRefreshInterval() {
+    return jwkMinRefreshInterval;
+  }
+
+  /**
+   * Sets the minimum interval between refreshes triggered by a token signed with an unknown key.
+   */
+  public void setJwkMinRefreshInterval(Duration jwkMinRefreshInterval) {
+    this.jwkMinRefreshInterval = jwkMinRefreshInterval;
+  }
+
+  /**
+   * Returns the maximum number of verified tokens held in the cache.
+   */
+  public long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  /**
+   * Sets the maximum number of verified tokens held in the cache.
+   */
+  public void setCacheMaxSize(long cacheMaxSize) {
+    this.cacheMaxSize = cacheMaxSize;
+  }
+
+}
@@ -15,18 +15,28 @@
  */
 package edu.cnm.deepdive.gallery.configuration;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.stereotype.Component;
 
 /**
  * Declares a hierarchical set of properties, mapping to a corresponding hierarchy of application
  * properties, all with the {@code "upload."} prefix. These properties customize the root path,
  * filename generation, and subdirectory organization used by the {@link
- * edu.cnm.deepdive.gallery.service.LocalFilesystemStorageService}.
+ * edu.cnm.deepdive.gallery.service.LocalFilesystemStorageService} (via the {@link
+ * edu.cnm.deepdive.gallery.service.FilenameGenerator}), as well as the generation of
+ * resized derivatives by the {@link edu.cnm.deepdive.gallery.service.DerivativeService} and the
+ * {@link edu.cnm.deepdive.gallery.service.ResizeService}, and the collection of unreferenced files
+ * by the {@link edu.cnm.deepdive.gallery.service.StorageCollector}, resumable uploads via the
+ * {@link edu.cnm.deepdive.gallery.service.UploadSessionService}, and near-duplicate detection by
+ * the {@link edu.cnm.deepdive.gallery.service.SimilarityService}.
  */
 @Component
 @ConfigurationProperties(prefix = "upload")
@@ -47,6 +57,11 @@ public class UploadConfiguration {
    * constructing a subdirectory path for any given generated filename.
    */
   private Pattern subdirectoryPattern = Pattern.compile("^(.{4})(.{2})(.{2}).*$");
+  /**
+   * Interval between scans of the file store to measure its size and file count (which are
+   * otherwise updated incrementally as files are stored and deleted).
+   */
+  private Duration usageScanInterval = Duration.ofHours(1);
   /**
    * Set of MIME types permitted for upload into the file store.
    */
@@ -55,6 +70,26 @@ public class UploadConfiguration {
    * Properties used to customize generation of filenames in the file store.
    */
   private FilenameProperties filename;
+  /**
+   * Properties used to customize generation and storage of resized image derivatives.
+   */
+  private DerivativeProperties derivatives = new DerivativeProperties();
+  /**
+   * Properties used to customize the cache of images resized on demand.
+   */
+  private CacheProperties cache = new CacheProperties();
+  /**
+   * Properties used to customize the collection of stored files no longer referenced by any image.
+   */
+  private CollectorProperties collector = new CollectorProperties();
+  /**
+   * Properties used to customize resumable (chunked) upload sessions.
+   */
+  private SessionProperties sessions = new SessionProperties();
+  /**
+   * Properties used to customize perceptual hashing and near-duplicate detection.
+   */
+  private SimilarityProperties similarity = new SimilarityProperties();
 
   /**
    * Returns a flag indicating whether the application's home directory should be used as the parent
@@ -106,6 +141,20 @@ public class UploadConfiguration {
     this.subdirectoryPattern = subdirectoryPattern;
   }
 
+  /**
+   * Returns the interval between scans of the file store to measure its size and file count.
+   */
+  public Duration getUsageScanInterval() {
+    return usageScanInterval;
+  }
+
+  /**
+   * Sets the interval between scans of the file store to measure its size and file count.
+   */
+  public void setUsageScanInterval(Duration usageScanInterval) {
+    this.usageScanInterval = usageScanInterval;
+  }
+
   /**
    * Returns the set of MIME types permitted for upload into the file store.
    */
@@ -137,6 +186,86 @@ public class UploadConfiguration {
     this.filename = filename;
   }
 
+  /**
+   * Returns a {@link DerivativeProperties} instance, used to customize generation and storage of
+   * resized image derivatives.
+   */
+  public DerivativeProperties getDerivatives() {
+    return derivatives;
+  }
+
+  /**
+   * Sets the {@link DerivativeProperties} instance used to customize generation and storage of
+   * resized image derivatives.
+   */
+  public void setDerivatives(DerivativeProperties derivatives) {
+    this.derivatives = derivatives;
+  }
+
+  /**
+   * Returns a {@link CacheProperties} instance, used to customize the cache of images resized on
+   * demand.
+   */
+  public CacheProperties getCache() {
+    return cache;
+  }
+
+  /**
+   * Sets the {@link CacheProperties} instance used to customize the cache of images resized on
+   * demand.
+   */
+  public void setCache(CacheProperties cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns a {@link CollectorProperties} instance, used to customize the collection of stored
+   * files no longer referenced by any image.
+   */
+  public CollectorProperties getCollector() {
+    return collector;
+  }
+
+  /**
+   * Sets the {@link CollectorProperties} instance used to customize the collection of stored files
+   * no longer referenced by any image.
+   */
+  public void setCollector(CollectorProperties collector) {
+    this.collector = collector;
+  }
+
+  /**
+   * Returns a {@link SessionProperties} instance, used to customize resumable (chunked) upload
+   * sessions.
+   */
+  public SessionProperties getSessions() {
+    return sessions;
+  }
+
+  /**
+   * Sets the {@link SessionProperties} instance used to customize resumable (chunked) upload
+   * sessions.
+   */
+  public void setSessions(SessionProperties sessions) {
+    this.sessions = sessions;
+  }
+
+  /**
+   * Returns a {@link SimilarityProperties} instance, used to customize perceptual hashing and
+   * near-duplicate detection.
+   */
+  public SimilarityProperties getSimilarity() {
+    return similarity;
+  }
+
+  /**
+   * Sets the {@link SimilarityProperties} instance used to customize perceptual hashing and
+   * near-duplicate detection.
+   */
+  public void setSimilarity(SimilarityProperties similarity) {
+    this.similarity = similarity;
+  }
+
   /**
    * Encapsulates properties specifying the composition of filenames generated for files uploaded
    * and stored in the file store.
@@ -213,23 +342,25 @@ public class UploadConfiguration {
     public static class TimestampProperties {
 
       /**
-       * Format string (passed to {@link java.text.SimpleDateFormat#SimpleDateFormat(String)} used
-       * to format timestamps in generated filenames.
+       * Format string (passed to {@link java.time.format.DateTimeFormatter#ofPattern(String)})
+       * used to format timestamps in generated filenames.
        */
       private String format = "yyyyMMddHHmmssSSS";
       private TimeZone timeZone = TimeZone.getTimeZone("UTC");
 
       /**
-       * Returns the format string (passed to {@link java.text.SimpleDateFormat#SimpleDateFormat(String)}
-       * used to format timestamps in generated filenames.
+       * Returns the format string (passed to {@link
+       * java.time.format.DateTimeFormatter#ofPattern(String)}) used to format timestamps in
+       * generated filenames.
        */
       public String getFormat() {
         return format;
       }
 
       /**
-       * Sets the format string (passed to {@link java.text.SimpleDateFormat#SimpleDateFormat(String)}
-       * used to format timestamps in generated filenames.
+       * Sets the format string (passed to {@link
+       * java.time.format.DateTimeFormatter#ofPattern(String)}) used to format timestamps in
+       * generated filenames.
        */
       public void setFormat(String format) {
         this.format = format;
@@ -255,4 +386,399 @@ public class UploadConfiguration {
 
   }
 
+  /**
+   * Encapsulates properties specifying the set of resized derivatives generated for each uploaded
+   * image, the location where they are stored, and the resources used to generate them.
+   */
+  public static class DerivativeProperties {
+
+    /**
+     * Base directory of the derivative store, interpreted in the same way as the base directory of
+     * the file store.
+     */
+    private String directory = "derivatives";
+    /**
+     * Map of derivative size names (used in requests for derivatives) to the maximum width and
+     * height (in pixels) of the corresponding derivatives.
+     */
+    private Map<String, Integer> sizes = new LinkedHashMap<>();
+    /**
+     * Number of worker threads generating derivatives.
+     */
+    private int workers = 2;
+    /**
+     * Maximum number of pending generation tasks held in memory; additional tasks remain in the
+     * database until capacity is available.
+     */
+    private int queueCapacity = 100;
+    /**
+     * Maximum number of attempts made to generate the derivatives of a single image.
+     */
+    private int maxAttempts = 3;
+    /**
+     * Interval between sweeps of the database for pending generation tasks.
+     */
+    private Duration sweepInterval = Duration.ofMinutes(1);
+
+    /**
+     * Returns the base directory of the derivative store.
+     */
+    public String getDirectory() {
+      return directory;
+    }
+
+    /**
+     * Sets the base directory of the derivative store.
+     */
+    public void setDirectory(String directory) {
+      this.directory = directory;
+    }
+
+    /**
+     * Returns the map of derivative size names to maximum dimensions (in pixels).
+     */
+    public Map<String, Integer> getSizes() {
+      return sizes;
+    }
+
+    /**
+     * Sets the map of derivative size names to maximum dimensions (in pixels).
+     */
+    public void setSizes(Map<String, Integer> sizes) {
+      this.sizes = sizes;
+    }
+
+    /**
+     * Returns the number of worker threads generating derivatives.
+     */
+    public int getWorkers() {
+      return workers;
+    }
+
+    /**
+     * Sets the number of worker threads generating derivatives.
+     */
+    public void setWorkers(int workers) {
+      this.workers = workers;
+    }
+
+    /**
+     * Returns the maximum number of pending generation tasks held in memory.
+     */
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of pending generation tasks held in memory.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of attempts made to generate the derivatives of a single image.
+     */
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    /**
+     * Sets the maximum number of attempts made to generate the derivatives of a single image.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns the interval between sweeps of the database for pending generation tasks.
+     */
+    public Duration getSweepInterval() {
+      return sweepInterval;
+    }
+
+    /**
+     * Sets the interval between sweeps of the database for pending generation tasks.
+     */
+    public void setSweepInterval(Duration sweepInterval) {
+      this.sweepInterval = sweepInterval;
+    }
+
+  }
+
+  /**
+   * Encapsulates properties specifying the location and capacity of the on-disk cache of images
+   * resized on demand.
+   */
+  public static class CacheProperties {
+
+    /**
+     * Base directory of the cache, interpreted in the same way as the base directory of the file
+     * store.
+     */
+    private String directory = "resized";
+    /**
+     * Maximum total size of cached files; when exceeded, the least recently used files are
+     * evicted.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(512);
+    /**
+     * Maximum number of resized images generated concurrently; a request for a resized image that
+     * is not in the cache is rejected while this many are being generated.
+     */
+    private int maxConcurrent = 2;
+
+    /**
+     * Returns the base directory of the cache.
+     */
+    public String getDirectory() {
+      return directory;
+    }
+
+    /**
+     * Sets the base directory of the cache.
+     */
+    public void setDirectory(String directory) {
+      this.directory = directory;
+    }
+
+    /**
+     * Returns the maximum total size of cached files.
+     */
+    public DataSize getMaxSize() {
+      return maxSize;
+    }
+
+    /**
+     * Sets the maximum total size of cached files.
+     */
+    public void setMaxSize(DataSize maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the maximum number of resized images generated concurrently.
+     */
+    public int getMaxConcurrent() {
+      return maxConcurrent;
+    }
+
+    /**
+     * Sets the maximum number of resized images generated concurrently.
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+      this.maxConcurrent = maxConcurrent;
+    }
+
+  }
+
+  /**
+   * Encapsulates properties specifying the schedule and batch size of the collection of stored
+   * files no longer referenced by any image.
+   */
+  public static class CollectorProperties {
+
+    /**
+     * Maximum number of pending deletions processed in a single database transaction.
+     */
+    private int batchSize = 100;
+    /**
+     * Maximum number of attempts made to delete the files of a single pending deletion.
+     */
+    private int maxAttempts = 3;
+    /**
+     * Interval between collections of pending deletions.
+     */
+    private Duration interval = Duration.ofSeconds(30);
+    /**
+     * Interval between reconciliations of the entire file store against the database.
+     */
+    private Duration reconcileInterval = Duration.ofHours(6);
+
+    /**
+     * Returns the maximum number of pending deletions processed in a single database transaction.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of pending deletions processed in a single database transaction.
+     */
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the maximum number of attempts made to delete the files of a single pending deletion.
+     */
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    /**
+     * Sets the maximum number of attempts made to delete the files of a single pending deletion.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns the interval between collections of pending deletions.
+     */
+    public Duration getInterval() {
+      return interval;
+    }
+
+    /**
+     * Sets the interval between collections of pending deletions.
+     */
+    public void setInterval(Duration interval) {
+      this.interval = interval;
+    }
+
+    /**
+     * Returns the interval between reconciliations of the entire file store against the database.
+     */
+    public Duration getReconcileInterval() {
+      return reconcileInterval;
+    }
+
+    /**
+     * Sets the interval between reconciliations of the entire file store against the database.
+     */
+    public void setReconcileInterval(Duration reconcileInterval) {
+      this.reconcileInterval = reconcileInterval;
+    }
+
+  }
+
+  /**
+   * Encapsulates properties specifying the size limit and lifetime of resumable (chunked) upload
+   * sessions.
+   */
+  public static class SessionProperties {
+
+    /**
+     * Maximum total size of content uploaded in a single session.
+     */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+    /**
+     * Period of inactivity after which an incomplete session (and its staged content) is deleted.
+     */
+    private Duration ttl = Duration.ofHours(24);
+    /**
+     * Interval between deletions of expired sessions.
+     */
+    private Duration cleanupInterval = Duration.ofHours(1);
+
+    /**
+     * Returns the maximum total size of content uploaded in a single session.
+     */
+    public DataSize getMaxSize() {
+      return maxSize;
+    }
+
+    /**
+     * Sets the maximum total size of content uploaded in a single session.
+     */
+    public void setMaxSize(DataSize maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the period of inactivity after which an incomplete session is deleted.
+     */
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    /**
+     * Sets the period of inactivity after which an incomplete session is deleted.
+     */
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    /**
+     * Returns the interval between deletions of expired sessions.
+     */
+    public Duration getCleanupInterval() {
+      return cleanupInterval;
+    }
+
+    /**
+     * Sets the interval between deletions of expired sessions.
+     */
+    public void setCleanupInterval(Duration cleanupInterval) {
+      this.cleanupInterval = cleanupInterval;
+    }
+
+  }
+
+  /**
+   * Encapsulates properties specifying the resources used to build the in-memory index of
+   * perceptual hashes, and the thresholds (in differing bits of 64-bit hashes) used when searching
+   * that index.
+   */
+  public static class SimilarityProperties {
+
+    /**
+     * Number of worker threads building the index at startup, and hashing images persisted without
+     * a perceptual hash.
+     */
+    private int workers = 4;
+    /**
+     * Maximum distance between the hashes of images reported as duplicates of an uploaded image.
+     */
+    private int duplicateDistance = 4;
+    /**
+     * Maximum distance that may be requested when searching for similar images.
+     */
+    private int maxDistance = 16;
+
+    /**
+     * Returns the number of worker threads building the index.
+     */
+    public int getWorkers() {
+      return workers;
+    }
+
+    /**
+     * Sets the number of worker threads building the index.
+     */
+    public void setWorkers(int workers) {
+      this.workers = workers;
+    }
+
+    /**
+     * Returns the maximum distance between the hashes of images reported as duplicates.
+     */
+    public int getDuplicateDistance() {
+      return duplicateDistance;
+    }
+
+    /**
+     * Sets the maximum distance between the hashes of images reported as duplicates.
+     */
+    public void setDuplicateDistance(int duplicateDistance) {
+      this.duplicateDistance = duplicateDistance;
+    }
+
+    /**
+     * Returns the maximum distance that may be requested when searching for similar images.
+     */
+    public int getMaxDistance() {
+      return maxDistance;
+    }
+
+    /**
+     * Sets the maximum distance that may be requested when searching for similar images.
+     */
+    public void setMaxDistance(int maxDistance) {
+      this.maxDistance = maxDistance;
+    }
+
+  }
+
 }
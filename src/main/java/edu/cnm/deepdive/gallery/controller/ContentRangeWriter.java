@@ -0,0 +1,302 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedList;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Writes the content of a {@link Resource} to a servlet response, honoring the {@code Range} and
+ * {@code If-Range} request headers. Satisfiable single-range requests are answered with a {@code
+ * 206 Partial Content} response; multiple ranges are returned as a {@code multipart/byteranges}
+ * body. Where the servlet container supports it (e.g. Tomcat with {@code sendfile} enabled),
+ * file-backed content is handed off to the container for a zero-copy transfer; otherwise, content
+ * is written via {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so that the file
+ * content is never buffered in the heap in its entirety. The number of content bytes written (or
+ * handed off to the container) is recorded by the {@code gallery.content.served} counter, and the
+ * duration of each transfer performed by this class (i.e. not handed off to the container) by the
+ * {@code gallery.content.transfer} timer. Each invocation of {@link #write(HttpServletRequest,
+ * HttpServletResponse, Resource, String)} is also emitted as a {@link ContentTransferEvent} to
+ * Flight Recorder.
+ */
+@Component
+public class ContentRangeWriter {
+
+  private static final String BYTES_UNIT = "bytes";
+  private static final String CONTENT_RANGE_FORMAT = BYTES_UNIT + " %d-%d/%d";
+  private static final String UNSATISFIED_RANGE_FORMAT = BYTES_UNIT + " */%d";
+  private static final String MULTIPART_CONTENT_TYPE_FORMAT = "multipart/byteranges; boundary=%s";
+  private static final String PART_HEADER_FORMAT = "\r\n--%s\r\n"
+      + HttpHeaders.CONTENT_TYPE + ": %s\r\n"
+      + HttpHeaders.CONTENT_RANGE + ": %s\r\n\r\n";
+  private static final String MULTIPART_TRAILER_FORMAT = "\r\n--%s--\r\n";
+  private static final String WEAK_ETAG_PREFIX = "W/";
+  private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+  private static final String SERVED_COUNTER = "gallery.content.served";
+  private static final String TRANSFER_TIMER = "gallery.content.transfer";
+
+  private final MeterRegistry meterRegistry;
+  private final Counter servedCounter;
+  private final Timer transferTimer;
+
+  /**
+   * Initializes this instance with the {@link MeterRegistry} with which the counter of bytes
+   * served, and the timer of content transfers, are registered.
+   *
+   * @param meterRegistry Registry of application metrics.
+   */
+  public ContentRangeWriter(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    servedCounter = Counter.builder(SERVED_COUNTER)
+        .description("Bytes of image content served")
+        .baseUnit(BaseUnits.BYTES)
+        .register(meterRegistry);
+    transferTimer = Timer.builder(TRANSFER_TIMER)
+        .description("Duration of image content transfers to the response")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  /**
+   * Writes all or part of {@code resource} to {@code response}, as specified by the {@code Range}
+   * header (if any) of {@code request}. Any validators ({@code ETag}, {@code Last-Modified}) that
+   * apply to the content should already be set on {@code response} when this method is invoked;
+   * these are used to evaluate the {@code If-Range} precondition.
+   *
+   * @param request     Current request.
+   * @param response    Current response.
+   * @param resource    Content to be written.
+   * @param contentType MIME type of {@code resource}.
+   * @throws IOException If the content cannot be read, or the response cannot be written.
+   */
+  public void write(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+      @NonNull Resource resource, @NonNull String contentType) throws IOException {
+    ContentTransferEvent event = new ContentTransferEvent();
+    event.begin();
+    try {
+      long length = resource.contentLength();
+      event.contentType = contentType;
+      event.contentLength = length;
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+      List<long[]> ranges = isRangeApplicable(request, response)
+          ? resolveRanges(request.getHeader(HttpHeaders.RANGE), length)
+          : null;
+      if (ranges == null) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        if (length > 0) {
+          writeBody(request, response, resource, 0, length - 1, event);
+        }
+      } else if (ranges.isEmpty()) {
+        response.setHeader(
+            HttpHeaders.CONTENT_RANGE, String.format(UNSATISFIED_RANGE_FORMAT, length));
+        response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      } else if (ranges.size() == 1) {
+        long[] range = ranges.get(0);
+        event.ranges = 1;
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+        response.setContentLengthLong(range[1] - range[0] + 1);
+        writeBody(request, response, resource, range[0], range[1], event);
+      } else {
+        event.ranges = ranges.size();
+        writeMultipart(request, response, resource, contentType, ranges, length, event);
+      }
+    } finally {
+      event.status = response.getStatus();
+      event.commit();
+    }
+  }
+
+  private boolean isRangeApplicable(HttpServletRequest request, HttpServletResponse response) {
+    boolean applicable = false;
+    if (request.getHeader(HttpHeaders.RANGE) != null) {
+      String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+      if (ifRange == null) {
+        applicable = true;
+      } else if (ifRange.startsWith("\"") || ifRange.startsWith(WEAK_ETAG_PREFIX)) {
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        applicable = etag != null
+            && !etag.startsWith(WEAK_ETAG_PREFIX)
+            && etag.equals(ifRange.trim());
+      } else {
+        String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        try {
+          applicable = lastModified != null
+              && request.getDateHeader(HttpHeaders.IF_RANGE) == ZonedDateTime
+              .parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME)
+              .toInstant()
+              .toEpochMilli();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+          applicable = false;
+        }
+      }
+    }
+    return applicable;
+  }
+
+  /**
+   * Returns {@code null} if the range header is malformed (and should be ignored), an empty list if
+   * none of the specified ranges can be satisfied, or the list of satisfiable ranges, as inclusive
+   * {@code [start, end]} pairs.
+   */
+  private List<long[]> resolveRanges(String header, long length) {
+    List<long[]> resolved = new LinkedList<>();
+    try {
+      List<HttpRange> ranges = HttpRange.parseRanges(header);
+      long total = 0;
+      for (HttpRange range : ranges) {
+        long start = range.getRangeStart(length);
+        long end = range.getRangeEnd(length);
+        if (start < length && start <= end) { // Otherwise, ignore it, but continue with the others.
+          resolved.add(new long[]{start, end});
+          total += end - start + 1;
+        }
+      }
+      if (ranges.isEmpty() || total > length) {
+        resolved = null; // No ranges, or overlapping ranges exceeding content size; send all.
+      }
+    } catch (IllegalArgumentException e) {
+      resolved = null;
+    }
+    return resolved;
+  }
+
+  private void writeMultipart(HttpServletRequest request, HttpServletResponse response,
+      Resource resource, String contentType, List<long[]> ranges, long length,
+      ContentTransferEvent event) throws IOException {
+    String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+    List<byte[]> partHeaders = new LinkedList<>();
+    byte[] trailer =
+        String.format(MULTIPART_TRAILER_FORMAT, boundary).getBytes(StandardCharsets.US_ASCII);
+    long contentLength = trailer.length;
+    for (long[] range : ranges) {
+      byte[] partHeader = String.format(PART_HEADER_FORMAT,
+          boundary, contentType, contentRange(range, length)).getBytes(StandardCharsets.US_ASCII);
+      partHeaders.add(partHeader);
+      contentLength += partHeader.length + range[1] - range[0] + 1;
+    }
+    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    response.setContentType(String.format(MULTIPART_CONTENT_TYPE_FORMAT, boundary));
+    response.setContentLengthLong(contentLength);
+    if (!isHead(request)) {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      try {
+        OutputStream output = response.getOutputStream();
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+          WritableByteChannel target = Channels.newChannel(output);
+          int index = 0;
+          for (long[] range : ranges) {
+            output.write(partHeaders.get(index++));
+            transfer(channel, resource, range[0], range[1], target);
+            served(range[1] - range[0] + 1, event);
+          }
+        }
+        output.write(trailer);
+      } finally {
+        sample.stop(transferTimer);
+      }
+    }
+  }
+
+  private void writeBody(HttpServletRequest request, HttpServletResponse response,
+      Resource resource, long start, long end, ContentTransferEvent event) throws IOException {
+    if (!isHead(request)) {
+      if (resource.isFile()
+          && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, resource.getFile().getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+        event.handedOff = true;
+      } else {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+          transfer(channel, resource, start, end,
+              Channels.newChannel(response.getOutputStream()));
+        } finally {
+          sample.stop(transferTimer);
+        }
+      }
+      served(end - start + 1, event);
+    }
+  }
+
+  private void served(long bytes, ContentTransferEvent event) {
+    servedCounter.increment(bytes);
+    event.bytes += bytes;
+  }
+
+  private void transfer(ReadableByteChannel channel, Resource resource, long start, long end,
+      WritableByteChannel target) throws IOException {
+    if (channel instanceof FileChannel) {
+      FileChannel fileChannel = (FileChannel) channel;
+      long position = start;
+      long remaining = end - start + 1;
+      while (remaining > 0) {
+        long transferred = fileChannel.transferTo(position, remaining, target);
+        if (transferred <= 0) {
+          throw new EOFException();
+        }
+        position += transferred;
+        remaining -= transferred;
+      }
+    } else {
+      try (InputStream input = resource.getInputStream()) {
+        StreamUtils.copyRange(input, Channels.newOutputStream(target), start, end);
+      }
+    }
+  }
+
+  private boolean isHead(HttpServletRequest request) {
+    return HttpMethod.HEAD.matches(request.getMethod());
+  }
+
+  private String contentRange(long[] range, long length) {
+    return String.format(CONTENT_RANGE_FORMAT, range[0], range[1], length);
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted by {@link ContentRangeWriter} for each response carrying image
+ * content, spanning the transfer of that content to the response (or its hand-off to the servlet
+ * container), and recording the content type and length, the number of ranges requested, the
+ * response status, and the number of bytes served.
+ */
+@Name("edu.cnm.deepdive.gallery.ContentTransfer")
+@Label("Content Transfer")
+@Category({"Gallery", "Images"})
+@Description("Transfer of image content to a response")
+class ContentTransferEvent extends Event {
+
+  @Label("Content Type")
+  String contentType;
+
+  @Label("Content Length")
+  @DataAmount
+  long contentLength;
+
+  @Label("Ranges")
+  @Description("Number of byte ranges served (0 if the entire content was requested)")
+  int ranges;
+
+  @Label("Status")
+  int status;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Handed Off")
+  @Description("Whether the content was handed off to the servlet container (e.g. via sendfile)")
+  boolean handedOff;
+
+}
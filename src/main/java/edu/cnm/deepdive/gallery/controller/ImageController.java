@@ -15,17 +15,43 @@
  */
 package edu.cnm.deepdive.gallery.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.cnm.deepdive.gallery.model.dto.ImageSummary;
 import edu.cnm.deepdive.gallery.model.entity.Image;
 import edu.cnm.deepdive.gallery.model.entity.User;
+import edu.cnm.deepdive.gallery.service.ContentTooLargeException;
+import edu.cnm.deepdive.gallery.service.DerivativeService;
+import edu.cnm.deepdive.gallery.service.ImageScaler.Fit;
 import edu.cnm.deepdive.gallery.service.ImageService;
+import edu.cnm.deepdive.gallery.service.OpenFileResource;
+import edu.cnm.deepdive.gallery.service.ResizeService;
 import edu.cnm.deepdive.gallery.service.UserService;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.hibernate.validator.constraints.Length;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.ExposesResourceFor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -43,7 +69,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * Handles REST requests for operations on individual instances and collections of the {@link Image}
@@ -57,6 +85,9 @@ import org.springframework.web.multipart.MultipartFile;
 public class ImageController {
 
   static final String RELATIVE_PATH = "/images";
+  static final String LIMIT_PARAM_NAME = "limit";
+  static final String AFTER_PARAM_NAME = "after";
+  static final String DEFAULT_LIMIT = "50";
 
   private static final String TITLE_PROPERTY_PATTERN =
       BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/title";
@@ -64,9 +95,36 @@ public class ImageController {
       BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/description";
   private static final String CONTENT_PROPERTY_PATTERN =
       BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/content";
+  private static final String EXPORT_PATH = "/export";
+  private static final String SIMILAR_PATTERN =
+      BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/similar";
   private static final String CONTRIBUTOR_PARAM_NAME = "contributor";
   private static final String FRAGMENT_PARAM_NAME = "q";
+  private static final String SIZE_PARAM_NAME = "size";
+  private static final String NAME_PARAM_NAME = "name";
+  private static final String ORDER_PARAM_NAME = "order";
+  private static final String CREATED_ORDER = "created";
+  private static final String CAPTURED_ORDER = "captured";
+  private static final String MIN_WIDTH_PARAM_NAME = "minWidth";
+  private static final String MIN_HEIGHT_PARAM_NAME = "minHeight";
+  private static final String DISTANCE_PARAM_NAME = "distance";
+  private static final int DEFAULT_DISTANCE = 10;
+  private static final String DUPLICATES_PARAM_NAME = "duplicates";
+  private static final String DUPLICATE_LINK_RELATION = "duplicate";
+  private static final String IMAGE_CONTENT_TYPE = "image/*";
+  private static final String CONTENT_TOO_LARGE_FORMAT = "Content length exceeds %d bytes";
+  private static final int MAX_LIMIT = 200;
+  private static final String WIDTH_PARAM_NAME = "w";
+  private static final String HEIGHT_PARAM_NAME = "h";
+  private static final String FIT_PARAM_NAME = "fit";
+  private static final String DEFAULT_FIT = "contain";
+  private static final int MAX_DIMENSION = 4096;
   private static final String ATTACHMENT_DISPOSITION_FORMAT = "attachment; filename=\"%s\"";
+  private static final String METADATA_TAG_FORMAT = "%s-%x-%x";
+  private static final String DERIVATIVE_TAG_FORMAT = "%s-%s";
+  private static final String RESIZED_TAG_FORMAT = "%s-%dx%d-%s";
+  private static final String CONTENT_CACHE_CONTROL =
+      CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable";
   private static final String NOT_RETRIEVED_MESSAGE = "Unable to retrieve previously uploaded file";
   private static final String NOT_STORED_MESSAGE = "Unable to store uploaded content";
   private static final String NOT_WHITELISTED_MESSAGE = "Upload MIME type not in whitelist";
@@ -74,90 +132,209 @@ public class ImageController {
 
   private final UserService userService;
   private final ImageService imageService;
+  private final DerivativeService derivativeService;
+  private final ResizeService resizeService;
+  private final ContentRangeWriter contentRangeWriter;
+  private final ObjectMapper objectMapper;
+  private final long maxFileSize;
 
   /**
-   * Initializes this instance with the {@link UserService} and {@link ImageService} instances used
-   * to perform the requested operations.
+   * Initializes this instance with the {@link UserService}, {@link ImageService}, {@link
+   * DerivativeService}, and {@link ResizeService} instances used to perform the requested
+   * operations, the {@link ContentRangeWriter} used to write image content to the response, the
+   * {@link ObjectMapper} used to serialize streamed exports, and the {@link MultipartProperties}
+   * specifying the maximum size of uploaded content.
    *
-   * @param userService  Provides access to high-level query operations on {@link User} instances.
-   * @param imageService Provides access to high-level query &amp; persistence operations on {@link
-   *                     Image} instances.
+   * @param userService         Provides access to high-level query operations on {@link User}
+   *                            instances.
+   * @param imageService        Provides access to high-level query &amp; persistence operations on
+   *                            {@link Image} instances.
+   * @param derivativeService   Provides access to resized derivatives of {@link Image} content.
+   * @param resizeService       Resizes {@link Image} content on demand, to arbitrary dimensions.
+   * @param contentRangeWriter  Writes full or partial image content to the response.
+   * @param objectMapper        Serializes {@link Image} instances to JSON.
+   * @param multipartProperties Upload size limits, applied to multipart and non-multipart uploads
+   *                            alike.
    */
   @Autowired
-  public ImageController(UserService userService, ImageService imageService) {
+  public ImageController(UserService userService, ImageService imageService,
+      DerivativeService derivativeService, ResizeService resizeService,
+      ContentRangeWriter contentRangeWriter, ObjectMapper objectMapper,
+      MultipartProperties multipartProperties) {
     this.userService = userService;
     this.imageService = imageService;
+    this.derivativeService = derivativeService;
+    this.resizeService = resizeService;
+    this.contentRangeWriter = contentRangeWriter;
+    this.objectMapper = objectMapper;
+    maxFileSize = multipartProperties.getMaxFileSize().toBytes();
   }
 
   /**
-   * Returns all images uploaded by the specified {@code contributor}, containing the text {@code
-   * fragment} in their titles or descriptions.
+   * Selects and returns a page of the images uploaded by the specified {@code contributor},
+   * containing the text {@code fragment} in their titles or descriptions, in descending order of
+   * upload datetime. Pages are delimited by an opaque cursor, as described in {@link #search(UUID,
+   * int, String, Authentication)}.
    *
    * @param contributorId Unique identifier of uploading {@link User}.
    * @param fragment      Text to search for in image title and description.
+   * @param limit         Maximum number of images in the page (1&ndash;200).
+   * @param after         Cursor (from a {@code next} link) following which the page starts.
    * @param auth          Authentication token with {@link User} principal.
-   * @return Selected images.
+   * @return Page of selected images.
    */
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE,
       params = {CONTRIBUTOR_PARAM_NAME, FRAGMENT_PARAM_NAME})
-  public Iterable<Image> search(
+  public CollectionModel<ImageSummary> search(
       @RequestParam(value = CONTRIBUTOR_PARAM_NAME) UUID contributorId,
       @RequestParam(value = FRAGMENT_PARAM_NAME) @Length(min = 3) String fragment,
-      Authentication auth
-  ) {
-    return userService.get(contributorId)
-        .map((contributor) -> imageService.search(contributor, fragment))
-        .orElse(List.of());
+      @RequestParam(value = LIMIT_PARAM_NAME, defaultValue = DEFAULT_LIMIT) int limit,
+      @RequestParam(value = AFTER_PARAM_NAME, required = false) String after,
+      Authentication auth) {
+    checkLimit(limit);
+    KeysetCursor cursor = (after != null) ? KeysetCursor.decode(after) : null;
+    Date created = (cursor != null) ? cursor.getTimestamp() : null;
+    UUID id = (cursor != null) ? cursor.getId() : null;
+    return pageModel(userService.get(contributorId)
+        .map((contributor) -> imageService.search(contributor, fragment, created, id, limit))
+        .orElseGet(() -> new SliceImpl<>(List.of())), ImageSummary::getCreated);
   }
 
   /**
-   * Selects and returns all images uploaded by the {@link User} identified by {@code
-   * contributorId}.
+   * Selects and returns a page of the images uploaded by the {@link User} identified by {@code
+   * contributorId}, in descending order of upload datetime. Pages are delimited by an opaque
+   * cursor (rather than an offset), so that the cost of retrieving a page does not depend on its
+   * position; when more images follow the returned page, the response includes a {@code next} link
+   * containing the cursor for the following page.
    *
    * @param contributorId Unique identifier of uploading {@link User}.
+   * @param limit         Maximum number of images in the page (1&ndash;200).
+   * @param after         Cursor (from a {@code next} link) following which the page starts.
    * @param auth          Authentication token with {@link User} principal.
-   * @return Selected images.
+   * @return Page of selected images.
    */
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = CONTRIBUTOR_PARAM_NAME)
-  public Iterable<Image> search(
-      @RequestParam(value = CONTRIBUTOR_PARAM_NAME) UUID contributorId, Authentication auth) {
-    return userService.get(contributorId)
-        .map(imageService::search)
-        .orElse(List.of());
+  public CollectionModel<ImageSummary> search(
+      @RequestParam(value = CONTRIBUTOR_PARAM_NAME) UUID contributorId,
+      @RequestParam(value = LIMIT_PARAM_NAME, defaultValue = DEFAULT_LIMIT) int limit,
+      @RequestParam(value = AFTER_PARAM_NAME, required = false) String after,
+      Authentication auth) {
+    checkLimit(limit);
+    KeysetCursor cursor = (after != null) ? KeysetCursor.decode(after) : null;
+    Date created = (cursor != null) ? cursor.getTimestamp() : null;
+    UUID id = (cursor != null) ? cursor.getId() : null;
+    return pageModel(userService.get(contributorId)
+        .map((contributor) -> imageService.search(contributor, created, id, limit))
+        .orElseGet(() -> new SliceImpl<>(List.of())), ImageSummary::getCreated);
   }
 
   /**
-   * Selects and returns all images containing the text {@code fragment} in their titles or
-   * descriptions.
+   * Selects and returns a page of the images containing the text {@code fragment} in their titles
+   * or descriptions, in descending order of upload datetime. Pages are delimited by an opaque
+   * cursor, as described in {@link #search(UUID, int, String, Authentication)}.
    *
    * @param fragment Text to search for in image title and description.
+   * @param limit    Maximum number of images in the page (1&ndash;200).
+   * @param after    Cursor (from a {@code next} link) following which the page starts.
    * @param auth     Authentication token with {@link User} principal.
-   * @return Selected images.
+   * @return Page of selected images.
    */
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = FRAGMENT_PARAM_NAME)
-  public Iterable<Image> search(
+  public CollectionModel<ImageSummary> search(
       @RequestParam(value = FRAGMENT_PARAM_NAME) @Length(min = 3) String fragment,
-      Authentication auth
-  ) {
-    return imageService.search(fragment);
+      @RequestParam(value = LIMIT_PARAM_NAME, defaultValue = DEFAULT_LIMIT) int limit,
+      @RequestParam(value = AFTER_PARAM_NAME, required = false) String after,
+      Authentication auth) {
+    checkLimit(limit);
+    KeysetCursor cursor = (after != null) ? KeysetCursor.decode(after) : null;
+    Date created = (cursor != null) ? cursor.getTimestamp() : null;
+    UUID id = (cursor != null) ? cursor.getId() : null;
+    return pageModel(imageService.search(fragment, created, id, limit), ImageSummary::getCreated);
   }
 
   /**
-   * Selects and returns all images.
+   * Selects and returns a page of all images, in descending order of upload datetime (by default)
+   * or capture datetime. Pages are delimited by an opaque cursor, as described in {@link
+   * #search(UUID, int, String, Authentication)}. When ordered by capture datetime, images without
+   * a recorded capture datetime are omitted; when a minimum width or height is specified, images
+   * whose dimensions are unknown are omitted.
    *
-   * @param auth Authentication token with {@link User} principal.
-   * @return Selected images.
+   * @param limit     Maximum number of images in the page (1&ndash;200).
+   * @param after     Cursor (from a {@code next} link) following which the page starts.
+   * @param order     Ordering of the images: {@code created} (the default) or {@code captured}.
+   * @param minWidth  Minimum width (in pixels) of the selected images.
+   * @param minHeight Minimum height (in pixels) of the selected images.
+   * @param auth      Authentication token with {@link User} principal.
+   * @return Page of selected images.
    */
   @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-  public Iterable<Image> list(Authentication auth) {
-    return imageService.list();
+  public CollectionModel<ImageSummary> list(
+      @RequestParam(value = LIMIT_PARAM_NAME, defaultValue = DEFAULT_LIMIT) int limit,
+      @RequestParam(value = AFTER_PARAM_NAME, required = false) String after,
+      @RequestParam(value = ORDER_PARAM_NAME, defaultValue = CREATED_ORDER) String order,
+      @RequestParam(value = MIN_WIDTH_PARAM_NAME, required = false) Integer minWidth,
+      @RequestParam(value = MIN_HEIGHT_PARAM_NAME, required = false) Integer minHeight,
+      Authentication auth) {
+    checkLimit(limit);
+    KeysetCursor cursor = (after != null) ? KeysetCursor.decode(after) : null;
+    Date timestamp = (cursor != null) ? cursor.getTimestamp() : null;
+    UUID id = (cursor != null) ? cursor.getId() : null;
+    int width = (minWidth != null) ? minWidth : 0;
+    int height = (minHeight != null) ? minHeight : 0;
+    CollectionModel<ImageSummary> model;
+    if (order.equalsIgnoreCase(CAPTURED_ORDER)) {
+      model = pageModel(imageService.listByCaptured(width, height, timestamp, id, limit),
+          ImageSummary::getCaptured);
+    } else if (!order.equalsIgnoreCase(CREATED_ORDER)) {
+      throw new InvalidPageException();
+    } else if (minWidth != null || minHeight != null) {
+      model = pageModel(
+          imageService.list(width, height, timestamp, id, limit), ImageSummary::getCreated);
+    } else {
+      model = pageModel(imageService.list(timestamp, id, limit), ImageSummary::getCreated);
+    }
+    return model;
+  }
+
+  /**
+   * Writes all images to the response as newline-delimited JSON (one image per line), in
+   * descending order of upload datetime. Images are read from a database cursor and serialized
+   * one at a time, directly to the response, so that neither the complete list of images nor the
+   * complete response body is held in memory. (This is mapped to a distinct path, rather than
+   * selected by content negotiation on {@code /images}, since a request that accepts any media type
+   * would otherwise match both this method and {@link #list(int, String, String, Integer, Integer,
+   * Authentication)}.)
+   *
+   * @param auth     Authentication token with {@link User} principal.
+   * @param response Current response, to which the images are written.
+   * @throws IOException If the response cannot be written.
+   */
+  @GetMapping(value = EXPORT_PATH, produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void export(Authentication auth, HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    ObjectWriter writer = objectMapper
+        .writerFor(Image.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    OutputStream output = response.getOutputStream();
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+      generator.setRootValueSeparator(null); // Lines are delimited explicitly, below.
+      imageService.export((image) -> {
+        writer.writeValue(generator, image);
+        generator.writeRaw('\n');
+      });
+    }
   }
 
   /**
    * Stores uploaded file content along with a new {@link Image} instance referencing the content.
+   * If {@code duplicates} is {@code true}, any existing images that are likely duplicates of the
+   * uploaded image (as determined by comparison of perceptual hashes) are referenced in {@code
+   * Link} headers of the response, with the relation type {@code duplicate}; the upload itself is
+   * not rejected.
    *
    * @param title       Summary of uploaded content.
    * @param description Detailed description of uploaded content.
+   * @param duplicates  Flag requesting a check for likely duplicates.
    * @param file        MIME content of single file upload.
    * @param auth        Authentication token with {@link User} principal.
    * @return Instance of {@link Image} created &amp; persisted for the uploaded content.
@@ -166,34 +343,113 @@ public class ImageController {
   public ResponseEntity<Image> post(
       @RequestParam(required = false) @Length(min = 3) String title,
       @RequestParam(required = false) @Length(min = 3) String description,
+      @RequestParam(value = DUPLICATES_PARAM_NAME, defaultValue = "false") boolean duplicates,
       @RequestParam MultipartFile file, Authentication auth) {
     try {
       Image image = imageService.store(file, title, description, (User) auth.getPrincipal());
-      return ResponseEntity.created(image.getHref()).body(image);
+      return created(image, duplicates);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      throw new MimeTypeNotAllowedException();
+    }
+  }
+
+  /**
+   * Stores image content sent as the entire body of the request (rather than as a part of a
+   * multipart request), along with a new {@link Image} instance referencing the content. The body
+   * is written directly to the file store as it is received, after its leading bytes have been
+   * checked against the declared {@code Content-Type}; thus, it is neither buffered in memory nor
+   * spooled to a temporary file. The same size limit applies as for multipart uploads, and likely
+   * duplicates are reported in the same way.
+   *
+   * @param title       Summary of uploaded content.
+   * @param description Detailed description of uploaded content.
+   * @param name        Original filename of uploaded content.
+   * @param duplicates  Flag requesting a check for likely duplicates.
+   * @param request     Request, with image content as its body.
+   * @param auth        Authentication token with {@link User} principal.
+   * @return Instance of {@link Image} created &amp; persisted for the uploaded content.
+   */
+  @PostMapping(consumes = IMAGE_CONTENT_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Image> postContent(
+      @RequestParam(required = false) @Length(min = 3) String title,
+      @RequestParam(required = false) @Length(min = 3) String description,
+      @RequestParam(value = NAME_PARAM_NAME, required = false) String name,
+      @RequestParam(value = DUPLICATES_PARAM_NAME, defaultValue = "false") boolean duplicates,
+      HttpServletRequest request, Authentication auth) {
+    if (request.getContentLengthLong() > maxFileSize) {
+      throw new UploadLengthException(new ContentTooLargeException(
+          String.format(CONTENT_TOO_LARGE_FORMAT, maxFileSize)));
+    }
+    MediaType declared = MediaType.parseMediaType(request.getContentType());
+    String contentType = new MediaType(declared.getType(), declared.getSubtype()).toString();
+    try (InputStream input = request.getInputStream()) {
+      Image image = imageService.store(input, maxFileSize, name, contentType,
+          title, description, (User) auth.getPrincipal());
+      return created(image, duplicates);
     } catch (IOException e) {
       throw new StorageException(e);
     } catch (HttpMediaTypeNotAcceptableException e) {
       throw new MimeTypeNotAllowedException();
+    } catch (ContentTooLargeException e) {
+      throw new UploadLengthException(e);
     }
   }
 
   /**
    * Selects and returns a single {@link Image}, as specified by {@code id}. File content is not
-   * returned in the response.
+   * returned in the response. The response includes strong {@code ETag} and {@code Last-Modified}
+   * validators, reflecting changes to the image metadata and to the contributor; a conditional
+   * request with matching validators is answered with {@code 304 Not Modified}, without
+   * serializing the image.
    *
    * @param id   Unique identifier of {@link Image} resource.
    * @param auth Authentication token with {@link User} principal.
    * @return Instance of {@link Image} identified by {@code id}.
    */
   @GetMapping(value = BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN, produces = MediaType.APPLICATION_JSON_VALUE)
-  public Image get(@PathVariable UUID id, Authentication auth) {
+  public ResponseEntity<Image> get(@PathVariable UUID id, Authentication auth) {
     return imageService.get(id)
+        .map((image) -> ResponseEntity.ok()
+            .eTag(metadataTag(image))
+            .lastModified(metadataLastModified(image))
+            .cacheControl(CacheControl.noCache())
+            .body(image))
+        .orElseThrow(ImageNotFoundException::new);
+  }
+
+  /**
+   * Returns the images that are visually similar to the {@link Image} specified by {@code id}, in
+   * increasing order of the distance (in bits) between their perceptual hashes and that of the
+   * specified image. Near-duplicates (e.g. re-encoded or resized copies) generally differ by only a
+   * few bits; unrelated images typically differ by about half of the 64 bits.
+   *
+   * @param id       Unique identifier of {@link Image} resource.
+   * @param distance Maximum distance between perceptual hashes (optional); this may not exceed the
+   *                 configured {@code upload.similarity.max-distance}.
+   * @param auth     Authentication token with {@link User} principal.
+   * @return Similar images.
+   */
+  @GetMapping(value = SIMILAR_PATTERN, produces = MediaType.APPLICATION_JSON_VALUE)
+  public Iterable<Image> getSimilar(
+      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id,
+      @RequestParam(value = DISTANCE_PARAM_NAME, required = false) Integer distance,
+      Authentication auth) {
+    int maxDistance = imageService.getMaxSimilarDistance();
+    if (distance == null) {
+      distance = Math.min(DEFAULT_DISTANCE, maxDistance);
+    } else if (distance < 0 || distance > maxDistance) {
+      throw new InvalidDistanceException();
+    }
+    Image image = imageService.get(id)
         .orElseThrow(ImageNotFoundException::new);
+    return imageService.getSimilar(image, distance);
   }
 
   /**
-   * Deletes the {@link Image} specified by {@code id}. Both file content and metadata are deleted
-   * in response to this request.
+   * Deletes the {@link Image} specified by {@code id}. The metadata is deleted in response to this
+   * request; the file content (if not referenced by any other image) is deleted asynchronously.
    *
    * @param id   Unique identifier of {@link Image} resource.
    * @param auth Authentication token with {@link User} principal.
@@ -203,13 +459,7 @@ public class ImageController {
   public void delete(@PathVariable UUID id, Authentication auth) {
     imageService.get(id, (User) auth.getPrincipal())
         .ifPresentOrElse(
-            image -> {
-              try {
-                imageService.delete(image);
-              } catch (IOException e) {
-                throw new StorageException(e);
-              }
-            },
+            imageService::delete,
             () -> {
               throw new ImageNotFoundException();
             }
@@ -340,35 +590,176 @@ public class ImageController {
   }
 
   /**
-   * Returns the file content of the specified {@link Image} resource. The original filename of the
-   * image is included in the {@code filename} portion of the {@code content-disposition} response
-   * header, while the MIME type is returned in the {@code content-type} header.
+   * Writes the file content of the specified {@link Image} resource to the response. The original
+   * filename of the image is included in the {@code filename} portion of the {@code
+   * content-disposition} response header, while the MIME type is returned in the {@code
+   * content-type} header. Byte-range requests (including multiple ranges) are supported, using the
+   * {@code Range} and {@code If-Range} headers. Since stored content never changes, the response
+   * is marked as immutable and cacheable for a long period; conditional requests ({@code
+   * If-None-Match}, {@code If-Modified-Since}) are answered with {@code 304 Not Modified} without
+   * accessing the file store.
+   * <p>If {@code size} is specified, the resized derivative of that size is returned instead. Until
+   * the derivative has been generated, the original content is returned, but without validators,
+   * and marked as not to be stored, so that no cache substitutes it for the derivative.</p>
+   * <p>Alternatively, if {@code w} and/or {@code h} are specified, the image is resized on demand
+   * to those dimensions (each in the range 1&ndash;4096), as constrained by {@code fit} ({@code
+   * contain}, {@code cover}, or {@code fill}). If only one dimension is specified, the image is
+   * scaled to fit that dimension, preserving aspect ratio. Each requested dimension is rounded up
+   * to the nearest of a fixed set of supported dimensions, but never beyond the original, so images
+   * are not scaled up. Resized images are kept in a size-limited disk cache, so that subsequent
+   * requests for the same dimensions and fit are served without resizing; if a resized image is
+   * not in the cache, and too many images are already being resized, the request is answered with
+   * {@code 503 Service Unavailable}.</p>
    *
-   * @param id   Unique identifier of {@link Image} resource.
-   * @param auth Authentication token with {@link User} principal.
-   * @return Image content.
+   * @param id       Unique identifier of {@link Image} resource.
+   * @param size     Name of derivative size (optional).
+   * @param width    Width (in pixels) of resized image (optional).
+   * @param height   Height (in pixels) of resized image (optional).
+   * @param fit      Constraint on the relationship between original and resized dimensions.
+   * @param auth     Authentication token with {@link User} principal.
+   * @param request  Current request, used to read range headers.
+   * @param response Current response, to which the image content is written.
+   * @throws IOException If the response cannot be written.
    */
   @GetMapping(value = CONTENT_PROPERTY_PATTERN)
-  public ResponseEntity<Resource> getContent(
-      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id, Authentication auth) {
-    return imageService.get(id)
-        .map((image) -> {
-          try {
-            Resource file = imageService.retrieve(image);
-            return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, dispositionHeader(image.getName()))
-                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(file.contentLength()))
-                .header(HttpHeaders.CONTENT_TYPE, image.getContentType())
-                .body(file);
-          } catch (IOException e) {
-            throw new StorageException(e);
-          }
-        })
+  public void getContent(
+      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id,
+      @RequestParam(value = SIZE_PARAM_NAME, required = false) String size,
+      @RequestParam(value = WIDTH_PARAM_NAME, required = false) Integer width,
+      @RequestParam(value = HEIGHT_PARAM_NAME, required = false) Integer height,
+      @RequestParam(value = FIT_PARAM_NAME, defaultValue = DEFAULT_FIT) String fit,
+      Authentication auth, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    Image image = imageService.get(id)
         .orElseThrow(ImageNotFoundException::new);
+    if (width != null || height != null) {
+      writeResized(image, width, height, fit, request, response);
+      return;
+    }
+    Resource derivative = null;
+    if (size != null) {
+      if (!derivativeService.isSupported(size)) {
+        throw new SizeNotFoundException();
+      }
+      derivative = derivativeService.retrieve(image, size).orElse(null);
+    }
+    boolean fallback = size != null && derivative == null;
+    response.setHeader(HttpHeaders.CACHE_CONTROL, fallback
+        ? CacheControl.noStore().getHeaderValue()
+        : CONTENT_CACHE_CONTROL);
+    String tag = (derivative != null) ? contentTag(image, size) : contentTag(image);
+    if (fallback || !new ServletWebRequest(request, response)
+        .checkNotModified(tag, image.getCreated().getTime())) {
+      Resource file;
+      String contentType;
+      if (derivative != null) {
+        file = derivative;
+        contentType = derivativeService.getFormat(image).getContentType();
+      } else {
+        try {
+          file = imageService.retrieve(image);
+        } catch (IOException e) {
+          throw new StorageException(e);
+        }
+        contentType = image.getContentType();
+      }
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, dispositionHeader(image.getName()));
+      contentRangeWriter.write(request, response, file, contentType);
+    }
+  }
+
+  private ResponseEntity<Image> created(Image image, boolean duplicates) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.created(image.getHref());
+    if (duplicates) {
+      for (Image duplicate : imageService.getDuplicates(image)) {
+        builder.header(HttpHeaders.LINK,
+            Link.of(duplicate.getHref().toString(), DUPLICATE_LINK_RELATION).toString());
+      }
+    }
+    return builder.body(image);
+  }
+
+  private void writeResized(Image image, Integer width, Integer height, String fitName,
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Fit fit;
+    try {
+      fit = Fit.valueOf(fitName.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidResizeException();
+    }
+    if (width == null || height == null) {
+      fit = Fit.CONTAIN;
+    }
+    int targetWidth = (width != null) ? width : MAX_DIMENSION;
+    int targetHeight = (height != null) ? height : MAX_DIMENSION;
+    if (targetWidth < 1 || targetWidth > MAX_DIMENSION
+        || targetHeight < 1 || targetHeight > MAX_DIMENSION) {
+      throw new InvalidResizeException();
+    }
+    targetWidth = resizeService.snap(targetWidth, image.getWidth());
+    targetHeight = resizeService.snap(targetHeight, image.getHeight());
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CONTENT_CACHE_CONTROL);
+    String tag = String.format(RESIZED_TAG_FORMAT,
+        image.getId(), targetWidth, targetHeight, fit.name().toLowerCase(Locale.ROOT));
+    if (!new ServletWebRequest(request, response)
+        .checkNotModified(tag, image.getCreated().getTime())) {
+      OpenFileResource file;
+      try {
+        file = resizeService.retrieve(image, targetWidth, targetHeight, fit);
+      } catch (IOException e) {
+        throw new StorageException(e);
+      } catch (RejectedExecutionException e) {
+        throw new ResizeUnavailableException(e);
+      }
+      try (file) {
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, dispositionHeader(image.getName()));
+        contentRangeWriter.write(
+            request, response, file, resizeService.getFormat(image).getContentType());
+      }
+    }
+  }
+
+  static void checkLimit(int limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new InvalidPageException();
+    }
+  }
+
+  static CollectionModel<ImageSummary> pageModel(
+      Slice<ImageSummary> page, Function<ImageSummary, Date> key) {
+    ServletUriComponentsBuilder builder = ServletUriComponentsBuilder.fromCurrentRequest();
+    CollectionModel<ImageSummary> model =
+        CollectionModel.of(page.getContent(), Link.of(builder.toUriString()));
+    if (page.hasNext()) {
+      List<ImageSummary> images = page.getContent();
+      ImageSummary last = images.get(images.size() - 1);
+      String cursor = KeysetCursor.encode(last.getId(), key.apply(last));
+      model.add(Link.of(builder.replaceQueryParam(AFTER_PARAM_NAME, cursor).toUriString(),
+          IanaLinkRelations.NEXT));
+    }
+    return model;
   }
 
   private String dispositionHeader(String filename) {
     return String.format(ATTACHMENT_DISPOSITION_FORMAT, filename);
   }
 
+  private String contentTag(Image image) {
+    return image.getId().toString();
+  }
+
+  private String contentTag(Image image, String size) {
+    return String.format(DERIVATIVE_TAG_FORMAT, image.getId(), size);
+  }
+
+  private String metadataTag(Image image) {
+    return String.format(METADATA_TAG_FORMAT, image.getId(), image.getUpdated().getTime(),
+        image.getContributor().getUpdated().getTime());
+  }
+
+  private long metadataLastModified(Image image) {
+    return Math.max(
+        image.getUpdated().getTime(), image.getContributor().getUpdated().getTime());
+  }
+
 }
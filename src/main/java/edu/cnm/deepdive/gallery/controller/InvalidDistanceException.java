@@ -0,0 +1,21 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a similarity search
+ * specifies a distance that is out of range.
+ */
+public class InvalidDistanceException extends ResponseStatusException {
+
+  private static final String BAD_REQUEST_REASON = "Invalid similarity distance";
+
+  /**
+   * Initializes this instance with a relevant message &amp; response status.
+   */
+  public InvalidDistanceException() {
+    super(HttpStatus.BAD_REQUEST, BAD_REQUEST_REASON);
+  }
+
+}
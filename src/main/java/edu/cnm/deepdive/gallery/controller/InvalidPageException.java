@@ -0,0 +1,22 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a request for a page of
+ * a collection specifies a page size that is out of range, a cursor that cannot be decoded, or an
+ * unsupported ordering.
+ */
+public class InvalidPageException extends ResponseStatusException {
+
+  private static final String BAD_REQUEST_REASON = "Invalid page limit, cursor, or ordering";
+
+  /**
+   * Initializes this instance with a relevant message &amp; response status.
+   */
+  public InvalidPageException() {
+    super(HttpStatus.BAD_REQUEST, BAD_REQUEST_REASON);
+  }
+
+}
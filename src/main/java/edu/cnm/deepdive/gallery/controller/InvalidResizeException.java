@@ -0,0 +1,21 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a request specifies
+ * resize dimensions or a fit mode that are out of range or not recognized.
+ */
+public class InvalidResizeException extends ResponseStatusException {
+
+  private static final String BAD_REQUEST_REASON = "Invalid resize dimensions or fit";
+
+  /**
+   * Initializes this instance with a relevant message &amp; response status.
+   */
+  public InvalidResizeException() {
+    super(HttpStatus.BAD_REQUEST, BAD_REQUEST_REASON);
+  }
+
+}
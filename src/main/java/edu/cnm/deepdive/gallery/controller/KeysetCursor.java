@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.controller;
+
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import org.springframework.lang.NonNull;
+
+/**
+ * Encodes and decodes the opaque cursor values used for keyset pagination of {@link Image}
+ * collections. A cursor identifies the last image of a page by its {@code (timestamp, id)} key,
+ * where the timestamp is that by which the collection is ordered (e.g. created or captured); the
+ * next page consists of the images that follow that key in descending order.
+ */
+final class KeysetCursor {
+
+  private static final int ENCODED_LENGTH = 3 * Long.BYTES;
+
+  private final Date timestamp;
+  private final UUID id;
+
+  private KeysetCursor(Date timestamp, UUID id) {
+    this.timestamp = timestamp;
+    this.id = id;
+  }
+
+  /**
+   * Returns the cursor identifying the position immediately following the image with the specified
+   * {@code id}, in a collection ordered by the specified {@code timestamp} of each image.
+   *
+   * @param id        Unique identifier of the last image in a page.
+   * @param timestamp Ordering timestamp of the last image in a page.
+   * @return URL-safe cursor value.
+   */
+  @NonNull
+  static String encode(@NonNull UUID id, @NonNull Date timestamp) {
+    ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH);
+    buffer.putLong(timestamp.getTime());
+    buffer.putLong(id.getMostSignificantBits());
+    buffer.putLong(id.getLeastSignificantBits());
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * Decodes a cursor value previously produced by {@link #encode(UUID, Date)}.
+   *
+   * @param cursor URL-safe cursor value.
+   * @return Decoded cursor.
+   * @throws InvalidPageException If {@code cursor} is not a valid cursor value.
+   */
+  @NonNull
+  static KeysetCursor decode(@NonNull String cursor) {
+    try {
+      byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+      if (decoded.length != ENCODED_LENGTH) {
+        throw new InvalidPageException();
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(decoded);
+      return new KeysetCursor(
+          new Date(buffer.getLong()), new UUID(buffer.getLong(), buffer.getLong()));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidPageException();
+    }
+  }
+
+  /**
+   * Returns the ordering timestamp of the last image in the preceding page.
+   */
+  Date getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Returns the unique identifier of the last image in the preceding page.
+   */
+  UUID getId() {
+    return id;
+  }
+
+}
@@ -0,0 +1,23 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a resized image is not
+ * in the cache, and cannot be generated because too many images are already being resized.
+ */
+public class ResizeUnavailableException extends ResponseStatusException {
+
+  /**
+   * Initializes this instance with the {@link RejectedExecutionException} cause, along with a
+   * suitable message &amp; response status.
+   *
+   * @param ex Cause of this exception.
+   */
+  public ResizeUnavailableException(RejectedExecutionException ex) {
+    super(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex);
+  }
+
+}
@@ -0,0 +1,21 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a request references a
+ * derivative size that is not configured.
+ */
+public class SizeNotFoundException extends ResponseStatusException {
+
+  private static final String NOT_FOUND_REASON = "Image size not found";
+
+  /**
+   * Initializes this instance with a relevant message &amp; response status.
+   */
+  public SizeNotFoundException() {
+    super(HttpStatus.NOT_FOUND, NOT_FOUND_REASON);
+  }
+
+}
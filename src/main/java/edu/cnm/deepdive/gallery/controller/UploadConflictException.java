@@ -0,0 +1,23 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a chunk is sent at an
+ * offset other than the number of bytes received so far, or an upload session is completed before
+ * all of its content has been received.
+ */
+public class UploadConflictException extends ResponseStatusException {
+
+  /**
+   * Initializes this instance with the {@link IllegalStateException} cause, along with a suitable
+   * message &amp; response status.
+   *
+   * @param ex Cause of this exception.
+   */
+  public UploadConflictException(IllegalStateException ex) {
+    super(HttpStatus.CONFLICT, ex.getMessage(), ex);
+  }
+
+}
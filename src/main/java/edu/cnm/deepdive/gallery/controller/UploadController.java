@@ -0,0 +1,189 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.controller;
+
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.model.entity.UploadSession;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import edu.cnm.deepdive.gallery.service.ContentTooLargeException;
+import edu.cnm.deepdive.gallery.service.UploadSessionService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.server.ExposesResourceFor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Handles REST requests for resumable (chunked) uploads, represented by {@link UploadSession}
+ * resources. A client creates a session, {@code PUT}s the content in one or more chunks (each
+ * starting at the number of bytes received so far, which can be read from the session after an
+ * interruption), and then completes the session, creating an {@link Image} resource.
+ */
+@RestController
+@RequestMapping(UploadController.RELATIVE_PATH)
+@ExposesResourceFor(UploadSession.class)
+@Validated
+public class UploadController {
+
+  static final String RELATIVE_PATH = "/uploads";
+
+  private static final String CONTENT_PROPERTY_PATTERN =
+      BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/content";
+  private static final String COMPLETE_PATTERN =
+      BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN + "/complete";
+  private static final String OFFSET_PARAM_NAME = "offset";
+
+  private final UploadSessionService sessionService;
+
+  /**
+   * Initializes this instance with the {@link UploadSessionService} instance used to perform the
+   * requested operations.
+   *
+   * @param sessionService Provides resumable upload operations.
+   */
+  @Autowired
+  public UploadController(UploadSessionService sessionService) {
+    this.sessionService = sessionService;
+  }
+
+  /**
+   * Creates an upload session, for content with the total length, MIME type, and original filename
+   * specified in {@code session}, along with the title and description of the image to be created.
+   *
+   * @param session Session properties.
+   * @param auth    Authentication token with {@link User} principal.
+   * @return Created session.
+   */
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<UploadSession> post(
+      @RequestBody @Valid UploadSession session, Authentication auth) {
+    try {
+      UploadSession created = sessionService.create(session, (User) auth.getPrincipal());
+      return ResponseEntity.created(created.getHref()).body(created);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      throw new MimeTypeNotAllowedException();
+    } catch (ContentTooLargeException e) {
+      throw new UploadLengthException(e);
+    }
+  }
+
+  /**
+   * Selects and returns an upload session; the {@code received} property of the returned session is
+   * the offset at which the next chunk must start.
+   *
+   * @param id   Unique identifier of the session.
+   * @param auth Authentication token with {@link User} principal.
+   * @return Selected session.
+   */
+  @GetMapping(value = BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public UploadSession get(@PathVariable UUID id, Authentication auth) {
+    return sessionService.get(id, (User) auth.getPrincipal())
+        .orElseThrow(UploadSessionNotFoundException::new);
+  }
+
+  /**
+   * Appends a chunk of content, read directly from the request body, to an upload session.
+   *
+   * @param id      Unique identifier of the session.
+   * @param offset  Position of the chunk in the content.
+   * @param request Current request.
+   * @param auth    Authentication token with {@link User} principal.
+   * @return Updated session.
+   */
+  @PutMapping(value = CONTENT_PROPERTY_PATTERN,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public UploadSession putContent(
+      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id,
+      @RequestParam(OFFSET_PARAM_NAME) long offset, HttpServletRequest request,
+      Authentication auth) {
+    UploadSession session = get(id, auth);
+    try (InputStream input = request.getInputStream()) {
+      return sessionService.append(session, offset, input);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      throw new MimeTypeNotAllowedException();
+    } catch (IllegalStateException e) {
+      throw new UploadConflictException(e);
+    } catch (ContentTooLargeException e) {
+      throw new UploadLengthException(e);
+    }
+  }
+
+  /**
+   * Completes an upload session, whose content must have been received in full, creating an {@link
+   * Image}.
+   *
+   * @param id   Unique identifier of the session.
+   * @param auth Authentication token with {@link User} principal.
+   * @return Instance of {@link Image} created &amp; persisted for the uploaded content.
+   */
+  @PostMapping(value = COMPLETE_PATTERN, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Image> complete(
+      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id, Authentication auth) {
+    UploadSession session = get(id, auth);
+    try {
+      Image image = sessionService.complete(session);
+      return ResponseEntity.created(image.getHref()).body(image);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      throw new MimeTypeNotAllowedException();
+    } catch (IllegalStateException e) {
+      throw new UploadConflictException(e);
+    }
+  }
+
+  /**
+   * Deletes an upload session, discarding any content received.
+   *
+   * @param id   Unique identifier of the session.
+   * @param auth Authentication token with {@link User} principal.
+   */
+  @DeleteMapping(value = BaseParameterPatterns.UUID_PATH_PARAMETER_PATTERN)
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void delete(@PathVariable UUID id, Authentication auth) {
+    try {
+      sessionService.delete(get(id, auth));
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+}
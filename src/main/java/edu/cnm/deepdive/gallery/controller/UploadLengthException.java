@@ -0,0 +1,23 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import edu.cnm.deepdive.gallery.service.ContentTooLargeException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when the declared length of
+ * an upload is not allowed, or a chunk extends beyond the declared length.
+ */
+public class UploadLengthException extends ResponseStatusException {
+
+  /**
+   * Initializes this instance with the {@link ContentTooLargeException} cause, along with a
+   * suitable message &amp; response status.
+   *
+   * @param ex Cause of this exception.
+   */
+  public UploadLengthException(ContentTooLargeException ex) {
+    super(HttpStatus.PAYLOAD_TOO_LARGE, ex.getMessage(), ex);
+  }
+
+}
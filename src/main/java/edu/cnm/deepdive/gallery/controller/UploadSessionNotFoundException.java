@@ -0,0 +1,21 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Convenience class extending {@link ResponseStatusException}, for use when a request references an
+ * upload session that does not exist (or has expired).
+ */
+public class UploadSessionNotFoundException extends ResponseStatusException {
+
+  private static final String NOT_FOUND_REASON = "Upload session not found";
+
+  /**
+   * Initializes this instance with a relevant message &amp; response status.
+   */
+  public UploadSessionNotFoundException() {
+    super(HttpStatus.NOT_FOUND, NOT_FOUND_REASON);
+  }
+
+}
@@ -15,11 +15,15 @@
  */
 package edu.cnm.deepdive.gallery.controller;
 
+import edu.cnm.deepdive.gallery.model.dto.ImageSummary;
 import edu.cnm.deepdive.gallery.model.entity.Image;
 import edu.cnm.deepdive.gallery.model.entity.User;
+import edu.cnm.deepdive.gallery.service.ImageService;
 import edu.cnm.deepdive.gallery.service.UserService;
+import java.util.Date;
 import java.util.UUID;
 import org.hibernate.validator.constraints.Length;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.server.ExposesResourceFor;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
@@ -29,6 +33,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -50,16 +55,20 @@ public class UserController {
   private static final String CURRENT_USER = "/me";
 
   private final UserService userService;
+  private final ImageService imageService;
 
   /**
-   * Initializes this instance with the {@link UserService} instance used to perform the requested
-   * operations.
+   * Initializes this instance with the {@link UserService} and {@link ImageService} instances used
+   * to perform the requested operations.
    *
-   * @param userService Provides access to high-level query &amp; persistence operations on {@link
-   *                    User} instances.
+   * @param userService  Provides access to high-level query &amp; persistence operations on {@link
+   *                     User} instances.
+   * @param imageService Provides access to high-level query operations on {@link Image}
+   *                     instances.
    */
-  public UserController(UserService userService) {
+  public UserController(UserService userService, ImageService imageService) {
     this.userService = userService;
+    this.imageService = imageService;
   }
 
   /**
@@ -87,14 +96,18 @@ public class UserController {
   }
 
   /**
-   * Returns the current authenticated {@link User} profile.
+   * Returns the current authenticated {@link User} profile. Since the principal may have been
+   * cached before the most recent change to its image count, the profile is selected again (which
+   * will usually be satisfied from the entity cache).
    *
    * @param auth Authentication token with {@link User} principal.
    * @return Current {@link User}.
    */
   @GetMapping(value = CURRENT_USER, produces = MediaType.APPLICATION_JSON_VALUE)
   public User me(Authentication auth) {
-    return (User) auth.getPrincipal();
+    User user = (User) auth.getPrincipal();
+    return userService.get(user.getId())
+        .orElse(user);
   }
 
   /**
@@ -133,16 +146,31 @@ public class UserController {
   }
 
   /**
-   * Selects and returns all images uploaded by the {@link User} identified by {@code id}.
+   * Selects and returns a page of the images uploaded by the {@link User} identified by {@code id},
+   * in descending order of upload datetime. As for {@link ImageController#search(UUID, int, String,
+   * Authentication)}, pages are delimited by an opaque cursor, and the response includes a {@code
+   * next} link when more images follow the returned page. The total number of images uploaded by
+   * the user is available (without counting) in the user representation.
    *
-   * @param id   Unique identifier of uploading {@link User}.
-   * @param auth Authentication token with {@link User} principal.
-   * @return Selected images.
+   * @param id    Unique identifier of uploading {@link User}.
+   * @param limit Maximum number of images in the page (1&ndash;200).
+   * @param after Cursor (from a {@code next} link) following which the page starts.
+   * @param auth  Authentication token with {@link User} principal.
+   * @return Page of selected images.
    */
   @GetMapping(value = IMAGES_PROPERTY_PATTERN, produces = MediaType.APPLICATION_JSON_VALUE)
-  public Iterable<Image> getImages(
-      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id, Authentication auth) {
-    return get(id, auth).getImages();
+  public CollectionModel<ImageSummary> getImages(
+      @SuppressWarnings("MVCPathVariableInspection") @PathVariable UUID id,
+      @RequestParam(value = ImageController.LIMIT_PARAM_NAME,
+          defaultValue = ImageController.DEFAULT_LIMIT) int limit,
+      @RequestParam(value = ImageController.AFTER_PARAM_NAME, required = false) String after,
+      Authentication auth) {
+    ImageController.checkLimit(limit);
+    KeysetCursor cursor = (after != null) ? KeysetCursor.decode(after) : null;
+    Date created = (cursor != null) ? cursor.getTimestamp() : null;
+    UUID imageId = (cursor != null) ? cursor.getId() : null;
+    return ImageController.pageModel(
+        imageService.search(get(id, auth), created, imageId, limit), ImageSummary::getCreated);
   }
 
 }
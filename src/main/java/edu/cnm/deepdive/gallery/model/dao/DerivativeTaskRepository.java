@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import edu.cnm.deepdive.gallery.model.entity.DerivativeTask;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Declares custom queries (beyond those declared in {@link JpaRepository}) on {@link
+ * DerivativeTask} entity instances.
+ */
+public interface DerivativeTaskRepository extends JpaRepository<DerivativeTask, UUID> {
+
+  /**
+   * Selects and returns pending tasks in ascending order of datetime created, limited (in number)
+   * by {@code pageable}.
+   *
+   * @param pageable Page size (and offset) of tasks selected.
+   * @return Pending tasks, oldest first.
+   */
+  List<DerivativeTask> getAllByOrderByCreatedAsc(Pageable pageable);
+
+}
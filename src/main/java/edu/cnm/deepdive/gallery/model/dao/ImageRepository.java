@@ -15,18 +15,46 @@
  */
 package edu.cnm.deepdive.gallery.model.dao;
 
+import edu.cnm.deepdive.gallery.model.dto.ImageSummary;
 import edu.cnm.deepdive.gallery.model.entity.Image;
 import edu.cnm.deepdive.gallery.model.entity.User;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import javax.persistence.TemporalType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 
 /**
  * Declares custom queries (beyond those declared in {@link JpaRepository}) on {@link Image} entity
- * instances.
+ * instances. The results of the paged listing queries are held in the Hibernate query cache; since
+ * these queries select {@link ImageSummary} projections, rather than entities, the cached results
+ * contain the projected values themselves, and are not resolved from (or affected by evictions
+ * from) the entity cache. Hibernate invalidates the cached results whenever the {@code image} or
+ * {@code user_profile} table is modified through the persistence context, but not when either is
+ * modified with plain JDBC (see {@link ImageRepositoryCustom} and {@link UserRepositoryCustom}).
+ * Of the columns updated in that way, only the contributor's modification datetime is projected;
+ * in cached results, that value may lag until the results expire.
  */
-public interface ImageRepository extends JpaRepository<Image, UUID> {
+public interface ImageRepository extends JpaRepository<Image, UUID>, ImageRepositoryCustom {
+
+  /**
+   * Leading clauses of queries selecting {@link ImageSummary} projections, with the image aliased
+   * as {@code i} and its contributor as {@code c}.
+   */
+  String SUMMARY_QUERY =
+      "SELECT " + ImageSummary.CONSTRUCTOR_EXPRESSION + " FROM Image AS i JOIN i.contributor AS c ";
 
   /**
    * Returns an {@link Optional Optional&lt;Image&gt;} containing an image with the specified {@code
@@ -40,85 +68,362 @@ public interface ImageRepository extends JpaRepository<Image, UUID> {
   Optional<Image> findFirstByIdAndContributor(UUID id, User contributer);
 
   /**
-   * Returns all images in title (ascending) and created datetime (descending) order.
+   * Returns those of the specified {@code paths} that are referenced by at least one image. Since
+   * identical content is stored only once, this is used to determine which of a batch of stored
+   * files can be deleted, in a single query. {@code paths} must not be empty.
+   *
+   * @param paths Opaque references to stored content.
+   * @return Elements of {@code paths} referenced by at least one image.
+   */
+  @Query("SELECT DISTINCT i.path FROM Image AS i WHERE i.path IN :paths")
+  Set<String> findAllReferencedPaths(@Param("paths") Collection<String> paths);
+
+  /**
+   * Returns the identifier, title, and description of every image, as {@code Object[]} rows with
+   * those 3 elements. This is used to build the in-memory search index, without loading complete
+   * {@link Image} (and associated {@link User}) instances.
+   *
+   * @return Identifier, title, and description of all images.
+   */
+  @Query("SELECT i.id, i.title, i.description FROM Image AS i")
+  List<Object[]> getAllSearchableText();
+
+  /**
+   * Returns the identifier, perceptual hash (which may be {@code null}, if not yet computed),
+   * content reference, and EXIF orientation (which may be {@code null}) of every image, as {@code
+   * Object[]} rows with those 4 elements. This is used to build the in-memory similarity index, and
+   * to compute any missing hashes.
+   *
+   * @return Identifier, perceptual hash, content reference, and orientation of all images.
+   */
+  @Query("SELECT i.id, i.perceptualHash, i.path, i.orientation FROM Image AS i")
+  List<Object[]> getAllPerceptualHashes();
+
+  /**
+   * Returns a {@link Stream} of all images (with contributors fetched in the same query), in
+   * descending order of datetime created (uploaded) and identifier. Rows are read from a database
+   * cursor as the stream is consumed, rather than being loaded all at once; accordingly, this
+   * method must be invoked&mdash;and the stream consumed and closed&mdash;within a transaction.
+   * The second-level cache is neither read nor populated, so that streaming every image does not
+   * displace the (bounded) cached entries of recently requested images.
+   *
+   * @return Cursor-backed {@link Stream} of all images.
+   */
+  @Query("SELECT i FROM Image AS i JOIN FETCH i.contributor ORDER BY i.created DESC, i.id DESC")
+  @QueryHints({
+      @QueryHint(name = "org.hibernate.fetchSize", value = "100"),
+      @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+      @QueryHint(name = "org.hibernate.cacheMode", value = "IGNORE")
+  })
+  Stream<Image> streamAll();
+
+  /**
+   * Selects and returns the first page of images, in descending order of datetime created
+   * (uploaded) and identifier.
+   *
+   * @param pageable Page size specification (sort order is ignored).
+   * @return First page of images.
+   */
+  Slice<Image> getAllByOrderByCreatedDescIdDesc(Pageable pageable);
+
+  /**
+   * Selects and returns the first page of image summaries, in descending order of datetime created
+   * (uploaded) and identifier.
+   *
+   * @param pageable Page size specification (sort order is ignored).
+   * @return First page of image summaries.
+   */
+  @Query(SUMMARY_QUERY + "ORDER BY i.created DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> getAllSummaries(Pageable pageable);
+
+  /**
+   * Selects and returns the page of image summaries following the specified {@code (created, id)}
+   * key, in descending order of datetime created (uploaded) and identifier. The predicate is
+   * written so that the leading {@code created} column bounds an index range scan.
+   *
+   * @param created  Datetime created of the last image in the preceding page.
+   * @param id       Unique identifier of the last image in the preceding page.
+   * @param pageable Page size specification (sort order is ignored).
+   * @return Image summaries following the specified key.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> getAllSummariesAfter(
+      @Param("created") @Temporal(TemporalType.TIMESTAMP) Date created, @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Selects and returns the first page of summaries of images with at least the specified
+   * dimensions, in descending order of datetime created (uploaded) and identifier.
+   *
+   * @param minWidth  Minimum width (in pixels) of selected images.
+   * @param minHeight Minimum height (in pixels) of selected images.
+   * @param pageable  Page size specification (sort order is ignored).
+   * @return First page of image summaries.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.width >= :minWidth AND i.height >= :minHeight "
+      + "ORDER BY i.created DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> getAllSummariesByDimensions(@Param("minWidth") int minWidth,
+      @Param("minHeight") int minHeight, Pageable pageable);
+
+  /**
+   * Selects and returns the page of summaries of images with at least the specified dimensions,
+   * following the specified {@code (created, id)} key, in descending order of datetime created
+   * (uploaded) and identifier.
+   *
+   * @param minWidth  Minimum width (in pixels) of selected images.
+   * @param minHeight Minimum height (in pixels) of selected images.
+   * @param created   Datetime created of the last image in the preceding page.
+   * @param id        Unique identifier of the last image in the preceding page.
+   * @param pageable  Page size specification (sort order is ignored).
+   * @return Image summaries following the specified key.
    */
-  Iterable<Image> getAllByOrderByTitleAscCreatedDesc();
+  @Query(SUMMARY_QUERY
+      + "WHERE i.width >= :minWidth AND i.height >= :minHeight "
+      + "AND i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> getAllSummariesByDimensionsAfter(@Param("minWidth") int minWidth,
+      @Param("minHeight") int minHeight,
+      @Param("created") @Temporal(TemporalType.TIMESTAMP) Date created, @Param("id") UUID id,
+      Pageable pageable);
 
   /**
-   * Returns all images in created datetime (descending) order.
+   * Selects and returns the first page of summaries of images with a recorded capture datetime and
+   * at least the specified dimensions, in descending order of datetime captured and identifier.
+   *
+   * @param minWidth  Minimum width (in pixels) of selected images.
+   * @param minHeight Minimum height (in pixels) of selected images.
+   * @param pageable  Page size specification (sort order is ignored).
+   * @return First page of image summaries.
    */
-  Iterable<Image> getAllByOrderByCreatedDesc();
+  @Query(SUMMARY_QUERY
+      + "WHERE i.captured IS NOT NULL AND i.width >= :minWidth AND i.height >= :minHeight "
+      + "ORDER BY i.captured DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> getAllSummariesByCaptured(@Param("minWidth") int minWidth,
+      @Param("minHeight") int minHeight, Pageable pageable);
 
   /**
-   * Selects and returns all images uploaded by {@code contributor} in descending order of datetime
-   * created (uploaded).
+   * Selects and returns the page of summaries of images with a recorded capture datetime and at
+   * least the specified dimensions, following the specified {@code (captured, id)} key, in
+   * descending order of datetime captured and identifier. The predicate is written so that the
+   * leading {@code captured} column bounds an index range scan.
+   *
+   * @param minWidth  Minimum width (in pixels) of selected images.
+   * @param minHeight Minimum height (in pixels) of selected images.
+   * @param captured  Datetime captured of the last image in the preceding page.
+   * @param id        Unique identifier of the last image in the preceding page.
+   * @param pageable  Page size specification (sort order is ignored).
+   * @return Image summaries following the specified key.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.width >= :minWidth AND i.height >= :minHeight "
+      + "AND i.captured <= :captured AND (i.captured < :captured OR i.id < :id) "
+      + "ORDER BY i.captured DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> getAllSummariesByCapturedAfter(@Param("minWidth") int minWidth,
+      @Param("minHeight") int minHeight,
+      @Param("captured") @Temporal(TemporalType.TIMESTAMP) Date captured, @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Selects and returns the first page of summaries of images uploaded by {@code contributor}, in
+   * descending order of datetime created (uploaded) and identifier.
    *
    * @param contributor {@link User} whose uploaded images are to be selected.
-   * @return All images from {@code contributor}.
+   * @param pageable    Page size specification (sort order is ignored).
+   * @return First page of image summaries from {@code contributor}.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.contributor = :contributor "
+      + "ORDER BY i.created DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> findAllSummariesByContributor(
+      @Param("contributor") User contributor, Pageable pageable);
+
+  /**
+   * Selects and returns the page of summaries of images uploaded by {@code contributor} following
+   * the specified {@code (created, id)} key, in descending order of datetime created (uploaded)
+   * and identifier.
+   *
+   * @param contributor {@link User} whose uploaded images are to be selected.
+   * @param created     Datetime created of the last image in the preceding page.
+   * @param id          Unique identifier of the last image in the preceding page.
+   * @param pageable    Page size specification (sort order is ignored).
+   * @return Image summaries from {@code contributor} following the specified key.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.contributor = :contributor "
+      + "AND i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+  Slice<ImageSummary> findAllSummariesByContributorAfter(@Param("contributor") User contributor,
+      @Param("created") @Temporal(TemporalType.TIMESTAMP) Date created, @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Selects and returns the first page of summaries of the images with the specified identifiers,
+   * in descending order of datetime created (uploaded) and identifier.
+   *
+   * @param ids      Unique identifiers of images to select.
+   * @param pageable Page size specification (sort order is ignored).
+   * @return First page of selected image summaries.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.id IN :ids "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByIdIn(
+      @Param("ids") Collection<UUID> ids, Pageable pageable);
+
+  /**
+   * Selects and returns the page of summaries of the images with the specified identifiers,
+   * following the specified {@code (created, id)} key, in descending order of datetime created
+   * (uploaded) and identifier.
+   *
+   * @param ids      Unique identifiers of images to select.
+   * @param created  Datetime created of the last image in the preceding page.
+   * @param id       Unique identifier of the last image in the preceding page.
+   * @param pageable Page size specification (sort order is ignored).
+   * @return Selected image summaries following the specified key.
    */
-  Iterable<Image> findAllByContributorOrderByCreatedDesc(User contributor);
+  @Query(SUMMARY_QUERY
+      + "WHERE i.id IN :ids "
+      + "AND i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByIdInAfter(@Param("ids") Collection<UUID> ids,
+      @Param("created") @Temporal(TemporalType.TIMESTAMP) Date created, @Param("id") UUID id,
+      Pageable pageable);
 
   /**
-   * Selects and returns all images that have the specified text in their titles or descriptions.
-   * Note that this method is intended to be invoked by {@link #findAllByFragment(String)}, which
-   * passes the same value for {@code titleFragment} and {@code descriptionFragment}. This method
-   * could be specified more directly using a JPQL query, but escaping of the fragment text would be
-   * required, to minimize the risk of SQL injection attacks.
+   * Selects and returns the first page of summaries of the images from the specified {@code
+   * contributor} with the specified identifiers, in descending order of datetime created (uploaded)
+   * and identifier.
    *
-   * @param titleFragment       Text fragment to search for (should be the same as {@code
-   *                            descriptionFragment}).
-   * @param descriptionFragment Text fragment to search for (should be the same as {@code
-   *                            titleFragment}).
-   * @return All images with the specified fragment(s) in their titles or descriptions.
+   * @param contributor Uploading {@link User}.
+   * @param ids         Unique identifiers of images to select.
+   * @param pageable    Page size specification (sort order is ignored).
+   * @return First page of selected image summaries.
    */
-  Iterable<Image> findAllByTitleContainsOrDescriptionContainsOrderByTitleAscCreatedDesc(
-      String titleFragment, String descriptionFragment);
+  @Query(SUMMARY_QUERY
+      + "WHERE i.contributor = :contributor AND i.id IN :ids "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByContributorAndIdIn(@Param("contributor") User contributor,
+      @Param("ids") Collection<UUID> ids, Pageable pageable);
 
   /**
-   * Selects and returns all images that have the specified text in their titles or descriptions.
+   * Selects and returns the page of summaries of the images from the specified {@code contributor}
+   * with the specified identifiers, following the specified {@code (created, id)} key, in
+   * descending order of datetime created (uploaded) and identifier.
+   *
+   * @param contributor Uploading {@link User}.
+   * @param ids         Unique identifiers of images to select.
+   * @param created     Datetime created of the last image in the preceding page.
+   * @param id          Unique identifier of the last image in the preceding page.
+   * @param pageable    Page size specification (sort order is ignored).
+   * @return Selected image summaries following the specified key.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE i.contributor = :contributor AND i.id IN :ids "
+      + "AND i.created <= :created AND (i.created < :created OR i.id < :id) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByContributorAndIdInAfter(
+      @Param("contributor") User contributor, @Param("ids") Collection<UUID> ids,
+      @Param("created") @Temporal(TemporalType.TIMESTAMP) Date created, @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Selects and returns the identifiers of all images from the specified {@code contributor}. Only
+   * the primary key is read, so that this can be used to restrict a set of candidate images to
+   * those from {@code contributor} without loading the images.
+   *
+   * @param contributor Uploading {@link User}.
+   * @return Unique identifiers of the images from {@code contributor}.
+   */
+  @Query("SELECT i.id FROM Image AS i WHERE i.contributor = :contributor")
+  List<UUID> findAllIdsByContributor(@Param("contributor") User contributor);
+
+  /**
+   * Selects and returns the first page of summaries of images that have the specified text in their
+   * titles or descriptions, in descending order of datetime created (uploaded) and identifier.
+   * Wildcard characters in {@code fragment} are escaped, so that it is matched literally.
+   *
+   * @param fragment Text fragment to search for.
+   * @param pageable Page size specification (sort order is ignored).
+   * @return First page of image summaries with {@code fragment} in their titles or descriptions.
+   */
+  @Query(SUMMARY_QUERY
+      + "WHERE (i.title LIKE %?#{escape([0])}% ESCAPE ?#{escapeCharacter()} "
+      + "OR i.description LIKE %?#{escape([0])}% ESCAPE ?#{escapeCharacter()}) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByFragment(@NonNull String fragment, Pageable pageable);
+
+  /**
+   * Selects and returns the page of summaries of images that have the specified text in their
+   * titles or descriptions, following the specified {@code (created, id)} key, in descending order
+   * of datetime created (uploaded) and identifier. Wildcard characters in {@code fragment} are
+   * escaped, so that it is matched literally.
    *
    * @param fragment Text fragment to search for.
-   * @return All images with the specified fragment in their titles or descriptions.
+   * @param created  Datetime created of the last image in the preceding page.
+   * @param id       Unique identifier of the last image in the preceding page.
+   * @param pageable Page size specification (sort order is ignored).
+   * @return Image summaries with {@code fragment} in their titles or descriptions, following the
+   * specified key.
    */
-  default Iterable<Image> findAllByFragment(String fragment) {
-    return findAllByTitleContainsOrDescriptionContainsOrderByTitleAscCreatedDesc(
-        fragment, fragment);
-  }
+  @Query(SUMMARY_QUERY
+      + "WHERE (i.title LIKE %?#{escape([0])}% ESCAPE ?#{escapeCharacter()} "
+      + "OR i.description LIKE %?#{escape([0])}% ESCAPE ?#{escapeCharacter()}) "
+      + "AND i.created <= ?2 AND (i.created < ?2 OR i.id < ?3) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByFragmentAfter(@NonNull String fragment,
+      @Temporal(TemporalType.TIMESTAMP) Date created, UUID id, Pageable pageable);
 
   /**
-   * Selects and returns all images from the specified {@code contributor}, with the specified text
-   * fragments in their titles or descriptions. Note that this method is intended to be invoked by
-   * {@link #findAllByContributorAndFragment(User, String)}, which duplicates the arguments as
-   * appropriate in the invocation. This method could be specified more directly using a JPQL query,
-   * but escaping of the fragment text would be required, to minimize the risk of SQL injection
-   * attacks.
+   * Selects and returns the first page of summaries of images from the specified {@code
+   * contributor} that have the specified text in their titles or descriptions, in descending order
+   * of datetime created (uploaded) and identifier. Wildcard characters in {@code fragment} are
+   * escaped, so that it is matched literally.
    *
-   * @param contributor         Uploading {@link User} (should be same value as {@code
-   *                            contributorAgain}).
-   * @param titleFragment       Text fragment to search for (should be the same as {@code
-   *                            descriptionFragment}).
-   * @param contributorAgain    Uploading {@link User} (should be same value as {@code
-   *                            contributor}).
-   * @param descriptionFragment Text fragment to search for (should be the same as {@code
-   *                            titleFragment}).
-   * @return All images satisfying the specified criteria.
+   * @param contributor Uploading {@link User}.
+   * @param fragment    Text fragment to search for.
+   * @param pageable    Page size specification (sort order is ignored).
+   * @return First page of image summaries satisfying the specified criteria.
    */
-  Iterable<Image> findAllByContributorAndTitleContainsOrContributorAndDescriptionContainsOrderByTitleAscCreatedDesc(
-      @NonNull User contributor, @NonNull String titleFragment,
-      @NonNull User contributorAgain, @NonNull String descriptionFragment);
+  @Query(SUMMARY_QUERY
+      + "WHERE i.contributor = ?1 "
+      + "AND (i.title LIKE %?#{escape([1])}% ESCAPE ?#{escapeCharacter()} "
+      + "OR i.description LIKE %?#{escape([1])}% ESCAPE ?#{escapeCharacter()}) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByContributorAndFragment(
+      @NonNull User contributor, @NonNull String fragment, Pageable pageable);
 
   /**
-   * Selects and returns all images from the specified {@code contributor}, with the specified text
-   * fragments in their titles or descriptions.
+   * Selects and returns the page of summaries of images from the specified {@code contributor} that
+   * have the specified text in their titles or descriptions, following the specified {@code
+   * (created, id)} key, in descending order of datetime created (uploaded) and identifier. Wildcard
+   * characters in {@code fragment} are escaped, so that it is matched literally.
    *
-   * @param contributor Uploading {@link User} (should be same value as {@code contributorAgain}).
+   * @param contributor Uploading {@link User}.
    * @param fragment    Text fragment to search for.
-   * @return All images satisfying the specified criteria.
+   * @param created     Datetime created of the last image in the preceding page.
+   * @param id          Unique identifier of the last image in the preceding page.
+   * @param pageable    Page size specification (sort order is ignored).
+   * @return Image summaries satisfying the specified criteria, following the specified key.
    */
-  default Iterable<Image> findAllByContributorAndFragment(
-      @NonNull User contributor, @NonNull String fragment) {
-    return findAllByContributorAndTitleContainsOrContributorAndDescriptionContainsOrderByTitleAscCreatedDesc(
-        contributor, fragment, contributor, fragment);
-  }
+  @Query(SUMMARY_QUERY
+      + "WHERE i.contributor = ?1 "
+      + "AND (i.title LIKE %?#{escape([1])}% ESCAPE ?#{escapeCharacter()} "
+      + "OR i.description LIKE %?#{escape([1])}% ESCAPE ?#{escapeCharacter()}) "
+      + "AND i.created <= ?3 AND (i.created < ?3 OR i.id < ?4) "
+      + "ORDER BY i.created DESC, i.id DESC")
+  Slice<ImageSummary> findAllSummariesByContributorAndFragmentAfter(@NonNull User contributor,
+      @NonNull String fragment, @Temporal(TemporalType.TIMESTAMP) Date created, UUID id,
+      Pageable pageable);
 
 }
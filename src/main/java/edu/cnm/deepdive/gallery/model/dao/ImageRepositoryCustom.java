@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.util.UUID;
+
+/**
+ * Declares operations on {@link Image} instances that are implemented directly (in {@link
+ * ImageRepositoryCustomImpl}), rather than derived by Spring Data; these are included in {@link
+ * ImageRepository}.
+ */
+public interface ImageRepositoryCustom {
+
+  /**
+   * Sets the perceptual hash of the image with the specified {@code id}, if not already set, in a
+   * single {@code UPDATE} statement. This is used to backfill hashes of images stored before hashes
+   * were computed. If invoked within an existing transaction, the update is made in that
+   * transaction. Only the second-level cache entry of the image is evicted (when the transaction
+   * commits); other cached images, and cached query results, are unaffected.
+   *
+   * @param id   Unique identifier of the image.
+   * @param hash Perceptual hash of the image content.
+   * @return Number of images updated (0 or 1).
+   */
+  int setPerceptualHash(UUID id, long hash);
+
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Implements {@link ImageRepositoryCustom}. The perceptual hash is updated with plain JDBC (in the
+ * current JPA transaction), since a JPQL bulk update would invalidate the entire {@link Image}
+ * region of the second-level cache, along with every cached query result involving images.
+ */
+public class ImageRepositoryCustomImpl implements ImageRepositoryCustom {
+
+  private static final String SET_PERCEPTUAL_HASH_SQL =
+      "UPDATE image SET perceptual_hash = ? WHERE image_id = ? AND perceptual_hash IS NULL";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EntityManagerFactory entityManagerFactory;
+
+  /**
+   * Initializes this instance with the {@link JdbcTemplate} used to update perceptual hashes, and
+   * the {@link EntityManagerFactory} whose second-level cache is maintained accordingly.
+   *
+   * @param jdbcTemplate         JDBC operations on the application data source.
+   * @param entityManagerFactory JPA entity manager factory.
+   */
+  @Autowired
+  public ImageRepositoryCustomImpl(
+      JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  @Override
+  @Transactional
+  public int setPerceptualHash(@NonNull UUID id, long hash) {
+    int updated = jdbcTemplate.update(SET_PERCEPTUAL_HASH_SQL, hash, UuidColumns.toBytes(id));
+    if (updated > 0) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          entityManagerFactory.getCache().evict(Image.class, id);
+        }
+      });
+    }
+    return updated;
+  }
+
+}
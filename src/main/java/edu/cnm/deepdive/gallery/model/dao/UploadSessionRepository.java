@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import edu.cnm.deepdive.gallery.model.entity.UploadSession;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Declares custom queries (beyond those declared in {@link JpaRepository}) on {@link
+ * UploadSession} entity instances.
+ */
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+  /**
+   * Returns an {@link Optional Optional&lt;UploadSession&gt;} containing a session with the
+   * specified {@code id} and created by the specified {@link User}, if any exists.
+   *
+   * @param id          Unique identifier of session.
+   * @param contributor {@link User} that created the session.
+   * @return {@link Optional} containing the selected session, if any; if not, an empty {@link
+   * Optional}.
+   */
+  Optional<UploadSession> findFirstByIdAndContributor(UUID id, User contributor);
+
+  /**
+   * Selects and returns all sessions last updated before the specified datetime.
+   *
+   * @param updated Cutoff datetime.
+   * @return Sessions not updated since {@code updated}.
+   */
+  List<UploadSession> getAllByUpdatedBefore(Date updated);
+
+}
@@ -19,12 +19,15 @@ import edu.cnm.deepdive.gallery.model.entity.User;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Declares custom queries (beyond those declared in {@link JpaRepository}) on {@link User} entity
- * instances.
+ * instances, along with the operations implemented in {@link UserRepositoryCustom}.
  */
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, UserRepositoryCustom {
 
   /**
    * Returns an {@link Optional Optional&lt;User&gt;} containing a {@link User} with the specified
@@ -47,4 +50,19 @@ public interface UserRepository extends JpaRepository<User, UUID> {
    */
   Iterable<User> getAllByOrderByDisplayNameAsc();
 
+  /**
+   * Sets the image count of every {@link User} whose count differs from the number of images
+   * actually contributed. This corrects counts in a database created before counts were
+   * maintained, along with any drift (e.g. from a failure between storing an image and updating
+   * the count).
+   *
+   * @return Number of users updated.
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE User AS u "
+      + "SET u.imageCount = (SELECT COUNT(i) FROM Image AS i WHERE i.contributor = u) "
+      + "WHERE u.imageCount <> (SELECT COUNT(i) FROM Image AS i WHERE i.contributor = u)")
+  int reconcileImageCounts();
+
 }
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import edu.cnm.deepdive.gallery.model.entity.User;
+
+/**
+ * Declares operations on {@link User} instances that are implemented directly (in {@link
+ * UserRepositoryCustomImpl}), rather than derived by Spring Data; these are included in {@link
+ * UserRepository}.
+ */
+public interface UserRepositoryCustom {
+
+  /**
+   * Adds {@code delta} to the image count of the specified {@link User}, and sets its modification
+   * datetime to the current time, in a single {@code UPDATE} statement; this is used to maintain
+   * the count as images are stored and deleted, without loading (or overwriting the concurrently
+   * updated count of) the {@link User} instance. If invoked within an existing transaction, the
+   * update is made in that transaction. Only the second-level cache entry of {@code user} is
+   * evicted (when the transaction commits); other cached users, and cached query results, are
+   * unaffected.
+   *
+   * @param user  Contributor of the stored or deleted image.
+   * @param delta Change in the number of images contributed by {@code user}.
+   * @return Number of users updated (0 or 1).
+   */
+  int adjustImageCount(User user, int delta);
+
+}
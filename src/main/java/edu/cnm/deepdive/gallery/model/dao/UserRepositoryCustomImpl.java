@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import edu.cnm.deepdive.gallery.model.entity.User;
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Implements {@link UserRepositoryCustom}. The image count is updated with plain JDBC (in the
+ * current JPA transaction), since a JPQL bulk update would invalidate the entire {@link User}
+ * region of the second-level cache, along with every cached query result involving users. The
+ * modification datetime is updated along with the count, since the latter is part of the JSON
+ * representation of a user (and of each image contributed by that user), and the former is used to
+ * validate conditional requests for those representations.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+  private static final String ADJUST_IMAGE_COUNT_SQL =
+      "UPDATE user_profile SET image_count = image_count + ?, updated = CURRENT_TIMESTAMP "
+          + "WHERE user_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EntityManagerFactory entityManagerFactory;
+
+  /**
+   * Initializes this instance with the {@link JdbcTemplate} used to update image counts, and the
+   * {@link EntityManagerFactory} whose second-level cache is maintained accordingly.
+   *
+   * @param jdbcTemplate         JDBC operations on the application data source.
+   * @param entityManagerFactory JPA entity manager factory.
+   */
+  @Autowired
+  public UserRepositoryCustomImpl(
+      JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  @Override
+  @Transactional
+  public int adjustImageCount(@NonNull User user, int delta) {
+    UUID id = user.getId();
+    int updated = jdbcTemplate.update(ADJUST_IMAGE_COUNT_SQL, delta, UuidColumns.toBytes(id));
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        entityManagerFactory.getCache().evict(User.class, id);
+      }
+    });
+    return updated;
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dao;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts {@link UUID} values for use as parameters of plain JDBC statements, as executed by the
+ * custom repository implementations in this package.
+ */
+final class UuidColumns {
+
+  private UuidColumns() {
+  }
+
+  /**
+   * Returns the 16-byte big-endian representation of {@code id}, as stored in a {@code CHAR(16)
+   * FOR BIT DATA} column.
+   */
+  static byte[] toBytes(UUID id) {
+    return ByteBuffer.allocate(2 * Long.BYTES)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+
+}
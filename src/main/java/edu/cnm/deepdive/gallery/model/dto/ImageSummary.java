@@ -0,0 +1,312 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import java.net.URI;
+import java.util.Date;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.server.EntityLinks;
+import org.springframework.hateoas.server.core.Relation;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-only projection of an {@link Image} (and its contributing {@link User}), containing only
+ * the properties included in the JSON representation of an image. Instances are constructed by
+ * JPQL constructor expressions, so that listing and search queries neither hydrate managed
+ * entities (with their associated persistence context snapshots and dirty checking) nor load the
+ * contributor as a separate entity. The JSON representation of an instance is the same as that of
+ * the corresponding {@link Image}, except that the contributor's image count is omitted; that count
+ * is available in the representation of the contributor itself (see {@link Contributor#getHref()}).
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonPropertyOrder(
+    {"id", "title", "description", "name", "href", "created", "updated", "contributor"})
+@Relation(collectionRelation = "images")
+@Component
+public class ImageSummary {
+
+  /**
+   * JPQL constructor expression selecting an instance of this class from an {@link Image} aliased
+   * as {@code i}, joined to its contributor aliased as {@code c}.
+   */
+  public static final String CONSTRUCTOR_EXPRESSION =
+      "new edu.cnm.deepdive.gallery.model.dto.ImageSummary("
+          + "i.id, i.created, i.updated, i.title, i.description, i.name, i.contentType, "
+          + "i.width, i.height, i.orientation, i.captured, i.contentLength, i.placeholder, "
+          + "c.id, c.created, c.updated, c.displayName)";
+
+  private static EntityLinks entityLinks;
+
+  private final UUID id;
+  private final Date created;
+  private final Date updated;
+  private final String title;
+  private final String description;
+  private final String name;
+  private final String contentType;
+  private final Integer width;
+  private final Integer height;
+  private final Integer orientation;
+  private final Date captured;
+  private final Long contentLength;
+  private final String placeholder;
+  private final Contributor contributor;
+
+  /**
+   * Initializes a placeholder instance, as required for injection of the {@link EntityLinks} used
+   * to construct resource locations; this constructor is not intended for any other use.
+   */
+  public ImageSummary() {
+    this(null, null, null, null, null, null, null, null, null, null, null, null, null,
+        null, null, null, null);
+  }
+
+  /**
+   * Initializes this instance with the specified properties of an image and its contributor.
+   * This constructor is invoked by JPQL constructor expressions (see {@link
+   * #CONSTRUCTOR_EXPRESSION}), with parameters in the order declared here.
+   *
+   * @param id                 Unique identifier of the image.
+   * @param created            Datetime the image was first persisted.
+   * @param updated            Datetime the image was last updated.
+   * @param title              Title of the image.
+   * @param description        Description of the image.
+   * @param name               Original filename of the image.
+   * @param contentType        MIME type of the image content.
+   * @param width              Width (in pixels) of the image.
+   * @param height             Height (in pixels) of the image.
+   * @param orientation        EXIF orientation of the image.
+   * @param captured           Capture datetime of the image.
+   * @param contentLength      Size (in bytes) of the image content.
+   * @param placeholder        Low-quality placeholder (BlurHash) of the image.
+   * @param contributorId      Unique identifier of the contributor.
+   * @param contributorCreated Datetime the contributor was first persisted.
+   * @param contributorUpdated Datetime the contributor was last updated.
+   * @param contributorName    Display name of the contributor.
+   */
+  public ImageSummary(UUID id, Date created, Date updated, String title, String description,
+      String name, String contentType, Integer width, Integer height, Integer orientation,
+      Date captured, Long contentLength, String placeholder, UUID contributorId,
+      Date contributorCreated, Date contributorUpdated, String contributorName) {
+    this.id = id;
+    this.created = created;
+    this.updated = updated;
+    this.title = title;
+    this.description = description;
+    this.name = name;
+    this.contentType = contentType;
+    this.width = width;
+    this.height = height;
+    this.orientation = orientation;
+    this.captured = captured;
+    this.contentLength = contentLength;
+    this.placeholder = placeholder;
+    contributor = (contributorId != null)
+        ? new Contributor(contributorId, contributorCreated, contributorUpdated, contributorName)
+        : null;
+  }
+
+  /**
+   * Returns the unique identifier of the image.
+   */
+  public UUID getId() {
+    return id;
+  }
+
+  /**
+   * Returns the datetime the image was first persisted to the database.
+   */
+  public Date getCreated() {
+    return created;
+  }
+
+  /**
+   * Returns the datetime the image was most recently updated in the database.
+   */
+  public Date getUpdated() {
+    return updated;
+  }
+
+  /**
+   * Returns the title of the image.
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Returns the description of the image.
+   */
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Returns the original filename of the image.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the MIME type of the image content.
+   */
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the width (in pixels) of the image, if known.
+   */
+  public Integer getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height (in pixels) of the image, if known.
+   */
+  public Integer getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns the EXIF orientation of the image, if recorded.
+   */
+  public Integer getOrientation() {
+    return orientation;
+  }
+
+  /**
+   * Returns the capture datetime of the image, if recorded.
+   */
+  public Date getCaptured() {
+    return captured;
+  }
+
+  /**
+   * Returns the size (in bytes) of the image content.
+   */
+  public Long getContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Returns the low-quality placeholder (BlurHash) of the image.
+   */
+  public String getPlaceholder() {
+    return placeholder;
+  }
+
+  /**
+   * Returns the contributor of the image.
+   */
+  public Contributor getContributor() {
+    return contributor;
+  }
+
+  /**
+   * Returns the location of the REST resource representation of the image.
+   */
+  public URI getHref() {
+    //noinspection ConstantConditions
+    return (id != null) ? entityLinks.linkForItemResource(Image.class, id).toUri() : null;
+  }
+
+  @PostConstruct
+  private void initHateoas() {
+    //noinspection ResultOfMethodCallIgnored
+    entityLinks.toString();
+  }
+
+  /**
+   * Injects the {@link EntityLinks} required for constructing the REST resource locations of
+   * images and contributors.
+   */
+  @Autowired
+  public void setEntityLinks(
+      @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EntityLinks entityLinks) {
+    ImageSummary.entityLinks = entityLinks;
+  }
+
+  /**
+   * Read-only projection of the {@link User} that contributed an image, containing the properties
+   * included in the JSON representation of a user, other than the image count.
+   */
+  @JsonInclude(Include.NON_NULL)
+  @JsonPropertyOrder({"id", "name", "href", "created", "updated"})
+  public static class Contributor {
+
+    private final UUID id;
+    private final Date created;
+    private final Date updated;
+    private final String displayName;
+
+    private Contributor(UUID id, Date created, Date updated, String displayName) {
+      this.id = id;
+      this.created = created;
+      this.updated = updated;
+      this.displayName = displayName;
+    }
+
+    /**
+     * Returns the unique identifier of the contributor.
+     */
+    @NonNull
+    public UUID getId() {
+      return id;
+    }
+
+    /**
+     * Returns the datetime the contributor was first persisted to the database.
+     */
+    public Date getCreated() {
+      return created;
+    }
+
+    /**
+     * Returns the datetime the contributor was most recently updated in the database.
+     */
+    public Date getUpdated() {
+      return updated;
+    }
+
+    /**
+     * Returns the display name of the contributor.
+     */
+    @JsonProperty("name")
+    public String getDisplayName() {
+      return displayName;
+    }
+
+    /**
+     * Returns the location of the REST resource representation of the contributor.
+     */
+    public URI getHref() {
+      return entityLinks.linkForItemResource(User.class, id).toUri();
+    }
+
+  }
+
+}
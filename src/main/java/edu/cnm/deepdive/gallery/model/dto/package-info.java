@@ -0,0 +1,4 @@
+/**
+ * Read-only projections of persistent entities, constructed directly from query results.
+ */
+package edu.cnm.deepdive.gallery.model.dto;
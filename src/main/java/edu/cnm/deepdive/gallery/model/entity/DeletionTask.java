@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.entity;
+
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.lang.NonNull;
+
+/**
+ * Encapsulates a persistent request for deletion of stored content (along with its derivatives)
+ * that may no longer be referenced by any {@link Image}. A task is created in the same transaction
+ * as the deletion of an image, and deleted when the content has been collected (or found to be
+ * still referenced), so that pending deletions survive an application restart.
+ */
+@SuppressWarnings("JpaDataSourceORMInspection")
+@Entity
+@Table(
+    indexes = {
+        @Index(columnList = "created")
+    }
+)
+public class DeletionTask {
+
+  @NonNull
+  @Id
+  @GeneratedValue(generator = "uuid2")
+  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @Column(name = "deletion_task_id", nullable = false, updatable = false,
+      columnDefinition = "CHAR(16) FOR BIT DATA")
+  private UUID id;
+
+  @NonNull
+  @CreationTimestamp
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false, updatable = false)
+  private Date created;
+
+  @NonNull
+  @Column(nullable = false, updatable = false)
+  private String path;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  /**
+   * Returns the unique identifier of this task.
+   */
+  @NonNull
+  public UUID getId() {
+    return id;
+  }
+
+  /**
+   * Returns the datetime this task was first persisted to the database.
+   */
+  @NonNull
+  public Date getCreated() {
+    return created;
+  }
+
+  /**
+   * Returns the opaque reference to the stored content to be deleted.
+   */
+  @NonNull
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Sets the opaque reference to the stored content to be deleted.
+   */
+  public void setPath(@NonNull String path) {
+    this.path = path;
+  }
+
+  /**
+   * Returns the number of failed attempts made to complete this task.
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  /**
+   * Sets the number of failed attempts made to complete this task.
+   */
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+}
@@ -20,11 +20,13 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import edu.cnm.deepdive.gallery.configuration.TimeOrderedUuidGenerator;
 import java.net.URI;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -36,33 +38,47 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.hateoas.server.EntityLinks;
+import org.springframework.hateoas.server.core.Relation;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
 /**
- * Encapsulates a persistent image object with: title, description, file metadata (original filename
- * and MIME type), reference to the contributing user, and reference to the actual content.
+ * Encapsulates a persistent image object with: title, description, file metadata (original filename,
+ * MIME type, and size), image metadata read from the content headers (dimensions, EXIF orientation,
+ * and capture datetime), a low-quality placeholder (BlurHash) computed from the content, reference
+ * to the contributing user, and reference to the actual content.
  */
 @SuppressWarnings("JpaDataSourceORMInspection")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(
     indexes = {
         @Index(columnList = "created, updated"),
-        @Index(columnList = "title")
+        @Index(columnList = "created, image_id"),
+        @Index(columnList = "contributor_id, created, image_id"),
+        @Index(columnList = "title"),
+        @Index(columnList = "path"),
+        @Index(columnList = "captured, image_id"),
+        @Index(columnList = "width, height")
     }
 )
 @JsonInclude(Include.NON_NULL)
 @JsonIgnoreProperties(
-    value = {"id", "created", "updated", "contentType", "href", "contributor"},
+    value = {"id", "created", "updated", "contentType", "width", "height", "orientation",
+        "captured", "contentLength", "placeholder", "href", "contributor"},
     allowGetters = true, ignoreUnknown = true
 )
 @JsonPropertyOrder(
     {"id", "title", "description", "name", "href", "created", "updated", "contributor"})
+@Relation(collectionRelation = "images")
 @Component
 public class Image implements Comparable<Image> {
 
@@ -73,8 +89,8 @@ public class Image implements Comparable<Image> {
 
   @NonNull
   @Id
-  @GeneratedValue(generator = "uuid2")
-  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @GeneratedValue(generator = "uuid7")
+  @GenericGenerator(name = "uuid7", strategy = TimeOrderedUuidGenerator.STRATEGY)
   @Column(name = "image_id", nullable = false, updatable = false,
       columnDefinition = "CHAR(16) FOR BIT DATA")
   private UUID id;
@@ -88,7 +104,7 @@ public class Image implements Comparable<Image> {
   @NonNull
   @UpdateTimestamp
   @Temporal(TemporalType.TIMESTAMP)
-  @Column(nullable = false, updatable = false)
+  @Column(nullable = false)
   private Date updated;
 
   @Column(length = 100)
@@ -110,6 +126,29 @@ public class Image implements Comparable<Image> {
   @Column(nullable = false, updatable = false)
   private String contentType;
 
+  @Column(updatable = false)
+  private Integer width;
+
+  @Column(updatable = false)
+  private Integer height;
+
+  @Column(updatable = false)
+  private Integer orientation;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(updatable = false)
+  private Date captured;
+
+  @Column(updatable = false)
+  private Long contentLength;
+
+  @Column(updatable = false)
+  @JsonIgnore
+  private Long perceptualHash;
+
+  @Column(length = 32, updatable = false)
+  private String placeholder;
+
   @NonNull
   @ManyToOne(fetch = FetchType.EAGER, optional = false)
   @JoinColumn(name = "contributor_id", nullable = false, updatable = false)
@@ -215,6 +254,113 @@ public class Image implements Comparable<Image> {
     this.contentType = contentType;
   }
 
+  /**
+   * Returns the width (in pixels) of this image, as stored; this does not reflect any rotation
+   * specified by {@link #getOrientation()}. If the width could not be read, {@code null} is
+   * returned.
+   */
+  public Integer getWidth() {
+    return width;
+  }
+
+  /**
+   * Sets the stored width (in pixels) of this image to the specified {@code width}.
+   */
+  public void setWidth(Integer width) {
+    this.width = width;
+  }
+
+  /**
+   * Returns the height (in pixels) of this image, as stored; this does not reflect any rotation
+   * specified by {@link #getOrientation()}. If the height could not be read, {@code null} is
+   * returned.
+   */
+  public Integer getHeight() {
+    return height;
+  }
+
+  /**
+   * Sets the stored height (in pixels) of this image to the specified {@code height}.
+   */
+  public void setHeight(Integer height) {
+    this.height = height;
+  }
+
+  /**
+   * Returns the EXIF orientation (1&ndash;8) of this image, specifying the rotation and/or
+   * reflection to be applied for display; values 5&ndash;8 indicate that the displayed width and
+   * height are transposed. If the image has no EXIF orientation, {@code null} is returned.
+   */
+  public Integer getOrientation() {
+    return orientation;
+  }
+
+  /**
+   * Sets the EXIF orientation of this image to the specified {@code orientation}.
+   */
+  public void setOrientation(Integer orientation) {
+    this.orientation = orientation;
+  }
+
+  /**
+   * Returns the datetime this image was captured, as recorded in its EXIF metadata, or {@code null}
+   * if no capture datetime was recorded.
+   */
+  public Date getCaptured() {
+    return captured;
+  }
+
+  /**
+   * Sets the capture datetime of this image to the specified {@code captured}.
+   */
+  public void setCaptured(Date captured) {
+    this.captured = captured;
+  }
+
+  /**
+   * Returns the size (in bytes) of the content of this image.
+   */
+  public Long getContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Sets the size (in bytes) of the content of this image to the specified {@code contentLength}.
+   */
+  public void setContentLength(Long contentLength) {
+    this.contentLength = contentLength;
+  }
+
+  /**
+   * Returns the 64-bit perceptual (difference) hash of the content of this image, used to find
+   * visually similar images.
+   */
+  public Long getPerceptualHash() {
+    return perceptualHash;
+  }
+
+  /**
+   * Sets the perceptual hash of the content of this image to the specified {@code perceptualHash}.
+   */
+  public void setPerceptualHash(Long perceptualHash) {
+    this.perceptualHash = perceptualHash;
+  }
+
+  /**
+   * Returns a low-quality placeholder of this image, encoded as a BlurHash string, which a client
+   * may display (stretched to the image dimensions) until the image content has been loaded.
+   */
+  public String getPlaceholder() {
+    return placeholder;
+  }
+
+  /**
+   * Sets the low-quality placeholder of this image to the specified {@code placeholder}.
+   */
+  public void setPlaceholder(String placeholder) {
+    this.placeholder = placeholder;
+  }
+
   /**
    * Returns the {@link User} that contributed this image.
    */
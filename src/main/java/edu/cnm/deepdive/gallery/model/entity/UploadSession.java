@@ -0,0 +1,290 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.model.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.net.URI;
+import java.util.Date;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.validation.constraints.Positive;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.server.EntityLinks;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encapsulates a persistent resumable (chunked) upload session. The content uploaded so far is
+ * staged in the file store, and is committed (creating an {@link Image}) when the session is
+ * finalized; the number of bytes {@code received} is recorded after each chunk, so that a client
+ * can resume an interrupted upload at the correct offset.
+ */
+@SuppressWarnings("JpaDataSourceORMInspection")
+@Entity
+@Table(
+    indexes = {
+        @Index(columnList = "updated")
+    }
+)
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(
+    value = {"id", "created", "updated", "received", "href"},
+    allowGetters = true, ignoreUnknown = true
+)
+@JsonPropertyOrder({"id", "name", "contentType", "length", "received", "title", "description",
+    "href", "created", "updated"})
+@Component
+public class UploadSession {
+
+  private static EntityLinks entityLinks;
+
+  @NonNull
+  @Id
+  @GeneratedValue(generator = "uuid2")
+  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @Column(name = "upload_session_id", nullable = false, updatable = false,
+      columnDefinition = "CHAR(16) FOR BIT DATA")
+  private UUID id;
+
+  @NonNull
+  @CreationTimestamp
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false, updatable = false)
+  private Date created;
+
+  @NonNull
+  @UpdateTimestamp
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false)
+  private Date updated;
+
+  @Column(length = 100)
+  private String title;
+
+  @Column(length = 1024)
+  private String description;
+
+  @NonNull
+  @Column(nullable = false, updatable = false)
+  private String name;
+
+  @NonNull
+  @Column(nullable = false, updatable = false)
+  private String contentType;
+
+  @Positive
+  @Column(nullable = false, updatable = false)
+  private long length;
+
+  @Column(nullable = false)
+  private long received;
+
+  @NonNull
+  @Column(nullable = false, updatable = false)
+  @JsonIgnore
+  private String staged;
+
+  @NonNull
+  @ManyToOne(fetch = FetchType.EAGER, optional = false)
+  @JoinColumn(name = "contributor_id", nullable = false, updatable = false)
+  @JsonIgnore
+  private User contributor;
+
+  /**
+   * Returns the unique identifier of this session.
+   */
+  @NonNull
+  public UUID getId() {
+    return id;
+  }
+
+  /**
+   * Returns the datetime this session was first persisted to the database.
+   */
+  @NonNull
+  public Date getCreated() {
+    return created;
+  }
+
+  /**
+   * Returns the datetime this session was most recently updated (i.e. when the most recent chunk
+   * was received) in the database.
+   */
+  @NonNull
+  public Date getUpdated() {
+    return updated;
+  }
+
+  /**
+   * Returns the title of the image to be created when this session is finalized.
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Sets the title of the image to be created when this session is finalized.
+   */
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  /**
+   * Returns the description of the image to be created when this session is finalized.
+   */
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Sets the description of the image to be created when this session is finalized.
+   */
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  /**
+   * Returns the original filename of the uploaded content.
+   */
+  @NonNull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Sets the original filename of the uploaded content.
+   */
+  public void setName(@NonNull String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the MIME type of the uploaded content.
+   */
+  @NonNull
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Sets the MIME type of the uploaded content.
+   */
+  public void setContentType(@NonNull String contentType) {
+    this.contentType = contentType;
+  }
+
+  /**
+   * Returns the total length (in bytes) of the content to be uploaded in this session.
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Sets the total length (in bytes) of the content to be uploaded in this session.
+   */
+  public void setLength(long length) {
+    this.length = length;
+  }
+
+  /**
+   * Returns the number of bytes received so far; this is the offset at which the next chunk must
+   * start.
+   */
+  public long getReceived() {
+    return received;
+  }
+
+  /**
+   * Sets the number of bytes received so far.
+   */
+  public void setReceived(long received) {
+    this.received = received;
+  }
+
+  /**
+   * Returns the opaque staging reference to the content uploaded so far.
+   */
+  @NonNull
+  public String getStaged() {
+    return staged;
+  }
+
+  /**
+   * Sets the opaque staging reference to the content uploaded so far.
+   */
+  public void setStaged(@NonNull String staged) {
+    this.staged = staged;
+  }
+
+  /**
+   * Returns the {@link User} that created this session.
+   */
+  @NonNull
+  public User getContributor() {
+    return contributor;
+  }
+
+  /**
+   * Sets the {@link User} that created this session.
+   */
+  public void setContributor(@NonNull User contributor) {
+    this.contributor = contributor;
+  }
+
+  /**
+   * Returns the location of REST resource representation of this session.
+   */
+  public URI getHref() {
+    //noinspection ConstantConditions
+    return (id != null) ? entityLinks.linkForItemResource(UploadSession.class, id).toUri() : null;
+  }
+
+  @PostConstruct
+  private void initHateoas() {
+    //noinspection ResultOfMethodCallIgnored
+    entityLinks.toString();
+  }
+
+  /**
+   * Injects the {@link EntityLinks} required for constructing the REST resource location of a
+   * session.
+   */
+  @Autowired
+  public void setEntityLinks(
+      @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EntityLinks entityLinks) {
+    UploadSession.entityLinks = entityLinks;
+  }
+
+}
@@ -21,23 +21,23 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import edu.cnm.deepdive.gallery.configuration.TimeOrderedUuidGenerator;
 import java.net.URI;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.Index;
-import javax.persistence.OneToMany;
-import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -51,6 +51,8 @@ import org.springframework.stereotype.Component;
  */
 @SuppressWarnings("JpaDataSourceORMInspection")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(
     name = "user_profile",
     indexes = {
@@ -60,10 +62,10 @@ import org.springframework.stereotype.Component;
 )
 @JsonInclude(Include.NON_NULL)
 @JsonIgnoreProperties(
-    value = {"id", "created", "updated", "href"},
+    value = {"id", "created", "updated", "imageCount", "href"},
     allowGetters = true, ignoreUnknown = true
 )
-@JsonPropertyOrder({"id", "displayName", "href", "created", "updated"})
+@JsonPropertyOrder({"id", "displayName", "href", "created", "updated", "imageCount"})
 @Component
 public class User implements Comparable<User> {
 
@@ -74,8 +76,8 @@ public class User implements Comparable<User> {
 
   @NonNull
   @Id
-  @GeneratedValue(generator = "uuid2")
-  @GenericGenerator(name = "uuid2", strategy = "uuid2")
+  @GeneratedValue(generator = "uuid7")
+  @GenericGenerator(name = "uuid7", strategy = TimeOrderedUuidGenerator.STRATEGY)
   @Column(name = "user_id", nullable = false, updatable = false,
       columnDefinition = "CHAR(16) FOR BIT DATA")
   private UUID id;
@@ -102,11 +104,9 @@ public class User implements Comparable<User> {
   @JsonProperty("name")
   private String displayName;
 
-  @NonNull
-  @OneToMany(mappedBy = "contributor")
-  @OrderBy("created DESC")
-  @JsonIgnore
-  private final List<Image> images = new LinkedList<>();
+  @Column(nullable = false, insertable = false, updatable = false,
+      columnDefinition = "INTEGER DEFAULT 0 NOT NULL")
+  private int imageCount;
 
   /**
    * Returns the unique identifier of this user.
@@ -163,11 +163,12 @@ public class User implements Comparable<User> {
   }
 
   /**
-   * Returns the {@link List List&lt;Image&gt;} contributed by this user, in descending date order.
+   * Returns the number of images contributed by this user. This is maintained by atomic updates in
+   * the database as images are stored and deleted (never written from this instance), so it may
+   * lag behind the actual count in an instance loaded before the most recent of those updates.
    */
-  @NonNull
-  public List<Image> getImages() {
-    return images;
+  public int getImageCount() {
+    return imageCount;
   }
 
   /**
@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import org.springframework.lang.NonNull;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * Decorates a {@link JwtDecoder}, caching successfully decoded and validated tokens, so that a
+ * token presented repeatedly has its signature verified (and claims validated) only once. Cached
+ * tokens are keyed by the SHA-256 hash of the encoded token, and expire from the cache no later
+ * than the expiration time ({@code exp} claim) of the token itself. Tokens without an expiration
+ * time are never cached; tokens rejected by the delegate are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+
+  private final JwtDecoder delegate;
+  private final Cache<String, Jwt> cache;
+
+  /**
+   * Initializes this instance with the decoder used to verify and validate tokens not in the
+   * cache, and the maximum number of tokens to hold in the cache.
+   *
+   * @param delegate     Verifying decoder.
+   * @param maximumSize  Maximum number of cached tokens.
+   */
+  public CachingJwtDecoder(@NonNull JwtDecoder delegate, long maximumSize) {
+    this.delegate = delegate;
+    cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new TokenExpiry())
+        .build();
+  }
+
+  @Override
+  public Jwt decode(String token) throws JwtException {
+    String key = hash(token);
+    Jwt jwt = cache.getIfPresent(key);
+    if (jwt == null || !isUnexpired(jwt)) {
+      jwt = delegate.decode(token);
+      if (isUnexpired(jwt)) {
+        cache.put(key, jwt);
+      }
+    }
+    return jwt;
+  }
+
+  private static boolean isUnexpired(Jwt jwt) {
+    Instant expiresAt = jwt.getExpiresAt();
+    return expiresAt != null && expiresAt.isAfter(Instant.now());
+  }
+
+  private static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+      return Base64.getEncoder().encodeToString(
+          digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // SHA-256 support is required of every JVM.
+    }
+  }
+
+  private static class TokenExpiry implements Expiry<String, Jwt> {
+
+    @Override
+    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+      Instant expiresAt = jwt.getExpiresAt();
+      return (expiresAt != null)
+          ? Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos())
+          : 0;
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, jwt, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Detects the MIME type of image content from its leading bytes (its "magic number"), for the BMP,
+ * GIF, JPEG, PNG, and TIFF formats. Only the first {@link #SIGNATURE_LENGTH} bytes of the content
+ * are examined, so detection can be performed on a stream before the remainder of the content has
+ * been read.
+ */
+@Component
+public class ContentSniffer {
+
+  /**
+   * Number of leading bytes examined when detecting the MIME type of content.
+   */
+  public static final int SIGNATURE_LENGTH = 8;
+
+  private static final Map<String, List<byte[]>> SIGNATURES = new LinkedHashMap<>();
+  private static final Map<String, String> ALIASES = Map.of("image/pjpeg", "image/jpeg");
+
+  static {
+    SIGNATURES.put("image/png", List.of(
+        new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'}));
+    SIGNATURES.put("image/jpeg", List.of(new byte[]{(byte) 0xff, (byte) 0xd8, (byte) 0xff}));
+    SIGNATURES.put("image/gif", List.of(
+        "GIF87a".getBytes(StandardCharsets.US_ASCII),
+        "GIF89a".getBytes(StandardCharsets.US_ASCII)));
+    SIGNATURES.put("image/tiff", List.of(
+        new byte[]{'I', 'I', 0x2a, 0x00},
+        new byte[]{'M', 'M', 0x00, 0x2a}));
+    SIGNATURES.put("image/bmp", List.of(new byte[]{'B', 'M'}));
+  }
+
+  /**
+   * Returns the MIME type indicated by the leading bytes of content, or {@code null} if those bytes
+   * don't match the signature of any supported format.
+   *
+   * @param header Leading bytes of the content.
+   * @param length Number of valid bytes in {@code header} (which may be fewer than {@link
+   *               #SIGNATURE_LENGTH}, if the content is very short).
+   * @return Detected MIME type, or {@code null}.
+   */
+  public String detect(@NonNull byte[] header, int length) {
+    for (Map.Entry<String, List<byte[]>> entry : SIGNATURES.entrySet()) {
+      for (byte[] signature : entry.getValue()) {
+        if (startsWith(header, length, signature)) {
+          return entry.getKey();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the MIME type indicated by the leading bytes read from {@code input}, or {@code null} if
+   * those bytes don't match the signature of any supported format. The bytes are not consumed:
+   * {@code input} is reset to its original position before this method returns.
+   *
+   * @param input Source of content; this must support {@link InputStream#mark(int)}.
+   * @return Detected MIME type, or {@code null}.
+   * @throws IOException If {@code input} cannot be read or reset.
+   */
+  public String detect(@NonNull InputStream input) throws IOException {
+    input.mark(SIGNATURE_LENGTH);
+    byte[] header = input.readNBytes(SIGNATURE_LENGTH);
+    input.reset();
+    return detect(header, header.length);
+  }
+
+  /**
+   * Returns a flag indicating whether a MIME type declared by a client is compatible with the MIME
+   * type detected from the content. A declared type is compatible if it is equal to the detected
+   * type, or is an alias of it (e.g. {@code image/pjpeg} for {@code image/jpeg}); a missing or
+   * generic ({@code application/octet-stream}) declared type is compatible with any detected type.
+   *
+   * @param declared MIME type declared by a client (may be {@code null}).
+   * @param detected MIME type detected from the content (may be {@code null}).
+   * @return {@code true} if {@code detected} is not {@code null}, and is compatible with {@code
+   * declared}; {@code false} otherwise.
+   */
+  public boolean isCompatible(String declared, String detected) {
+    return detected != null
+        && (declared == null
+        || declared.equals(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        || detected.equals(ALIASES.getOrDefault(declared, declared)));
+  }
+
+  private boolean startsWith(byte[] header, int length, byte[] signature) {
+    if (length < signature.length) {
+      return false;
+    }
+    for (int i = 0; i < signature.length; i++) {
+      if (header[i] != signature[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+/**
+ * Checked exception thrown by {@link StorageService} (and the services built on it) when uploaded
+ * content, or its declared length, exceeds the applicable size limit. This is distinct from {@link
+ * IllegalArgumentException}, so that a caller can report the condition to the client as such,
+ * without also doing so for unrelated programming errors.
+ */
+public class ContentTooLargeException extends Exception {
+
+  /**
+   * Initializes this instance with the specified detail message.
+   *
+   * @param message Description of the limit exceeded.
+   */
+  public ContentTooLargeException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.DerivativeProperties;
+import edu.cnm.deepdive.gallery.model.dao.DerivativeTaskRepository;
+import edu.cnm.deepdive.gallery.model.entity.DerivativeTask;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.service.ImageScaler.Fit;
+import edu.cnm.deepdive.gallery.service.ImageScaler.OutputFormat;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generates, stores, and retrieves resized derivatives of stored images, in the sizes specified by
+ * the {@code upload.derivatives.sizes} application property. Generation is performed
+ * asynchronously, by a fixed-size pool of worker threads fed from a bounded in-memory queue; pending
+ * work is recorded as {@link DerivativeTask} instances in the database, so that tasks that don't fit
+ * in the in-memory queue (or are interrupted by an application restart) are picked up by a periodic
+ * sweep of the database.
+ * <p>Since derivatives depend only on the stored content, they are keyed by the opaque storage
+ * reference, rather than by {@link Image}; thus, images sharing the same stored content also share
+ * the same derivatives.</p>
+ */
+@Service
+public class DerivativeService {
+
+  private static final Logger logger = LoggerFactory.getLogger(DerivativeService.class);
+
+  private static final String WORKER_THREAD_PREFIX = "derivative-";
+  private static final String DERIVATIVE_FILENAME_FORMAT = "%s.%s";
+  private static final String GENERATION_FAILURE_FORMAT =
+      "Unable to generate derivatives of %s (attempt %d)";
+
+  private final DerivativeTaskRepository taskRepository;
+  private final StorageService storageService;
+  private final ImageScaler scaler;
+  private final Map<String, Integer> sizes;
+  private final int largestSize;
+  private final int queueCapacity;
+  private final int maxAttempts;
+  private final Path derivativeDirectory;
+  private final ThreadPoolExecutor executor;
+  private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Initializes this instance with the collaborators used to persist tasks, read stored content,
+   * and scale images, along with the configuration of derivative sizes and generation resources.
+   *
+   * @param taskRepository      Spring Data repository providing CRUD operations on {@link
+   *                            DerivativeTask} instances.
+   * @param storageService      File store containing original images.
+   * @param scaler              Image decoder, scaler, and encoder.
+   * @param uploadConfiguration Configuration object read from application properties.
+   * @param applicationHome     Application location context.
+   */
+  @Autowired
+  public DerivativeService(DerivativeTaskRepository taskRepository, StorageService storageService,
+      ImageScaler scaler, UploadConfiguration uploadConfiguration,
+      ApplicationHome applicationHome) {
+    this.taskRepository = taskRepository;
+    this.storageService = storageService;
+    this.scaler = scaler;
+    DerivativeProperties properties = uploadConfiguration.getDerivatives();
+    sizes = Collections.unmodifiableMap(new LinkedHashMap<>(properties.getSizes()));
+    largestSize = sizes.values().stream()
+        .mapToInt(Integer::intValue)
+        .max()
+        .orElse(0);
+    queueCapacity = properties.getQueueCapacity();
+    maxAttempts = properties.getMaxAttempts();
+    String derivativePath = properties.getDirectory();
+    derivativeDirectory = uploadConfiguration.isApplicationHome()
+        ? applicationHome.getDir().toPath().resolve(derivativePath)
+        : Path.of(derivativePath);
+    //noinspection ResultOfMethodCallIgnored
+    derivativeDirectory.toFile().mkdirs();
+    executor = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+        0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        new CustomizableThreadFactory(WORKER_THREAD_PREFIX));
+  }
+
+  /**
+   * Returns a flag indicating whether {@code size} is the name of a configured derivative size.
+   *
+   * @param size Derivative size name.
+   * @return {@code true} if derivatives are generated in the named size; {@code false} otherwise.
+   */
+  public boolean isSupported(@NonNull String size) {
+    return sizes.containsKey(size);
+  }
+
+  /**
+   * Records a task for generation of the derivatives of {@code image}, and submits it for
+   * asynchronous execution. If the in-memory queue is full, the task will be executed after a
+   * subsequent sweep of the database.
+   *
+   * @param image Newly stored image.
+   */
+  public void schedule(@NonNull Image image) {
+    if (!sizes.isEmpty()) {
+      DerivativeTask task = new DerivativeTask();
+      task.setPath(image.getPath());
+      task.setContentType(image.getContentType());
+      submit(taskRepository.save(task));
+    }
+  }
+
+  /**
+   * Returns the named derivative of {@code image}, if it has been generated.
+   *
+   * @param image {@link Image} whose derivative is requested.
+   * @param size  Derivative size name.
+   * @return {@link Optional} containing the derivative, if it exists; otherwise, an empty {@link
+   * Optional}.
+   */
+  public Optional<Resource> retrieve(@NonNull Image image, @NonNull String size) {
+    Path file = isSupported(size)
+        ? resolve(image.getPath(), size, getFormat(image))
+        : null;
+    return (file != null && Files.exists(file))
+        ? Optional.of(new FileSystemResource(file))
+        : Optional.empty();
+  }
+
+  /**
+   * Returns the format in which derivatives of {@code image} are encoded.
+   *
+   * @param image {@link Image} whose derivatives are requested.
+   * @return Derivative format, including MIME type.
+   */
+  @NonNull
+  public OutputFormat getFormat(@NonNull Image image) {
+    return OutputFormat.forContentType(image.getContentType());
+  }
+
+  /**
+   * Deletes all derivatives generated from the stored content referenced by {@code reference}.
+   *
+   * @param reference Opaque reference to stored content.
+   * @throws IOException If a derivative file exists but cannot be deleted.
+   */
+  public void delete(@NonNull String reference) throws IOException {
+    for (String size : sizes.keySet()) {
+      for (OutputFormat format : OutputFormat.values()) {
+        Files.deleteIfExists(resolve(reference, size, format));
+      }
+    }
+  }
+
+  /**
+   * Submits pending tasks from the database for execution, up to the capacity of the in-memory
+   * queue. This is invoked on application startup and periodically thereafter, to resume work
+   * interrupted by a restart or deferred because the queue was full.
+   */
+  @Scheduled(fixedDelayString = "#{@uploadConfiguration.derivatives.sweepInterval.toMillis()}")
+  public void sweep() {
+    if (!sizes.isEmpty() && executor.getQueue().remainingCapacity() > 0) {
+      taskRepository.getAllByOrderByCreatedAsc(PageRequest.of(0, queueCapacity))
+          .forEach(this::submit);
+    }
+  }
+
+  /**
+   * Stops the worker threads. Tasks not yet completed remain in the database, and will be resumed
+   * on the next application startup.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void submit(DerivativeTask task) {
+    if (queued.add(task.getId())) {
+      try {
+        executor.execute(() -> process(task));
+      } catch (RejectedExecutionException e) {
+        queued.remove(task.getId()); // Leave it in the database for a subsequent sweep.
+      }
+    }
+  }
+
+  private void process(DerivativeTask task) {
+    try {
+      generate(task);
+      taskRepository.delete(task);
+    } catch (IOException | RuntimeException e) {
+      task.setAttempts(task.getAttempts() + 1);
+      logger.warn(String.format(GENERATION_FAILURE_FORMAT, task.getPath(), task.getAttempts()), e);
+      if (task.getAttempts() >= maxAttempts) {
+        taskRepository.delete(task);
+      } else {
+        taskRepository.save(task);
+      }
+    } finally {
+      queued.remove(task.getId());
+    }
+  }
+
+  private void generate(DerivativeTask task) throws IOException {
+    Resource source = storageService.retrieve(task.getPath());
+    if (source.exists()) { // Otherwise, the content was deleted before the task was executed.
+      OutputFormat format = OutputFormat.forContentType(task.getContentType());
+      BufferedImage image = null;
+      for (Map.Entry<String, Integer> entry : sizes.entrySet()) {
+        Path target = resolve(task.getPath(), entry.getKey(), format);
+        if (!Files.exists(target)) {
+          if (image == null) {
+            image = scaler.read(source, largestSize, largestSize);
+          }
+          int size = entry.getValue();
+          scaler.write(scaler.scale(image, size, size, Fit.CONTAIN, format), format, target);
+        }
+      }
+    }
+  }
+
+  private Path resolve(String reference, String size, OutputFormat format) {
+    return derivativeDirectory
+        .resolve(size)
+        .resolve(String.format(DERIVATIVE_FILENAME_FORMAT, reference, format.getExtension()));
+  }
+
+}
@@ -0,0 +1,323 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates filenames for the file store, and the subdirectory paths into which files are
+ * organized, as specified by the {@code upload.filename.*} and {@code upload.subdirectory-pattern}
+ * application properties. All methods are thread-safe and lock-free.
+ * <p>Each generated name combines a timestamp (formatted at most once per millisecond, and shared
+ * by all threads generating names in that millisecond) with a numeric value in the range {@code
+ * [0, randomizerLimit)}. Within a millisecond, these values are assigned sequentially from a random
+ * starting point, so no two names generated by one instance are the same. When all {@code
+ * randomizerLimit} values of a millisecond have been assigned, generation proceeds immediately
+ * with the following millisecond, without waiting for the clock to reach it; similarly, if the
+ * clock moves backward, the most recent millisecond (and its successors) continue to be used, so
+ * that timestamps never decrease. Simple filename formats and subdirectory patterns (consisting
+ * only of positional {@code %s}/{@code %d} specifiers, and of fixed-width capture groups,
+ * respectively) are evaluated directly; others fall back to {@link String#format(String,
+ * Object...)} and {@link Matcher}.</p>
+ */
+@Component
+public class FilenameGenerator {
+
+  private static final String PATH_DELIMITER = "/";
+  private static final Pattern FORMAT_SPECIFIER = Pattern.compile("%(?:(\\d)\\$)?([sd%n])");
+  private static final Pattern FIXED_WIDTH_SUBDIRECTORY_PATTERN =
+      Pattern.compile("^\\^?((?:\\(\\.\\{\\d+}\\))+)\\.\\*\\$?$");
+  private static final Pattern FIXED_WIDTH_GROUP = Pattern.compile("\\(\\.\\{(\\d+)}\\)");
+  private static final int TIMESTAMP_ARGUMENT = 1;
+  private static final int RANDOM_ARGUMENT = 2;
+  private static final int EXTENSION_ARGUMENT = 3;
+
+  private final DateTimeFormatter formatter;
+  private final int randomizerLimit;
+  private final String filenameFormat;
+  private final Object[] template;
+  private final Pattern subdirectoryPattern;
+  private final int[] subdirectoryWidths;
+  private final AtomicReference<Tick> tick = new AtomicReference<>(new Tick(Long.MIN_VALUE, null));
+
+  /**
+   * Initializes this instance with the filename and subdirectory settings of the specified
+   * configuration object.
+   *
+   * @param uploadConfiguration Configuration object read from application properties.
+   */
+  @Autowired
+  public FilenameGenerator(UploadConfiguration uploadConfiguration) {
+    FilenameProperties filenameProperties = uploadConfiguration.getFilename();
+    TimestampProperties timestampProperties = filenameProperties.getTimestamp();
+    formatter = DateTimeFormatter
+        .ofPattern(timestampProperties.getFormat())
+        .withZone(timestampProperties.getTimeZone().toZoneId());
+    randomizerLimit = filenameProperties.getRandomizerLimit();
+    filenameFormat = filenameProperties.getFormat();
+    template = compileTemplate(filenameFormat);
+    subdirectoryPattern = uploadConfiguration.getSubdirectoryPattern();
+    subdirectoryWidths = compileSubdirectoryWidths(subdirectoryPattern);
+  }
+
+  /**
+   * Generates and returns a filename, unique among those generated by this instance, with the
+   * specified extension.
+   *
+   * @param extension Filename extension (without the leading period).
+   * @return Generated filename.
+   */
+  @NonNull
+  public String generate(@NonNull String extension) {
+    Tick current = currentTick();
+    int sequence;
+    while ((sequence = current.claim(randomizerLimit)) < 0) {
+      current = nextTick(current); // Exhausted this millisecond's values; move on logically.
+    }
+    int value = (int) ((current.offset + (long) sequence) % randomizerLimit);
+    return (template != null)
+        ? applyTemplate(current.timestamp, value, extension)
+        : String.format(filenameFormat, current.timestamp, value, extension);
+  }
+
+  /**
+   * Returns the subdirectory path (with components delimited by {@code "/"}) for the specified
+   * filename, composed of the groups captured by the configured subdirectory pattern. If the
+   * pattern does not match, an empty string is returned.
+   *
+   * @param filename Name of file to be stored.
+   * @return Subdirectory path.
+   */
+  @NonNull
+  public String getSubdirectory(@NonNull String filename) {
+    return (subdirectoryWidths != null && isSingleLine(filename))
+        ? sliceSubdirectory(filename)
+        : matchSubdirectory(filename);
+  }
+
+  /**
+   * Returns the extension (without the leading period) of the specified filename, or an empty
+   * string if {@code filename} has no extension.
+   *
+   * @param filename Original filename.
+   * @return Filename extension.
+   */
+  @NonNull
+  public String getExtension(@NonNull String filename) {
+    int position;
+    return ((position = filename.lastIndexOf('.')) >= 0) ? filename.substring(position + 1) : "";
+  }
+
+  private Tick currentTick() {
+    long now = System.currentTimeMillis();
+    Tick current = tick.get();
+    while (now > current.millis) { // If the clock moves backward, keep using the current tick.
+      current = advance(current, now);
+    }
+    return current;
+  }
+
+  private Tick nextTick(Tick exhausted) {
+    Tick current = tick.get();
+    return (current == exhausted) ? advance(exhausted, exhausted.millis + 1) : current;
+  }
+
+  /**
+   * Replaces {@code current} with a new tick for {@code millis}, returning the new tick; if {@code
+   * current} has already been replaced by another thread, the replacement is returned instead.
+   * Since a tick is only ever replaced by one with a later millisecond, the returned tick is always
+   * later than {@code current}.
+   */
+  private Tick advance(Tick current, long millis) {
+    Tick next = new Tick(millis, formatter.format(Instant.ofEpochMilli(millis)));
+    return tick.compareAndSet(current, next) ? next : tick.get();
+  }
+
+  private String applyTemplate(String timestamp, int value, String extension) {
+    StringBuilder builder = new StringBuilder(
+        timestamp.length() + extension.length() + 16);
+    for (Object element : template) {
+      if (element instanceof String) {
+        builder.append((String) element);
+      } else {
+        switch ((Integer) element) {
+          case TIMESTAMP_ARGUMENT:
+            builder.append(timestamp);
+            break;
+          case RANDOM_ARGUMENT:
+            builder.append(value);
+            break;
+          default:
+            builder.append(extension);
+            break;
+        }
+      }
+    }
+    return builder.toString();
+  }
+
+  private String sliceSubdirectory(String filename) {
+    StringBuilder builder = new StringBuilder(2 * subdirectoryWidths.length + filename.length());
+    int position = 0;
+    for (int width : subdirectoryWidths) {
+      if (position + width > filename.length()) {
+        return "";
+      }
+      if (position > 0) {
+        builder.append(PATH_DELIMITER);
+      }
+      builder.append(filename, position, position + width);
+      position += width;
+    }
+    return builder.toString();
+  }
+
+  private String matchSubdirectory(String filename) {
+    Matcher matcher = subdirectoryPattern.matcher(filename);
+    if (!matcher.matches()) {
+      return "";
+    }
+    StringBuilder builder = new StringBuilder();
+    for (int i = 1; i <= matcher.groupCount(); i++) {
+      if (i > 1) {
+        builder.append(PATH_DELIMITER);
+      }
+      builder.append(matcher.group(i));
+    }
+    return builder.toString();
+  }
+
+  private static boolean isSingleLine(String filename) {
+    for (int i = 0; i < filename.length(); i++) {
+      char c = filename.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the sequence of literal strings and (1-based) argument indices corresponding to {@code
+   * format}, or {@code null} if {@code format} uses any features beyond plain {@code %s} and {@code
+   * %d} specifiers (with optional explicit indices), {@code %%}, and {@code %n}.
+   */
+  private static Object[] compileTemplate(String format) {
+    List<Object> elements = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    Matcher matcher = FORMAT_SPECIFIER.matcher(format);
+    int position = 0;
+    int ordinal = 0;
+    while (position < format.length()) {
+      int percent = format.indexOf('%', position);
+      if (percent < 0) {
+        literal.append(format, position, format.length());
+        break;
+      }
+      literal.append(format, position, percent);
+      if (!matcher.find(percent) || matcher.start() != percent) {
+        return null;
+      }
+      String conversion = matcher.group(2);
+      if (conversion.equals("%") || conversion.equals("n")) {
+        if (matcher.group(1) != null) {
+          return null;
+        }
+        literal.append(conversion.equals("%") ? "%" : System.lineSeparator());
+      } else {
+        int index = (matcher.group(1) != null) ? Integer.parseInt(matcher.group(1)) : ++ordinal;
+        if (index < TIMESTAMP_ARGUMENT || index > EXTENSION_ARGUMENT
+            || (conversion.equals("d") != (index == RANDOM_ARGUMENT))) {
+          return null;
+        }
+        if (literal.length() > 0) {
+          elements.add(literal.toString());
+          literal.setLength(0);
+        }
+        elements.add(index);
+      }
+      position = matcher.end();
+    }
+    if (literal.length() > 0) {
+      elements.add(literal.toString());
+    }
+    return elements.toArray();
+  }
+
+  /**
+   * Returns the widths of the capture groups in {@code pattern}, if it consists only of fixed-width
+   * groups of any characters (e.g. {@code ^(.{4})(.{2})(.{2}).*$}), or {@code null} otherwise.
+   */
+  private static int[] compileSubdirectoryWidths(Pattern pattern) {
+    if (pattern.flags() != 0) {
+      return null;
+    }
+    Matcher matcher = FIXED_WIDTH_SUBDIRECTORY_PATTERN.matcher(pattern.pattern());
+    if (!matcher.matches()) {
+      return null;
+    }
+    return FIXED_WIDTH_GROUP.matcher(matcher.group(1))
+        .results()
+        .mapToInt((result) -> Integer.parseInt(result.group(1)))
+        .toArray();
+  }
+
+  private static class Tick {
+
+    private final long millis;
+    private final String timestamp;
+    private final int offset;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private Tick(long millis, String timestamp) {
+      this.millis = millis;
+      this.timestamp = timestamp;
+      offset = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Claims and returns the next sequence number of this tick, or returns -1 if all {@code limit}
+     * sequence numbers have been claimed. The counter never exceeds {@code limit}, so it cannot
+     * overflow, however many threads attempt to claim a sequence number.
+     */
+    private int claim(int limit) {
+      int claimed;
+      do {
+        claimed = sequence.get();
+        if (claimed >= limit) {
+          return -1;
+        }
+      } while (!sequence.compareAndSet(claimed, claimed + 1));
+      return claimed;
+    }
+
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the dimensions, EXIF orientation, capture datetime, and size of image content, without
+ * decoding the image pixels. Dimensions are read from the image header by an {@link ImageIO}
+ * reader; orientation and capture datetime are read from the EXIF metadata (if any) of JPEG and
+ * TIFF content. Metadata that is missing or malformed is simply not set.
+ */
+@Component
+public class ImageMetadataReader {
+
+  private static final String JPEG_CONTENT_TYPE = "image/jpeg";
+  private static final String TIFF_CONTENT_TYPE = "image/tiff";
+  private static final int JPEG_SOI = 0xffd8;
+  private static final int JPEG_APP1 = 0xffe1;
+  private static final int JPEG_SOS = 0xffda;
+  private static final int JPEG_EOI = 0xffd9;
+  private static final int JPEG_MARKER_MASK = 0xff00;
+  private static final byte[] EXIF_IDENTIFIER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+  private static final short TIFF_LITTLE_ENDIAN = 0x4949;
+  private static final short TIFF_BIG_ENDIAN = 0x4d4d;
+  private static final int TIFF_MAGIC = 42;
+  private static final int IFD_ENTRY_LENGTH = 12;
+  private static final int TAG_ORIENTATION = 0x0112;
+  private static final int TAG_EXIF_IFD = 0x8769;
+  private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+  private static final int TAG_OFFSET_TIME_ORIGINAL = 0x9011;
+  private static final int MIN_ORIENTATION = 1;
+  private static final int MAX_ORIENTATION = 8;
+  private static final DateTimeFormatter EXIF_DATE_TIME_FORMATTER =
+      DateTimeFormatter.ofPattern("uuuu:MM:dd HH:mm:ss");
+
+  /**
+   * Reads the metadata of {@code resource}, setting the corresponding properties of {@code image}.
+   *
+   * @param resource    Image content.
+   * @param contentType MIME type of {@code resource} (as detected from the content).
+   * @param image       {@link Image} to be updated.
+   * @throws IOException If the content cannot be read.
+   */
+  public void read(@NonNull Resource resource, @NonNull String contentType, @NonNull Image image)
+      throws IOException {
+    image.setContentLength(resource.contentLength());
+    readDimensions(resource, image);
+    ByteBuffer exif = null;
+    if (contentType.equals(JPEG_CONTENT_TYPE)) {
+      exif = findJpegExif(resource);
+    } else if (contentType.equals(TIFF_CONTENT_TYPE) && resource.isFile()) {
+      try (FileChannel channel =
+          FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+        exif = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      }
+    }
+    if (exif != null) {
+      try {
+        readExif(exif, image);
+      } catch (RuntimeException e) {
+        // Malformed EXIF metadata; keep whatever was read before the error.
+      }
+    }
+  }
+
+  private void readDimensions(Resource resource, Image image) throws IOException {
+    Object source = resource.isFile() ? resource.getFile() : resource.getInputStream();
+    try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+      Iterator<ImageReader> readers = (input != null)
+          ? ImageIO.getImageReaders(input)
+          : Collections.emptyIterator();
+      if (readers.hasNext()) {
+        ImageReader reader = readers.next();
+        try {
+          reader.setInput(input, true, true);
+          int width = reader.getWidth(0);
+          int height = reader.getHeight(0);
+          image.setWidth(width);
+          image.setHeight(height);
+        } catch (IIOException | RuntimeException e) {
+          // Malformed header (which some readers report with unchecked exceptions); leave
+          // dimensions unset.
+        } finally {
+          reader.dispose();
+        }
+      }
+    }
+  }
+
+  /**
+   * Scans the JPEG segments preceding the image data for an EXIF {@code APP1} segment, returning
+   * the TIFF structure it contains, or {@code null} if there is none.
+   */
+  private ByteBuffer findJpegExif(Resource resource) throws IOException {
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(resource.getInputStream()))) {
+      if (input.readUnsignedShort() != JPEG_SOI) {
+        return null;
+      }
+      int marker;
+      while ((marker = input.readUnsignedShort()) != JPEG_SOS
+          && marker != JPEG_EOI
+          && (marker & JPEG_MARKER_MASK) == JPEG_MARKER_MASK) {
+        int length = input.readUnsignedShort() - Short.BYTES;
+        if (marker == JPEG_APP1 && length > EXIF_IDENTIFIER.length) {
+          byte[] segment = input.readNBytes(length);
+          if (segment.length == length && Arrays.equals(segment, 0, EXIF_IDENTIFIER.length,
+              EXIF_IDENTIFIER, 0, EXIF_IDENTIFIER.length)) {
+            return ByteBuffer.wrap(segment, EXIF_IDENTIFIER.length,
+                length - EXIF_IDENTIFIER.length).slice();
+          }
+        } else {
+          skipFully(input, length);
+        }
+      }
+    } catch (EOFException e) {
+      // Truncated content; no EXIF metadata.
+    }
+    return null;
+  }
+
+  private void readExif(ByteBuffer tiff, Image image) {
+    short byteOrder = tiff.getShort(0);
+    if (byteOrder == TIFF_LITTLE_ENDIAN) {
+      tiff.order(ByteOrder.LITTLE_ENDIAN);
+    } else if (byteOrder == TIFF_BIG_ENDIAN) {
+      tiff.order(ByteOrder.BIG_ENDIAN);
+    } else {
+      return;
+    }
+    if (tiff.getShort(2) != TIFF_MAGIC) {
+      return;
+    }
+    int exifOffset = 0;
+    int ifd = tiff.getInt(4);
+    for (int entry = ifd + Short.BYTES, end = entry + IFD_ENTRY_LENGTH * unsignedShort(tiff, ifd);
+        entry < end; entry += IFD_ENTRY_LENGTH) {
+      int tag = unsignedShort(tiff, entry);
+      if (tag == TAG_ORIENTATION) {
+        int orientation = unsignedShort(tiff, entry + 8);
+        if (orientation >= MIN_ORIENTATION && orientation <= MAX_ORIENTATION) {
+          image.setOrientation(orientation);
+        }
+      } else if (tag == TAG_EXIF_IFD) {
+        exifOffset = tiff.getInt(entry + 8);
+      }
+    }
+    if (exifOffset > 0) {
+      String dateTime = null;
+      String offsetTime = null;
+      for (int entry = exifOffset + Short.BYTES,
+          end = entry + IFD_ENTRY_LENGTH * unsignedShort(tiff, exifOffset);
+          entry < end; entry += IFD_ENTRY_LENGTH) {
+        int tag = unsignedShort(tiff, entry);
+        if (tag == TAG_DATE_TIME_ORIGINAL) {
+          dateTime = ascii(tiff, entry);
+        } else if (tag == TAG_OFFSET_TIME_ORIGINAL) {
+          offsetTime = ascii(tiff, entry);
+        }
+      }
+      image.setCaptured(parseDateTime(dateTime, offsetTime));
+    }
+  }
+
+  private int unsignedShort(ByteBuffer buffer, int index) {
+    return Short.toUnsignedInt(buffer.getShort(index));
+  }
+
+  /**
+   * Returns the ASCII value of the specified IFD entry, or {@code null} if the count or offset of
+   * the value (both read from the content, and thus untrusted) place it outside {@code tiff}.
+   */
+  private String ascii(ByteBuffer tiff, int entry) {
+    int count = tiff.getInt(entry + 4);
+    int offset = (count <= Integer.BYTES) ? entry + 8 : tiff.getInt(entry + 8);
+    if (count < 1 || offset < 0 || offset > tiff.limit() - count) {
+      return null;
+    }
+    byte[] bytes = new byte[count - 1]; // Exclude terminating NUL.
+    tiff.duplicate().position(offset).get(bytes);
+    return new String(bytes, StandardCharsets.US_ASCII).trim();
+  }
+
+  /**
+   * Parses an EXIF datetime, in the offset specified by {@code offsetTime} if that is valid, or in
+   * UTC otherwise. If {@code dateTime} is missing or malformed (including the "unknown" value,
+   * {@code 0000:00:00 00:00:00}), {@code null} is returned.
+   */
+  private Date parseDateTime(String dateTime, String offsetTime) {
+    Date parsed = null;
+    if (dateTime != null) {
+      try {
+        LocalDateTime local = LocalDateTime.parse(dateTime, EXIF_DATE_TIME_FORMATTER);
+        parsed = Date.from(OffsetDateTime.of(local, parseOffset(offsetTime)).toInstant());
+      } catch (DateTimeParseException e) {
+        // Leave unset.
+      }
+    }
+    return parsed;
+  }
+
+  private ZoneOffset parseOffset(String offsetTime) {
+    ZoneOffset offset = ZoneOffset.UTC;
+    if (offsetTime != null) {
+      try {
+        offset = ZoneOffset.of(offsetTime);
+      } catch (DateTimeException e) {
+        // Use UTC.
+      }
+    }
+    return offset;
+  }
+
+  private void skipFully(DataInputStream input, int length) throws IOException {
+    int remaining = length;
+    while (remaining > 0) {
+      int skipped = input.skipBytes(remaining);
+      if (skipped <= 0) {
+        input.readByte(); // Throws EOFException at end of stream.
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+  }
+
+}
@@ -0,0 +1,336 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implements decoding, scaling, and encoding of raster images using the {@link ImageIO} API. Large
+ * source images are subsampled while being decoded, and then scaled down in successive halving
+ * steps, to limit both memory consumption and loss of quality.
+ */
+@Component
+public class ImageScaler {
+
+  private static final String UNREADABLE_IMAGE_MESSAGE = "No image reader for content";
+  private static final String UNWRITABLE_IMAGE_MESSAGE = "No image writer for format %s";
+  private static final int NORMAL_ORIENTATION = 1;
+  private static final int MIN_TRANSPOSED_ORIENTATION = 5;
+  private static final int MAX_ORIENTATION = 8;
+
+  /**
+   * Decodes the image content of {@code resource}, subsampling (if possible) to reduce the
+   * dimensions of the decoded image&mdash;but not below twice the specified {@code width} and
+   * {@code height}.
+   *
+   * @param resource Image content.
+   * @param width    Width (in pixels) of the largest image that will be produced from the decoded
+   *                 image.
+   * @param height   Height (in pixels) of the largest image that will be produced from the
+   *                 decoded image.
+   * @return Decoded image.
+   * @throws IOException If the content cannot be read or decoded.
+   */
+  @NonNull
+  public BufferedImage read(@NonNull Resource resource, int width, int height)
+      throws IOException {
+    Object source = resource.isFile() ? resource.getFile() : resource.getInputStream();
+    try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+      Iterator<ImageReader> readers = (input != null)
+          ? ImageIO.getImageReaders(input)
+          : Collections.emptyIterator();
+      if (!readers.hasNext()) {
+        throw new IOException(UNREADABLE_IMAGE_MESSAGE);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int subsampling = Math.max(1, Math.min(
+            reader.getWidth(0) / (2 * Math.max(width, 1)),
+            reader.getHeight(0) / (2 * Math.max(height, 1))));
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Scales {@code source} to the specified {@code width} and {@code height}, as constrained by
+   * {@code fit}. Images are never scaled up: {@link Fit#CONTAIN} and {@link Fit#COVER} preserve the
+   * aspect ratio of the source, and {@link Fit#FILL} limits each target dimension to the
+   * corresponding source dimension.
+   *
+   * @param source Image to be scaled.
+   * @param width  Target width (in pixels).
+   * @param height Target height (in pixels).
+   * @param fit    Constraint on the relationship between the source and target dimensions.
+   * @param format Output format, determining whether the alpha channel is retained.
+   * @return Scaled image.
+   */
+  @NonNull
+  public BufferedImage scale(@NonNull BufferedImage source, int width, int height,
+      @NonNull Fit fit, @NonNull OutputFormat format) {
+    int sourceWidth = source.getWidth();
+    int sourceHeight = source.getHeight();
+    int cropWidth = sourceWidth;
+    int cropHeight = sourceHeight;
+    int targetWidth;
+    int targetHeight;
+    switch (fit) {
+      case COVER: {
+        double ratio = Math.min(1,
+            Math.max((double) width / sourceWidth, (double) height / sourceHeight));
+        targetWidth = Math.max(1, Math.min(width, (int) Math.round(sourceWidth * ratio)));
+        targetHeight = Math.max(1, Math.min(height, (int) Math.round(sourceHeight * ratio)));
+        cropWidth = Math.min(sourceWidth, (int) Math.round(targetWidth / ratio));
+        cropHeight = Math.min(sourceHeight, (int) Math.round(targetHeight / ratio));
+        break;
+      }
+      case FILL:
+        targetWidth = Math.max(1, Math.min(width, sourceWidth));
+        targetHeight = Math.max(1, Math.min(height, sourceHeight));
+        break;
+      case CONTAIN:
+      default: {
+        double ratio = Math.min(1,
+            Math.min((double) width / sourceWidth, (double) height / sourceHeight));
+        targetWidth = Math.max(1, (int) Math.round(sourceWidth * ratio));
+        targetHeight = Math.max(1, (int) Math.round(sourceHeight * ratio));
+        break;
+      }
+    }
+    BufferedImage current = source.getSubimage((sourceWidth - cropWidth) / 2,
+        (sourceHeight - cropHeight) / 2, cropWidth, cropHeight);
+    int type = format.isAlphaSupported() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+      current = draw(current, current.getWidth() / 2, current.getHeight() / 2, type,
+          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    }
+    return draw(current, targetWidth, targetHeight, type,
+        RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+  }
+
+  /**
+   * Applies the rotation and/or reflection specified by an EXIF {@code orientation} to {@code
+   * source}, returning an image in the orientation intended for display. For orientations
+   * 5&ndash;8, the width and height of the returned image are those of {@code source}, transposed.
+   * If {@code orientation} is {@code null}, 1 (the default orientation), or not a valid EXIF
+   * orientation, {@code source} itself is returned.
+   *
+   * @param source      Decoded image, in the orientation in which it is stored.
+   * @param orientation EXIF orientation (1&ndash;8) of the stored image.
+   * @return Image in display orientation.
+   */
+  @NonNull
+  public BufferedImage orient(@NonNull BufferedImage source, Integer orientation) {
+    if (orientation == null || orientation <= NORMAL_ORIENTATION
+        || orientation > MAX_ORIENTATION) {
+      return source;
+    }
+    int width = source.getWidth();
+    int height = source.getHeight();
+    boolean transposed = orientation >= MIN_TRANSPOSED_ORIENTATION;
+    int targetWidth = transposed ? height : width;
+    int targetHeight = transposed ? width : height;
+    int[] pixels = source.getRGB(0, 0, width, height, null, 0, width);
+    int[] oriented = new int[pixels.length];
+    for (int y = 0; y < targetHeight; y++) {
+      for (int x = 0; x < targetWidth; x++) {
+        int sourceX;
+        int sourceY;
+        switch (orientation) {
+          case 2: // Mirrored horizontally.
+            sourceX = width - 1 - x;
+            sourceY = y;
+            break;
+          case 3: // Rotated 180 degrees.
+            sourceX = width - 1 - x;
+            sourceY = height - 1 - y;
+            break;
+          case 4: // Mirrored vertically.
+            sourceX = x;
+            sourceY = height - 1 - y;
+            break;
+          case 5: // Transposed (mirrored about the leading diagonal).
+            sourceX = y;
+            sourceY = x;
+            break;
+          case 6: // Displayed after rotating 90 degrees clockwise.
+            sourceX = y;
+            sourceY = height - 1 - x;
+            break;
+          case 7: // Transversed (mirrored about the trailing diagonal).
+            sourceX = width - 1 - y;
+            sourceY = height - 1 - x;
+            break;
+          case 8: // Displayed after rotating 90 degrees counterclockwise.
+          default:
+            sourceX = width - 1 - y;
+            sourceY = x;
+            break;
+        }
+        oriented[y * targetWidth + x] = pixels[sourceY * width + sourceX];
+      }
+    }
+    int type = source.getColorModel().hasAlpha()
+        ? BufferedImage.TYPE_INT_ARGB
+        : BufferedImage.TYPE_INT_RGB;
+    BufferedImage target = new BufferedImage(targetWidth, targetHeight, type);
+    target.setRGB(0, 0, targetWidth, targetHeight, oriented, 0, targetWidth);
+    return target;
+  }
+
+  /**
+   * Encodes {@code image} in the specified {@code format}, writing it to {@code target}. The image
+   * is first written to a temporary file in the same directory, and then moved into place
+   * atomically, so that a partially written file is never visible at {@code target}.
+   *
+   * @param image  Image to be encoded.
+   * @param format Output format.
+   * @param target Destination file.
+   * @throws IOException If the image cannot be encoded or written.
+   */
+  public void write(@NonNull BufferedImage image, @NonNull OutputFormat format,
+      @NonNull Path target) throws IOException {
+    Files.createDirectories(target.getParent());
+    Path temp = Files.createTempFile(target.getParent(), null, null);
+    try {
+      if (!ImageIO.write(image, format.getFormatName(), temp.toFile())) {
+        throw new IOException(String.format(UNWRITABLE_IMAGE_MESSAGE, format.getFormatName()));
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private BufferedImage draw(
+      BufferedImage source, int width, int height, int type, Object interpolation) {
+    BufferedImage target = new BufferedImage(width, height, type);
+    Graphics2D graphics = target.createGraphics();
+    try {
+      if (type == BufferedImage.TYPE_INT_RGB) {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+      }
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  /**
+   * Constraints on the relationship between the dimensions of a source image and those of the
+   * scaled image.
+   */
+  public enum Fit {
+
+    /** Scale to fit entirely within the target dimensions, preserving aspect ratio. */
+    CONTAIN,
+    /** Scale to cover the target dimensions, preserving aspect ratio and cropping the excess. */
+    COVER,
+    /** Scale to exactly the target dimensions, without preserving aspect ratio. */
+    FILL
+
+  }
+
+  /**
+   * Encoded formats for scaled images. Formats supporting transparency are used for scaled images
+   * of sources that may include transparency.
+   */
+  public enum OutputFormat {
+
+    /** JPEG format, for sources without transparency. */
+    JPEG("jpeg", "jpg", "image/jpeg", false),
+    /** PNG format, for sources that may include transparency. */
+    PNG("png", "png", "image/png", true);
+
+    private final String formatName;
+    private final String extension;
+    private final String contentType;
+    private final boolean alphaSupported;
+
+    OutputFormat(String formatName, String extension, String contentType,
+        boolean alphaSupported) {
+      this.formatName = formatName;
+      this.extension = extension;
+      this.contentType = contentType;
+      this.alphaSupported = alphaSupported;
+    }
+
+    /**
+     * Returns the {@link ImageIO} format name of this format.
+     */
+    public String getFormatName() {
+      return formatName;
+    }
+
+    /**
+     * Returns the filename extension used for files in this format.
+     */
+    public String getExtension() {
+      return extension;
+    }
+
+    /**
+     * Returns the MIME type of this format.
+     */
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Returns a flag indicating whether this format supports an alpha channel.
+     */
+    public boolean isAlphaSupported() {
+      return alphaSupported;
+    }
+
+    /**
+     * Returns the format used for scaled images of content with the specified MIME type.
+     *
+     * @param contentType MIME type of the source image.
+     * @return Output format for scaled images.
+     */
+    public static OutputFormat forContentType(String contentType) {
+      return (PNG.contentType.equals(contentType) || "image/gif".equals(contentType)) ? PNG : JPEG;
+    }
+
+  }
+
+}
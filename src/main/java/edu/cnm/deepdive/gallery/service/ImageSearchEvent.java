@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted by {@link ImageService} for each image search, recording the type
+ * of search, the means by which matching images were selected, the length of the search fragment
+ * (if any), and the number of images returned.
+ */
+@Name("edu.cnm.deepdive.gallery.ImageSearch")
+@Label("Image Search")
+@Category({"Gallery", "Images"})
+@Description("Search or paged listing of images")
+class ImageSearchEvent extends Event {
+
+  @Label("Query")
+  @Description("Type of search: contributor, fragment, or contributor-fragment")
+  String query;
+
+  @Label("Method")
+  @Description("Means of selection: keyset, index, or substring")
+  String method;
+
+  @Label("Contributor Id")
+  String contributorId;
+
+  @Label("Fragment Length")
+  int fragmentLength;
+
+  @Label("Index Matches")
+  @Description("Number of matches found in the search index (-1 if not consulted)")
+  int indexMatches = -1;
+
+  @Label("Results")
+  int results;
+
+}
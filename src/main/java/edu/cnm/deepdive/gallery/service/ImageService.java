@@ -16,43 +16,160 @@
 package edu.cnm.deepdive.gallery.service;
 
 import edu.cnm.deepdive.gallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.gallery.model.dao.UserRepository;
+import edu.cnm.deepdive.gallery.model.dto.ImageSummary;
 import edu.cnm.deepdive.gallery.model.entity.Image;
 import edu.cnm.deepdive.gallery.model.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
-import org.springframework.http.MediaType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
  * Implements high-level operations on {@link Image} instances, including file store operations and
- * delegation to methods declared in {@link ImageRepository}.
+ * delegation to methods declared in {@link ImageRepository}. The latency of searches is recorded by
+ * the {@code gallery.search} timer, tagged by {@code query} (the type of search) and {@code method}
+ * (the means by which matching images were selected). Uploads and searches are also emitted as
+ * Flight Recorder events ({@link ImageStoreEvent} and {@link ImageSearchEvent}), carrying the
+ * image identifier, size, and content type, or the search parameters and result count, along with
+ * the duration of each operation.
  */
 @Service
 public class ImageService {
 
+  private static final Logger logger = LoggerFactory.getLogger(ImageService.class);
+
   private static final String UNTITLED_FILENAME = "untitled";
+  private static final String UNDECODABLE_IMAGE_FORMAT = "Unable to decode stored image %s";
+  private static final int EXPORT_BATCH_SIZE = 100;
+  /**
+   * Maximum number of matches selected by identifier; beyond this, an {@code IN} list is evaluated
+   * (by Derby) as a scan with a long disjunction per row, so a substring search is cheaper.
+   */
+  private static final int MAX_SELECTED_MATCHES = 1_000;
+  private static final String SEARCH_TIMER = "gallery.search";
+  private static final String QUERY_TAG = "query";
+  private static final String METHOD_TAG = "method";
+  private static final String CONTRIBUTOR_QUERY = "contributor";
+  private static final String FRAGMENT_QUERY = "fragment";
+  private static final String CONTRIBUTOR_FRAGMENT_QUERY = "contributor-fragment";
+  private static final String KEYSET_METHOD = "keyset";
+  private static final String INDEX_METHOD = "index";
+  private static final String SUBSTRING_METHOD = "substring";
 
   private final ImageRepository imageRepository;
+  private final UserRepository userRepository;
   private final StorageService storageService;
+  private final DerivativeService derivativeService;
+  private final StorageCollector storageCollector;
+  private final TrigramIndex searchIndex;
+  private final ImageMetadataReader metadataReader;
+  private final SimilarityService similarityService;
+  private final ImageScaler scaler;
+  private final PlaceholderEncoder placeholderEncoder;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final MeterRegistry meterRegistry;
+  private final Timer contributorSearchTimer;
+  private final Timer fragmentIndexTimer;
+  private final Timer fragmentSubstringTimer;
+  private final Timer contributorFragmentIndexTimer;
+  private final Timer contributorFragmentSubstringTimer;
 
   /**
-   * Initializes this instance with the provided instances of {@link ImageRepository} and {@link
-   * StorageService}.
+   * Initializes this instance with the provided instances of {@link ImageRepository}, {@link
+   * UserRepository}, {@link StorageService}, {@link DerivativeService}, {@link StorageCollector},
+   * {@link TrigramIndex}, {@link ImageMetadataReader}, {@link SimilarityService}, {@link
+   * ImageScaler}, and {@link PlaceholderEncoder}, along with the {@link EntityManager} used to
+   * release exported instances, the {@link PlatformTransactionManager} used to persist new images
+   * and their contributors' image counts atomically, and the {@link MeterRegistry} with which
+   * search timers are registered.
    *
-   * @param imageRepository Spring Data repository providing CRUD operations on {@link Image}
-   *                        instances.
-   * @param storageService  File store.
+   * @param imageRepository    Spring Data repository providing CRUD operations on {@link Image}
+   *                           instances.
+   * @param userRepository     Spring Data repository used to maintain contributor image counts.
+   * @param storageService     File store.
+   * @param derivativeService  Generator &amp; store of resized derivatives.
+   * @param storageCollector   Collector of stored content no longer referenced by any image.
+   * @param searchIndex        In-memory index of image titles &amp; descriptions.
+   * @param metadataReader     Reader of dimensions &amp; EXIF metadata from image headers.
+   * @param similarityService  Perceptual hash calculator &amp; index of similar images.
+   * @param scaler             Image decoder, used to decode new images once for hashing and
+   *                           placeholder encoding.
+   * @param placeholderEncoder Encoder of low-quality image placeholders.
+   * @param entityManager      Shared JPA entity manager.
+   * @param transactionManager Transaction manager of the JPA entity manager.
+   * @param meterRegistry      Registry of application metrics.
    */
   @Autowired
-  public ImageService(ImageRepository imageRepository, StorageService storageService) {
+  public ImageService(ImageRepository imageRepository, UserRepository userRepository,
+      StorageService storageService,
+      DerivativeService derivativeService, StorageCollector storageCollector,
+      TrigramIndex searchIndex, ImageMetadataReader metadataReader,
+      SimilarityService similarityService, ImageScaler scaler,
+      PlaceholderEncoder placeholderEncoder, EntityManager entityManager,
+      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
     this.imageRepository = imageRepository;
+    this.userRepository = userRepository;
     this.storageService = storageService;
+    this.derivativeService = derivativeService;
+    this.storageCollector = storageCollector;
+    this.searchIndex = searchIndex;
+    this.metadataReader = metadataReader;
+    this.similarityService = similarityService;
+    this.scaler = scaler;
+    this.placeholderEncoder = placeholderEncoder;
+    this.entityManager = entityManager;
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    this.meterRegistry = meterRegistry;
+    contributorSearchTimer = searchTimer(CONTRIBUTOR_QUERY, KEYSET_METHOD);
+    fragmentIndexTimer = searchTimer(FRAGMENT_QUERY, INDEX_METHOD);
+    fragmentSubstringTimer = searchTimer(FRAGMENT_QUERY, SUBSTRING_METHOD);
+    contributorFragmentIndexTimer = searchTimer(CONTRIBUTOR_FRAGMENT_QUERY, INDEX_METHOD);
+    contributorFragmentSubstringTimer = searchTimer(CONTRIBUTOR_FRAGMENT_QUERY, SUBSTRING_METHOD);
+  }
+
+  /**
+   * Populates the search index with the titles and descriptions of all persisted images. After
+   * this, the index is maintained incrementally, as images are saved and deleted via this service.
+   */
+  @PostConstruct
+  public void buildSearchIndex() {
+    searchIndex.clear();
+    for (Object[] row : imageRepository.getAllSearchableText()) {
+      searchIndex.put((UUID) row[0], (String) row[1], (String) row[2]);
+    }
   }
 
   /**
@@ -80,74 +197,293 @@ public class ImageService {
   }
 
   /**
-   * Deletes the specified {@link Image} instance from the database and the file store. It's assumed
-   * that any access control conditions have already been checked.
+   * Deletes the specified {@link Image} instance from the database, and records a pending deletion
+   * of the referenced content (and decrements the image count of the contributor) in the same
+   * transaction. The content is deleted from the file store asynchronously, by the {@link
+   * StorageCollector}, if no other image references it. The image is removed from the in-memory
+   * search and similarity indices only after the transaction commits, so that a rollback leaves
+   * the indices consistent with the database. It's assumed that any access control conditions
+   * have already been checked.
    *
    * @param image Previously persisted {@link Image} instance to be deleted.
-   * @throws IOException If the file cannot be accessed (for any reason) from the specified {@code
-   *                     reference}.
    */
-  public void delete(@NonNull Image image) throws IOException {
-    storageService.delete(image.getPath());
-    imageRepository.delete(image); // Delete unconditonally.
+  @Transactional
+  public void delete(@NonNull Image image) {
+    imageRepository.delete(image);
+    userRepository.adjustImageCount(image.getContributor(), -1);
+    storageCollector.schedule(image.getPath());
+    afterCommit(() -> {
+      searchIndex.remove(image.getId());
+      similarityService.remove(image);
+    });
   }
 
   /**
-   * Selects and returns all images uploaded by the specified {@link User}.
+   * Selects and returns a page of images uploaded by the specified {@link User}, in descending
+   * order of datetime created (uploaded). If {@code created} and {@code id} are both non-null, the
+   * page starts after the image with that {@code (created, id)} key; otherwise, the first page is
+   * returned.
    *
    * @param contributor {@link User} that uploaded the images.
-   * @return All images from {@code contributor}.
+   * @param created     Datetime created of the last image in the preceding page.
+   * @param id          Unique identifier of the last image in the preceding page.
+   * @param limit       Maximum number of images in the page.
+   * @return Page of image summaries from {@code contributor}.
    */
-  public Iterable<Image> search(@NonNull User contributor) {
-    return imageRepository.findAllByContributorOrderByCreatedDesc(contributor);
+  @Transactional(readOnly = true)
+  public Slice<ImageSummary> search(
+      @NonNull User contributor, Date created, UUID id, int limit) {
+    ImageSearchEvent event =
+        newSearchEvent(CONTRIBUTOR_QUERY, KEYSET_METHOD, contributor, null);
+    PageRequest page = PageRequest.of(0, limit);
+    Slice<ImageSummary> images = contributorSearchTimer.record(() -> (created != null && id != null)
+        ? imageRepository.findAllSummariesByContributorAfter(contributor, created, id, page)
+        : imageRepository.findAllSummariesByContributor(contributor, page));
+    commit(event, images.getNumberOfElements());
+    return images;
   }
 
   /**
-   * Selects and returns all images containing the search fragment in the metadata (specifically,
-   * the title or description).
+   * Selects and returns a page of the images containing the search fragment in the metadata
+   * (specifically, the title or description), in descending order of datetime created (uploaded).
+   * Paging is as for {@link #list(Date, UUID, int)}. Matching images are found using the in-memory
+   * search index, and then selected by identifier; only if {@code fragment} is too short for the
+   * index, or matches too many images to be selected efficiently by identifier, is a substring
+   * search performed in the database.
    *
    * @param fragment Search text.
-   * @return All images containing {@code fragment} in the metadata.
+   * @param created  Datetime created of the last image in the preceding page.
+   * @param id       Unique identifier of the last image in the preceding page.
+   * @param limit    Maximum number of images in the page.
+   * @return Page of summaries of images containing {@code fragment} in the metadata.
    */
-  public Iterable<Image> search(@NonNull String fragment) {
-    return imageRepository.findAllByFragment(fragment);
+  @Transactional(readOnly = true)
+  public Slice<ImageSummary> search(@NonNull String fragment, Date created, UUID id, int limit) {
+    ImageSearchEvent event = newSearchEvent(FRAGMENT_QUERY, INDEX_METHOD, null, fragment);
+    Timer.Sample sample = Timer.start(meterRegistry);
+    PageRequest page = PageRequest.of(0, limit);
+    boolean after = created != null && id != null;
+    Set<UUID> ids = searchIndex.isSearchable(fragment) ? searchIndex.search(fragment) : null;
+    if (ids != null) {
+      event.indexMatches = ids.size();
+    }
+    if (ids == null || ids.size() > MAX_SELECTED_MATCHES) {
+      Slice<ImageSummary> images = after
+          ? imageRepository.findAllSummariesByFragmentAfter(fragment, created, id, page)
+          : imageRepository.findAllSummariesByFragment(fragment, page);
+      sample.stop(fragmentSubstringTimer);
+      event.method = SUBSTRING_METHOD;
+      commit(event, images.getNumberOfElements());
+      return images;
+    }
+    Slice<ImageSummary> images;
+    if (ids.isEmpty()) {
+      images = new SliceImpl<>(List.of());
+    } else if (after) {
+      images = imageRepository.findAllSummariesByIdInAfter(ids, created, id, page);
+    } else {
+      images = imageRepository.findAllSummariesByIdIn(ids, page);
+    }
+    sample.stop(fragmentIndexTimer);
+    commit(event, images.getNumberOfElements());
+    return images;
   }
 
   /**
-   * Selects and returns all images uploaded by the specified {@link User}, that also contain the
-   * search fragment in the metadata (specifically, the title or description).
+   * Selects and returns a page of the images uploaded by the specified {@link User}, that also
+   * contain the search fragment in the metadata (specifically, the title or description), in
+   * descending order of datetime created (uploaded). Paging is as for {@link #list(Date, UUID,
+   * int)}. As for {@link #search(String, Date, UUID, int)}, matching images are found using the
+   * in-memory search index; if these are too many to be selected efficiently by identifier, they
+   * are first restricted to the images from {@code contributor}, and a substring search is
+   * performed in the database only if that restricted set is still too large.
    *
    * @param contributor {@link User} that uploaded the images.
    * @param fragment    Search text.
-   * @return All images from {@code contributor} with {@code fragment} in the metadata.
+   * @param created     Datetime created of the last image in the preceding page.
+   * @param id          Unique identifier of the last image in the preceding page.
+   * @param limit       Maximum number of images in the page.
+   * @return Page of summaries of images from {@code contributor} with {@code fragment} in the
+   * metadata.
+   */
+  @Transactional(readOnly = true)
+  public Slice<ImageSummary> search(@NonNull User contributor, @NonNull String fragment,
+      Date created, UUID id, int limit) {
+    ImageSearchEvent event =
+        newSearchEvent(CONTRIBUTOR_FRAGMENT_QUERY, INDEX_METHOD, contributor, fragment);
+    Timer.Sample sample = Timer.start(meterRegistry);
+    PageRequest page = PageRequest.of(0, limit);
+    boolean after = created != null && id != null;
+    Set<UUID> ids = searchIndex.isSearchable(fragment) ? searchIndex.search(fragment) : null;
+    if (ids != null) {
+      event.indexMatches = ids.size();
+      if (ids.size() > MAX_SELECTED_MATCHES) {
+        ids.retainAll(new HashSet<>(imageRepository.findAllIdsByContributor(contributor)));
+      }
+    }
+    if (ids == null || ids.size() > MAX_SELECTED_MATCHES) {
+      Slice<ImageSummary> images = after
+          ? imageRepository.findAllSummariesByContributorAndFragmentAfter(
+              contributor, fragment, created, id, page)
+          : imageRepository.findAllSummariesByContributorAndFragment(contributor, fragment, page);
+      sample.stop(contributorFragmentSubstringTimer);
+      event.method = SUBSTRING_METHOD;
+      commit(event, images.getNumberOfElements());
+      return images;
+    }
+    Slice<ImageSummary> images;
+    if (ids.isEmpty()) {
+      images = new SliceImpl<>(List.of());
+    } else if (after) {
+      images = imageRepository.findAllSummariesByContributorAndIdInAfter(
+          contributor, ids, created, id, page);
+    } else {
+      images = imageRepository.findAllSummariesByContributorAndIdIn(contributor, ids, page);
+    }
+    sample.stop(contributorFragmentIndexTimer);
+    commit(event, images.getNumberOfElements());
+    return images;
+  }
+
+  /**
+   * Selects and returns a page of images, in descending order of datetime created (uploaded). If
+   * {@code created} and {@code id} are both non-null, the page starts after the image with that
+   * {@code (created, id)} key; otherwise, the first page is returned.
+   *
+   * @param created Datetime created of the last image in the preceding page.
+   * @param id      Unique identifier of the last image in the preceding page.
+   * @param limit   Maximum number of images in the page.
+   * @return Page of image summaries.
+   */
+  @Transactional(readOnly = true)
+  public Slice<ImageSummary> list(Date created, UUID id, int limit) {
+    PageRequest page = PageRequest.of(0, limit);
+    return (created != null && id != null)
+        ? imageRepository.getAllSummariesAfter(created, id, page)
+        : imageRepository.getAllSummaries(page);
+  }
+
+  /**
+   * Selects and returns a page of images with at least the specified dimensions, in descending
+   * order of datetime created (uploaded). Paging is as for {@link #list(Date, UUID, int)}. Images
+   * whose dimensions could not be read are not selected.
+   *
+   * @param minWidth  Minimum width (in pixels) of selected images.
+   * @param minHeight Minimum height (in pixels) of selected images.
+   * @param created   Datetime created of the last image in the preceding page.
+   * @param id        Unique identifier of the last image in the preceding page.
+   * @param limit     Maximum number of images in the page.
+   * @return Page of image summaries.
+   */
+  @Transactional(readOnly = true)
+  public Slice<ImageSummary> list(
+      int minWidth, int minHeight, Date created, UUID id, int limit) {
+    PageRequest page = PageRequest.of(0, limit);
+    return (created != null && id != null)
+        ? imageRepository.getAllSummariesByDimensionsAfter(minWidth, minHeight, created, id, page)
+        : imageRepository.getAllSummariesByDimensions(minWidth, minHeight, page);
+  }
+
+  /**
+   * Selects and returns a page of images with a recorded capture datetime and at least the
+   * specified dimensions, in descending order of datetime captured. If {@code captured} and {@code
+   * id} are both non-null, the page starts after the image with that {@code (captured, id)} key;
+   * otherwise, the first page is returned.
+   *
+   * @param minWidth  Minimum width (in pixels) of selected images.
+   * @param minHeight Minimum height (in pixels) of selected images.
+   * @param captured  Datetime captured of the last image in the preceding page.
+   * @param id        Unique identifier of the last image in the preceding page.
+   * @param limit     Maximum number of images in the page.
+   * @return Page of image summaries.
    */
-  public Iterable<Image> search(@NonNull User contributor, @NonNull String fragment) {
-    return imageRepository.findAllByContributorAndFragment(contributor, fragment);
+  @Transactional(readOnly = true)
+  public Slice<ImageSummary> listByCaptured(
+      int minWidth, int minHeight, Date captured, UUID id, int limit) {
+    PageRequest page = PageRequest.of(0, limit);
+    return (captured != null && id != null)
+        ? imageRepository.getAllSummariesByCapturedAfter(minWidth, minHeight, captured, id, page)
+        : imageRepository.getAllSummariesByCaptured(minWidth, minHeight, page);
   }
 
   /**
-   * Selects and returns all images.
+   * Selects and returns the images that are visually similar to {@code image}, as measured by the
+   * distance between their perceptual hashes, in increasing order of distance.
+   *
+   * @param image       Query image.
+   * @param maxDistance Maximum distance (in bits) between perceptual hashes.
+   * @return Similar images, excluding {@code image} itself.
+   */
+  public List<Image> getSimilar(@NonNull Image image, int maxDistance) {
+    return selectInOrder(similarityService.findSimilar(image, maxDistance));
+  }
+
+  /**
+   * Selects and returns the images that are likely duplicates of {@code image} (e.g. re-encoded or
+   * resized copies), in increasing order of perceptual hash distance.
+   *
+   * @param image Query image.
+   * @return Likely duplicates, excluding {@code image} itself.
+   */
+  public List<Image> getDuplicates(@NonNull Image image) {
+    return selectInOrder(similarityService.findDuplicates(image));
+  }
+
+  /**
+   * Returns the maximum distance that may be passed to {@link #getSimilar(Image, int)}.
+   *
+   * @return Maximum distance (in bits) between perceptual hashes.
    */
-  public Iterable<Image> list() {
-    return imageRepository.getAllByOrderByCreatedDesc();
+  public int getMaxSimilarDistance() {
+    return similarityService.getMaxDistance();
+  }
+
+  /**
+   * Passes every image, in descending order of datetime created (uploaded), to {@code sink}. Images
+   * are read from a database cursor, and the persistence context is cleared periodically, so that
+   * memory use does not grow with the number of images exported.
+   *
+   * @param sink Consumer of exported images.
+   * @throws IOException If {@code sink} throws {@link IOException}; in that case, the export is
+   *                     terminated.
+   */
+  @Transactional(readOnly = true)
+  public void export(@NonNull ExportSink sink) throws IOException {
+    try (Stream<Image> images = imageRepository.streamAll()) {
+      int count = 0;
+      for (Image image : (Iterable<Image>) images::iterator) {
+        sink.accept(image);
+        if (++count % EXPORT_BATCH_SIZE == 0) {
+          entityManager.clear();
+        }
+      }
+    }
   }
 
   /**
    * Persists (creates or updates) the specified {@link Image} instance to the database, updating
    * and returning the instance accordingly. (The instance is updated in-place, but the reference to
-   * it is also returned.)
+   * it is also returned.) The search index is updated with the title and description of the saved
+   * instance, when the current transaction (if any) commits.
    *
    * @param image Instance to be persisted.
    * @return Updated instance.
    */
   public Image save(@NonNull Image image) {
-    return imageRepository.save(image);
+    Image saved = imageRepository.save(image);
+    afterCommit(() -> searchIndex.put(saved.getId(), saved.getTitle(), saved.getDescription()));
+    return saved;
   }
 
   /**
    * Stores the image data to the file store, then constructs and returns the corresponding instance
    * of {@link Image}. The latter includes the specified {@code title} and {@code description}
-   * metadata, along with a reference to {@code contributor}.
+   * metadata, along with a reference to {@code contributor}, the MIME type detected from the
+   * content (rather than that declared by the client), the size, dimensions, orientation, and
+   * capture datetime read from the content headers, and the perceptual hash and low-quality
+   * placeholder computed from the content (which is decoded once, with subsampling, for both).
+   * The image count of the contributor is incremented, and generation of resized derivatives is
+   * scheduled for asynchronous execution.
    *
    * @param file        Uploaded file content.
    * @param title       Optional (null is allowed) title of the image.
@@ -156,24 +492,88 @@ public class ImageService {
    * @return {@link Image} instance referencing and describing the uploaded content.
    * @throws IOException                         If the file content cannot&mdash;for any
    *                                             reason&mdash;be written to the file store.
-   * @throws HttpMediaTypeNotAcceptableException If the MIME type of the uploaded file is not on the
-   *                                             whitelist.
+   * @throws HttpMediaTypeNotAcceptableException If the MIME type detected from the uploaded file is
+   *                                             not on the whitelist, or doesn't match the declared
+   *                                             MIME type.
    */
   public Image store(
       @NonNull MultipartFile file, String title, String description, @NonNull User contributor)
       throws IOException, HttpMediaTypeNotAcceptableException {
-    String originalFilename = file.getOriginalFilename();
-    String contentType = file.getContentType();
-    String reference = storageService.store(file);
-    Image image = new Image();
-    image.setTitle(title);
-    image.setDescription(description);
-    image.setContributor(contributor);
-    image.setName((originalFilename != null) ? originalFilename : UNTITLED_FILENAME);
-    image.setContentType(
-        (contentType != null) ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
-    image.setPath(reference);
-    return save(image);
+    ImageStoreEvent event = new ImageStoreEvent();
+    event.begin();
+    Lock lock = storageCollector.lockReferences();
+    try {
+      StoredContent content = storageService.store(file);
+      return describe(event,
+          create(content, file.getOriginalFilename(), title, description, contributor));
+    } finally {
+      lock.unlock();
+      event.commit();
+    }
+  }
+
+  /**
+   * Commits previously staged content (e.g. from a resumable upload) to the file store, then
+   * constructs and returns the corresponding instance of {@link Image}, as for {@link
+   * #store(MultipartFile, String, String, User)}.
+   *
+   * @param staged           Opaque staging reference, as returned by {@link
+   *                         StorageService#stage(String, String)}.
+   * @param originalFilename Original filename of the uploaded content.
+   * @param title            Optional (null is allowed) title of the image.
+   * @param description      Optional (null is allowed) description of the image.
+   * @param contributor      Uploading {@link User}.
+   * @return {@link Image} instance referencing and describing the uploaded content.
+   * @throws IOException                         If the staged content cannot&mdash;for any
+   *                                             reason&mdash;be committed to the file store.
+   * @throws HttpMediaTypeNotAcceptableException If the MIME type detected from the staged content
+   *                                             is not on the whitelist.
+   */
+  public Image store(@NonNull String staged, String originalFilename, String title,
+      String description, @NonNull User contributor)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    ImageStoreEvent event = new ImageStoreEvent();
+    event.begin();
+    try {
+      return commit(staged, originalFilename, title, description, contributor, event);
+    } finally {
+      event.commit();
+    }
+  }
+
+  /**
+   * Stages content read from {@code input} (e.g. the body of a request, as it is received), then
+   * commits it to the file store and constructs and returns the corresponding instance of {@link
+   * Image}, as for {@link #store(MultipartFile, String, String, User)}. The content is written to
+   * the file store only once; no temporary copy is made.
+   *
+   * @param input            Source of uploaded content.
+   * @param limit            Maximum number of bytes to be read from {@code input}.
+   * @param originalFilename Optional (null is allowed) original filename of the uploaded content.
+   * @param contentType      Declared MIME type of the uploaded content.
+   * @param title            Optional (null is allowed) title of the image.
+   * @param description      Optional (null is allowed) description of the image.
+   * @param contributor      Uploading {@link User}.
+   * @return {@link Image} instance referencing and describing the uploaded content.
+   * @throws IOException                         If the content cannot&mdash;for any
+   *                                             reason&mdash;be written to the file store.
+   * @throws HttpMediaTypeNotAcceptableException If the MIME type detected from the content is not
+   *                                             on the whitelist, or doesn't match {@code
+   *                                             contentType}.
+   * @throws ContentTooLargeException            If {@code input} contains more than {@code limit}
+   *                                             bytes.
+   */
+  public Image store(@NonNull InputStream input, long limit, String originalFilename,
+      @NonNull String contentType, String title, String description, @NonNull User contributor)
+      throws IOException, HttpMediaTypeNotAcceptableException, ContentTooLargeException {
+    ImageStoreEvent event = new ImageStoreEvent();
+    event.begin();
+    try {
+      String staged = storageService.stage(input, originalFilename, contentType, limit);
+      return commit(staged, originalFilename, title, description, contributor, event);
+    } finally {
+      event.commit();
+    }
   }
 
   /**
@@ -189,4 +589,130 @@ public class ImageService {
     return storageService.retrieve(image.getPath());
   }
 
+  private Image commit(String staged, String originalFilename, String title, String description,
+      User contributor, ImageStoreEvent event)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    event.staged = true;
+    Lock lock = storageCollector.lockReferences();
+    try {
+      StoredContent content = storageService.commit(staged);
+      return describe(event, create(content, originalFilename, title, description, contributor));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Image describe(ImageStoreEvent event, Image image) {
+    event.imageId = String.valueOf(image.getId());
+    event.contentType = image.getContentType();
+    if (image.getContentLength() != null) {
+      event.contentLength = image.getContentLength();
+    }
+    return image;
+  }
+
+  private Image create(StoredContent content, String originalFilename,
+      String title, String description, User contributor) throws IOException {
+    Image image = new Image();
+    image.setTitle(title);
+    image.setDescription(description);
+    image.setContributor(contributor);
+    image.setName((originalFilename != null) ? originalFilename : UNTITLED_FILENAME);
+    image.setContentType(content.getContentType());
+    image.setPath(content.getReference());
+    Resource resource = storageService.retrieve(content.getReference());
+    metadataReader.read(resource, content.getContentType(), image);
+    try {
+      BufferedImage decoded = scaler.orient(
+          scaler.read(resource, PerceptualHasher.DECODE_WIDTH, PerceptualHasher.DECODE_HEIGHT),
+          image.getOrientation());
+      image.setPerceptualHash(similarityService.hash(decoded));
+      image.setPlaceholder(placeholderEncoder.encode(decoded));
+    } catch (IOException e) {
+      logger.warn(String.format(UNDECODABLE_IMAGE_FORMAT, content.getReference()), e);
+    }
+    return transactionTemplate.execute((status) -> {
+      save(image);
+      userRepository.adjustImageCount(contributor, 1);
+      afterCommit(() -> {
+        similarityService.index(image);
+        derivativeService.schedule(image);
+      });
+      return image;
+    });
+  }
+
+  /**
+   * Runs {@code action} after the current transaction commits, or immediately if there is no
+   * transaction (with synchronization) in progress. If the transaction is rolled back, {@code
+   * action} is not run.
+   */
+  private static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  private Timer searchTimer(String query, String method) {
+    return Timer.builder(SEARCH_TIMER)
+        .description("Latency of image searches")
+        .tags(QUERY_TAG, query, METHOD_TAG, method)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private ImageSearchEvent newSearchEvent(
+      String query, String method, User contributor, String fragment) {
+    ImageSearchEvent event = new ImageSearchEvent();
+    event.query = query;
+    event.method = method;
+    if (contributor != null) {
+      event.contributorId = String.valueOf(contributor.getId());
+    }
+    if (fragment != null) {
+      event.fragmentLength = fragment.length();
+    }
+    event.begin();
+    return event;
+  }
+
+  private void commit(ImageSearchEvent event, int results) {
+    event.results = results;
+    event.commit();
+  }
+
+  private List<Image> selectInOrder(List<UUID> ids) {
+    Map<UUID, Image> images = new HashMap<>();
+    for (Image image : imageRepository.findAllById(ids)) {
+      images.put(image.getId(), image);
+    }
+    return ids.stream()
+        .map(images::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Consumer of {@link Image} instances passed by {@link #export(ExportSink)}.
+   */
+  @FunctionalInterface
+  public interface ExportSink {
+
+    /**
+     * Consumes (e.g. writes) a single exported {@link Image}.
+     *
+     * @param image Exported instance.
+     * @throws IOException If {@code image} cannot be written.
+     */
+    void accept(@NonNull Image image) throws IOException;
+
+  }
+
 }
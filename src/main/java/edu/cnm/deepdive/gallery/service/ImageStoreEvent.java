@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted by {@link ImageService} for each attempt to store an uploaded
+ * image, spanning the transfer of the content to the file store, the reading of metadata, hashing,
+ * placeholder encoding, and persistence of the image. If the attempt fails, the image identifier
+ * is not set.
+ */
+@Name("edu.cnm.deepdive.gallery.ImageStore")
+@Label("Image Store")
+@Category({"Gallery", "Images"})
+@Description("Upload of image content and persistence of the image")
+class ImageStoreEvent extends Event {
+
+  @Label("Image Id")
+  String imageId;
+
+  @Label("Content Type")
+  String contentType;
+
+  @Label("Content Length")
+  @DataAmount
+  long contentLength;
+
+  @Label("Staged")
+  @Description("Whether previously staged content (e.g. from a resumable upload) was committed")
+  boolean staged;
+
+}
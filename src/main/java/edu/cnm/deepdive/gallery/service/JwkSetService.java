@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import edu.cnm.deepdive.gallery.configuration.TokenConfiguration;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Provides the JSON Web Keys (JWK) used to verify the signatures of bearer tokens. The key set is
+ * (optionally) seeded from a local file at startup, and then refreshed from the issuer's JWK set
+ * URI in the background; startup never waits on the issuer. A token signed with a key not in the
+ * current set triggers an immediate refresh (subject to a minimum interval between such
+ * refreshes), to accommodate key rotation by the issuer. If a refresh fails, the previously loaded
+ * keys remain in use.
+ */
+@Service
+public class JwkSetService implements JWKSource<SecurityContext> {
+
+  private static final Logger logger = LoggerFactory.getLogger(JwkSetService.class);
+
+  private static final int CONNECT_TIMEOUT = 5_000;
+  private static final int READ_TIMEOUT = 5_000;
+  private static final int SIZE_LIMIT = 512 * 1024;
+  private static final String SEED_MISSING_FORMAT = "JWK set file %s not found; keys unavailable "
+      + "until retrieved from issuer";
+  private static final String REFRESH_FAILURE_FORMAT = "Unable to refresh JWK set from %s: %s";
+
+  private final URL jwkSetUrl;
+  private final long minRefreshInterval;
+  private volatile JWKSet jwkSet = new JWKSet();
+  private long lastRefresh;
+
+  /**
+   * Initializes this instance with the issuer's JWK set URI and the token configuration properties,
+   * loading the initial key set from the local file specified in the latter (if any).
+   *
+   * @param jwkSetUri          Location from which the issuer's current key set is retrieved.
+   * @param tokenConfiguration Configuration object read from application properties.
+   * @throws IOException    If the local JWK set file exists, but cannot be read.
+   * @throws ParseException If the local JWK set file cannot be parsed.
+   */
+  @Autowired
+  public JwkSetService(
+      @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") URL jwkSetUri,
+      TokenConfiguration tokenConfiguration) throws IOException, ParseException {
+    jwkSetUrl = jwkSetUri;
+    minRefreshInterval = tokenConfiguration.getJwkMinRefreshInterval().toMillis();
+    lastRefresh = System.currentTimeMillis() - minRefreshInterval;
+    String seed = tokenConfiguration.getJwkSetFile();
+    if (seed != null && !seed.isBlank()) {
+      Path file = Path.of(seed);
+      if (Files.exists(file)) {
+        jwkSet = JWKSet.load(file.toFile());
+      } else {
+        logger.warn(String.format(SEED_MISSING_FORMAT, file));
+      }
+    }
+  }
+
+  /**
+   * Returns the keys in the current set matching {@code selector}. If there are none, and the
+   * minimum interval since the last refresh has elapsed, the key set is refreshed from the issuer
+   * before selecting again.
+   *
+   * @param selector Key selection criteria.
+   * @param context  Ignored.
+   * @return Matching keys (possibly empty).
+   */
+  @Override
+  public List<JWK> get(JWKSelector selector, SecurityContext context) {
+    List<JWK> keys = selector.select(jwkSet);
+    if (keys.isEmpty() && refreshIfStale()) {
+      keys = selector.select(jwkSet);
+    }
+    return keys;
+  }
+
+  /**
+   * Retrieves the current key set from the issuer, replacing the set in use. This is invoked
+   * periodically in the background, starting immediately after startup.
+   */
+  @Scheduled(fixedDelayString = "#{@tokenConfiguration.jwkRefreshInterval.toMillis()}")
+  public synchronized void refresh() {
+    lastRefresh = System.currentTimeMillis();
+    try {
+      jwkSet = JWKSet.load(jwkSetUrl, CONNECT_TIMEOUT, READ_TIMEOUT, SIZE_LIMIT);
+    } catch (IOException | ParseException e) {
+      logger.warn(String.format(REFRESH_FAILURE_FORMAT, jwkSetUrl, e));
+    }
+  }
+
+  private synchronized boolean refreshIfStale() {
+    boolean stale = System.currentTimeMillis() - lastRefresh >= minRefreshInterval;
+    if (stale) {
+      refresh();
+    }
+    return stale;
+  }
+
+}
@@ -16,135 +16,505 @@
 package edu.cnm.deepdive.gallery.service;
 
 import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
-import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties;
-import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
-import java.util.Random;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.system.ApplicationHome;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.MediaType;
-import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
- * Simple implementation of {@link StorageService}, storing files in a directory specified in the
- * application properties, further organized into subdirectories by specified portions of the
- * generated filenames.
+ * Content-addressed implementation of {@link StorageService}, storing files in a directory specified
+ * in the application properties, named by the digest of their content, and further organized into
+ * subdirectories by specified portions of those names. Content written incrementally is staged in
+ * a subdirectory of the file store (on the same file system), so that it can be committed with an
+ * atomic move. Content staged in a single pass from a stream is digested as it is written, so that
+ * it need not be read again when committed.
+ * <p>The latency of store, commit, and delete operations is recorded by the {@code
+ * gallery.storage} timer (tagged by {@code operation}), and the number of bytes written by the
+ * {@code gallery.storage.written} counter. The {@code gallery.storage.size} and {@code
+ * gallery.storage.files} gauges report the total size and number of stored files; these are
+ * maintained incrementally, and corrected by a periodic scan of the file store. In addition, a
+ * {@link StorageEvent} is emitted to Flight Recorder for each of these operations.</p>
  */
 @Service
 public class LocalFilesystemStorageService implements StorageService {
 
+  /**
+   * Name of the subdirectory of the file store in which content is staged before being moved into
+   * place.
+   */
+  public static final String STAGING_DIRECTORY = ".staging";
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalFilesystemStorageService.class);
+
   private static final String REFERENCE_PATH_DELIMITER = "/";
-  private static final String REFERENCE_PATH_FORMAT = "%s" + REFERENCE_PATH_DELIMITER + "%s";
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String CONCURRENT_APPEND_MESSAGE =
+      "Staged content is being appended concurrently";
+  private static final String OFFSET_MISMATCH_FORMAT =
+      "Offset %d does not match length %d of staged content";
+  private static final String LIMIT_EXCEEDED_FORMAT = "Appended content exceeds %d bytes";
+  private static final String INVALID_STAGED_FORMAT = "Invalid staging reference: %s";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final String STORAGE_TIMER = "gallery.storage";
+  private static final String OPERATION_TAG = "operation";
+  private static final String STORE_OPERATION = "store";
+  private static final String COMMIT_OPERATION = "commit";
+  private static final String DELETE_OPERATION = "delete";
+  private static final String WRITTEN_COUNTER = "gallery.storage.written";
+  private static final String SIZE_GAUGE = "gallery.storage.size";
+  private static final String FILES_GAUGE = "gallery.storage.files";
+  private static final String USAGE_SCAN_FAILURE_MESSAGE = "Unable to measure file store usage";
 
-  private final Random rng;
+  private final FilenameGenerator filenameGenerator;
+  private final ContentSniffer contentSniffer;
   private final Path uploadDirectory;
-  private final Pattern subdirectoryPattern;
+  private final Path stagingDirectory;
   private final Set<String> whitelist;
-  private final DateFormat formatter;
-  private final String filenameFormat;
-  private final int randomizerLimit;
   private final List<MediaType> contentTypes;
+  private final MeterRegistry meterRegistry;
+  private final Timer storeTimer;
+  private final Timer commitTimer;
+  private final Timer deleteTimer;
+  private final Counter writtenCounter;
+  private final AtomicLong storedBytes = new AtomicLong();
+  private final AtomicLong storedFiles = new AtomicLong();
+  private final Map<String, DigestedContent> digestedContent = new ConcurrentHashMap<>();
 
   /**
-   * Initializes this instance with a source of randomness, a service configuration object
-   * (presumably read from {@code application.properties} or {@code application.yml}), and an
-   * instance of {@link ApplicationHome}.
+   * Initializes this instance with a filename generator, a content-type detector, a service
+   * configuration object (presumably read from {@code application.properties} or {@code
+   * application.yml}), an instance of {@link ApplicationHome}, and the {@link MeterRegistry} with
+   * which storage metrics are registered.
    *
-   * @param rng                 Source of randomness.
+   * @param filenameGenerator   Generator of staged filenames and subdirectory paths.
+   * @param contentSniffer      Detector of MIME types from leading content bytes.
    * @param uploadConfiguration Configuration object read from application properties.
    * @param applicationHome     Application location context.
+   * @param meterRegistry       Registry of application metrics.
    */
   @Autowired
-  public LocalFilesystemStorageService(
-      Random rng, UploadConfiguration uploadConfiguration, ApplicationHome applicationHome) {
-    this.rng = rng;
-    FilenameProperties filenameProperties = uploadConfiguration.getFilename();
-    TimestampProperties timestampProperties = filenameProperties.getTimestamp();
+  public LocalFilesystemStorageService(FilenameGenerator filenameGenerator,
+      ContentSniffer contentSniffer, UploadConfiguration uploadConfiguration,
+      ApplicationHome applicationHome, MeterRegistry meterRegistry) {
+    this.filenameGenerator = filenameGenerator;
+    this.contentSniffer = contentSniffer;
     String uploadPath = uploadConfiguration.getDirectory();
     uploadDirectory = uploadConfiguration.isApplicationHome()
         ? applicationHome.getDir().toPath().resolve(uploadPath)
         : Path.of(uploadPath);
+    stagingDirectory = uploadDirectory.resolve(STAGING_DIRECTORY);
     //noinspection ResultOfMethodCallIgnored
-    uploadDirectory.toFile().mkdirs();
-    subdirectoryPattern = uploadConfiguration.getSubdirectoryPattern();
+    stagingDirectory.toFile().mkdirs();
     whitelist = uploadConfiguration.getWhitelist();
     contentTypes = whitelist.stream()
         .map(MediaType::valueOf)
         .collect(Collectors.toList());
-    filenameFormat = filenameProperties.getFormat();
-    randomizerLimit = filenameProperties.getRandomizerLimit();
-    formatter = new SimpleDateFormat(timestampProperties.getFormat());
-    formatter.setTimeZone(timestampProperties.getTimeZone());
+    this.meterRegistry = meterRegistry;
+    storeTimer = storageTimer(STORE_OPERATION);
+    commitTimer = storageTimer(COMMIT_OPERATION);
+    deleteTimer = storageTimer(DELETE_OPERATION);
+    writtenCounter = Counter.builder(WRITTEN_COUNTER)
+        .description("Bytes written to the file store")
+        .baseUnit(BaseUnits.BYTES)
+        .register(meterRegistry);
+    Gauge.builder(SIZE_GAUGE, storedBytes, AtomicLong::get)
+        .description("Total size of stored files")
+        .baseUnit(BaseUnits.BYTES)
+        .register(meterRegistry);
+    Gauge.builder(FILES_GAUGE, storedFiles, AtomicLong::get)
+        .description("Number of stored files")
+        .baseUnit(BaseUnits.FILES)
+        .register(meterRegistry);
   }
 
+  /**
+   * Stores the specified file under a name derived from the SHA-256 digest of its content. The
+   * leading bytes of the uploaded file are first examined to detect its MIME type, which must be on
+   * the whitelist and compatible with the declared content type. The file is then transferred to a
+   * uniquely named file in the staging directory; where the multipart content has been spooled to
+   * disk on the same file system (see {@code spring.servlet.multipart.location}), this is a rename,
+   * rather than a copy. Finally, the digest of the staged file is computed, and the file is moved
+   * into place atomically, or discarded if a file with identical content is already present in the
+   * store. Thus, identical uploads share a single stored file, and the same reference is returned
+   * for each.
+   */
   @Override
-  public String store(MultipartFile file) throws IOException, HttpMediaTypeNotAcceptableException {
-    if (!whitelist.contains(file.getContentType())) {
-      throw new HttpMediaTypeNotAcceptableException(contentTypes);
+  public StoredContent store(MultipartFile file)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    StorageEvent event = newEvent(STORE_OPERATION);
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      return storeMultipart(file, event);
+    } finally {
+      sample.stop(storeTimer);
+      event.commit();
+    }
+  }
+
+  private StoredContent storeMultipart(MultipartFile file, StorageEvent event)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    event.bytes = file.getSize();
+    String detected;
+    try (InputStream input = file.getInputStream()) {
+      byte[] header = input.readNBytes(ContentSniffer.SIGNATURE_LENGTH);
+      detected = contentSniffer.detect(header, header.length);
+    }
+    event.contentType = detected;
+    checkContentType(file.getContentType(), detected);
+    Path staged = stagingDirectory.resolve(generateStagedFilename(file.getOriginalFilename()));
+    try {
+      file.transferTo(staged.toFile());
+      writtenCounter.increment(file.getSize());
+      MessageDigest digest = newDigest();
+      try (InputStream input = new DigestInputStream(Files.newInputStream(staged), digest)) {
+        input.transferTo(OutputStream.nullOutputStream());
+      }
+      return new StoredContent(moveIntoPlace(staged, digest, event), detected);
+    } finally {
+      Files.deleteIfExists(staged);
     }
-    String originalFilename = file.getOriginalFilename();
-    String newFilename = String.format(filenameFormat,
-        formatter.format(new Date()), rng.nextInt(randomizerLimit),
-        getExtension((originalFilename != null) ? originalFilename : ""));
-    String subdirectory = getSubdirectory(newFilename);
-    Path resolvedPath = uploadDirectory.resolve(subdirectory);
-    //noinspection ResultOfMethodCallIgnored
-    resolvedPath.toFile().mkdirs();
-    Files.copy(file.getInputStream(), resolvedPath.resolve(newFilename));
-    return String.format(REFERENCE_PATH_FORMAT, subdirectory, newFilename);
   }
 
   @Override
   public Resource retrieve(String reference) throws IOException {
-    Path file = uploadDirectory.resolve(reference);
-    return new UrlResource(file.toUri());
+    try {
+      return new FileSystemResource(uploadDirectory.resolve(reference));
+    } catch (InvalidPathException e) {
+      throw new IOException(e);
+    }
   }
 
   @Override
   public boolean delete(String reference)
       throws IOException, UnsupportedOperationException, SecurityException {
+    StorageEvent event = newEvent(DELETE_OPERATION);
+    event.reference = reference;
+    Timer.Sample sample = Timer.start(meterRegistry);
     try {
       File file = uploadDirectory.resolve(reference).toFile();
-      return file.delete();
+      long length = file.length();
+      boolean deleted = file.delete();
+      if (deleted) {
+        storedFiles.decrementAndGet();
+        storedBytes.addAndGet(-length);
+        event.bytes = length;
+      }
+      return deleted;
     } catch (InvalidPathException e) {
       throw new IOException(e);
+    } finally {
+      sample.stop(deleteTimer);
+      event.commit();
+    }
+  }
+
+  /**
+   * Walks the file store, returning the references to all stored files. Files in the staging
+   * directory are excluded.
+   */
+  @Override
+  public Stream<String> list() throws IOException {
+    return Files.walk(uploadDirectory)
+        .filter((path) -> !path.startsWith(stagingDirectory) && Files.isRegularFile(path))
+        .map(this::toReference);
+  }
+
+  /**
+   * Walks the file store (excluding the staging directory), and sets the values reported by the
+   * {@code gallery.storage.size} and {@code gallery.storage.files} gauges to the total size and
+   * number of stored files. This corrects any drift in the incrementally maintained values (e.g.
+   * from files added or removed outside this service).
+   */
+  @Scheduled(fixedDelayString = "#{@uploadConfiguration.usageScanInterval.toMillis()}")
+  public void measureUsage() {
+    try (Stream<Path> files = Files.walk(uploadDirectory)) {
+      LongSummaryStatistics statistics = files
+          .filter((path) -> !path.startsWith(stagingDirectory) && Files.isRegularFile(path))
+          .mapToLong((path) -> path.toFile().length())
+          .summaryStatistics();
+      storedFiles.set(statistics.getCount());
+      storedBytes.set(statistics.getSum());
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn(USAGE_SCAN_FAILURE_MESSAGE, e);
     }
   }
 
-  @NonNull
-  private String getExtension(@NonNull String filename) {
-    int position;
-    return ((position = filename.lastIndexOf('.')) >= 0) ? filename.substring(position + 1) : "";
+  private String toReference(Path file) {
+    return StreamSupport.stream(uploadDirectory.relativize(file).spliterator(), false)
+        .map(Path::toString)
+        .collect(Collectors.joining(REFERENCE_PATH_DELIMITER));
   }
 
-  private String getSubdirectory(@NonNull String filename) {
-    String path;
-    Matcher matcher = subdirectoryPattern.matcher(filename);
-    if (matcher.matches()) {
-      path = IntStream.rangeClosed(1, matcher.groupCount())
-          .mapToObj(matcher::group)
-          .collect(Collectors.joining(REFERENCE_PATH_DELIMITER));
-    } else {
-      path = "";
+  @Override
+  public String stage(String originalFilename, String contentType)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    if (!whitelist.contains(contentType)) {
+      throw new HttpMediaTypeNotAcceptableException(contentTypes);
     }
-    return path;
+    return createStaged(originalFilename);
   }
+
+  /**
+   * Examines the leading bytes of {@code input} (without consuming them) before anything is written,
+   * so that content of a type not on the whitelist, or not compatible with {@code contentType}, is
+   * rejected immediately; the content is then written to the staging directory in a single pass,
+   * as for {@link #append(String, long, InputStream, long)}. The SHA-256 digest of the content is
+   * computed as it is written, and retained (along with the detected MIME type) for use by {@link
+   * #commit(String)}.
+   */
+  @Override
+  public String stage(InputStream input, String originalFilename, String contentType, long limit)
+      throws IOException, HttpMediaTypeNotAcceptableException, ContentTooLargeException {
+    BufferedInputStream buffered = new BufferedInputStream(input);
+    String detected = contentSniffer.detect(buffered);
+    checkContentType(contentType, detected);
+    String staged = createStaged(originalFilename);
+    MessageDigest digest = newDigest();
+    try {
+      append(staged, 0, new DigestInputStream(buffered, digest), limit);
+      digestedContent.put(staged, new DigestedContent(digest, detected));
+      return staged;
+    } catch (IOException | ContentTooLargeException | RuntimeException e) {
+      discard(staged);
+      throw e;
+    }
+  }
+
+  @Override
+  public long getStagedLength(String staged) throws IOException {
+    return Files.size(resolveStaged(staged));
+  }
+
+  /**
+   * Appends content to the staged file via {@link FileChannel#transferFrom(ReadableByteChannel,
+   * long, long)}, while holding an exclusive lock on the file. If {@code input} contains more than
+   * {@code limit} bytes, the staged file is truncated to its original length, so that the entire
+   * chunk is rejected.
+   */
+  @Override
+  public long append(String staged, long offset, InputStream input, long limit)
+      throws IOException, IllegalStateException, ContentTooLargeException {
+    try (
+        FileChannel channel = FileChannel.open(resolveStaged(staged), StandardOpenOption.WRITE);
+        FileLock lock = tryLock(channel)
+    ) {
+      if (lock == null) {
+        throw new IllegalStateException(CONCURRENT_APPEND_MESSAGE);
+      }
+      if (channel.size() != offset) {
+        throw new IllegalStateException(
+            String.format(OFFSET_MISMATCH_FORMAT, offset, channel.size()));
+      }
+      ReadableByteChannel source = Channels.newChannel(input);
+      long position = offset;
+      long end = offset + limit;
+      long transferred;
+      while (position < end
+          && (transferred = channel.transferFrom(source, position, end - position)) > 0) {
+        position += transferred;
+      }
+      if (position == end && input.read() >= 0) {
+        channel.truncate(offset);
+        throw new ContentTooLargeException(String.format(LIMIT_EXCEEDED_FORMAT, limit));
+      }
+      writtenCounter.increment(position - offset);
+      return position;
+    }
+  }
+
+  /**
+   * Detects the MIME type of the staged file from its leading bytes while computing its SHA-256
+   * digest, and then moves it into place atomically (or discards it, if a file with identical
+   * content is already present in the store). If the detected type is not on the whitelist, the
+   * staged file is discarded. For content staged by {@link #stage(InputStream, String, String,
+   * long)}, the digest and MIME type computed while staging are used, and the file isn't read.
+   */
+  @Override
+  public StoredContent commit(String staged)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    StorageEvent event = newEvent(COMMIT_OPERATION);
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      return commitStaged(staged, event);
+    } finally {
+      sample.stop(commitTimer);
+      event.commit();
+    }
+  }
+
+  private StoredContent commitStaged(String staged, StorageEvent event)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    Path file = resolveStaged(staged);
+    DigestedContent digested = digestedContent.remove(staged);
+    try {
+      event.bytes = Files.size(file);
+      MessageDigest digest;
+      String detected;
+      if (digested != null) {
+        digest = digested.digest;
+        detected = digested.contentType;
+        event.contentType = detected;
+      } else {
+        digest = newDigest();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+          byte[] header = input.readNBytes(ContentSniffer.SIGNATURE_LENGTH);
+          detected = contentSniffer.detect(header, header.length);
+          event.contentType = detected;
+          checkContentType(null, detected);
+          input.transferTo(OutputStream.nullOutputStream());
+        }
+      }
+      return new StoredContent(moveIntoPlace(file, digest, event), detected);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Override
+  public void discard(String staged) throws IOException {
+    digestedContent.remove(staged);
+    Files.deleteIfExists(resolveStaged(staged));
+  }
+
+  private void checkContentType(String declared, String detected)
+      throws HttpMediaTypeNotAcceptableException {
+    if (!whitelist.contains(detected) || !contentSniffer.isCompatible(declared, detected)) {
+      throw new HttpMediaTypeNotAcceptableException(contentTypes);
+    }
+  }
+
+  private String createStaged(String originalFilename) throws IOException {
+    String stagedFilename = generateStagedFilename(originalFilename);
+    Files.createFile(stagingDirectory.resolve(stagedFilename));
+    return stagedFilename;
+  }
+
+  private String generateStagedFilename(String originalFilename) {
+    return filenameGenerator.generate(
+        filenameGenerator.getExtension((originalFilename != null) ? originalFilename : ""));
+  }
+
+  private Path resolveStaged(String staged) throws IOException {
+    try {
+      Path file = stagingDirectory.resolve(staged).normalize();
+      if (!stagingDirectory.equals(file.getParent())) {
+        throw new IOException(String.format(INVALID_STAGED_FORMAT, staged));
+      }
+      return file;
+    } catch (InvalidPathException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null; // Locked by another thread in this JVM.
+    }
+  }
+
+  private String moveIntoPlace(Path staged, MessageDigest digest, StorageEvent event)
+      throws IOException {
+    String digestFilename = toHex(digest.digest());
+    String subdirectory = filenameGenerator.getSubdirectory(digestFilename);
+    String reference = subdirectory.isEmpty()
+        ? digestFilename
+        : subdirectory + REFERENCE_PATH_DELIMITER + digestFilename;
+    Path target = uploadDirectory.resolve(reference);
+    event.reference = reference;
+    if (!Files.exists(target)) {
+      Files.createDirectories(target.getParent());
+      Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+      storedFiles.incrementAndGet();
+      storedBytes.addAndGet(event.bytes);
+      event.stored = true;
+    }
+    return reference;
+  }
+
+  private StorageEvent newEvent(String operation) {
+    StorageEvent event = new StorageEvent();
+    event.operation = operation;
+    event.begin();
+    return event;
+  }
+
+  private Timer storageTimer(String operation) {
+    return Timer.builder(STORAGE_TIMER)
+        .description("Latency of file store operations")
+        .tag(OPERATION_TAG, operation)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // Every Java platform is required to support SHA-256.
+    }
+  }
+
+  private String toHex(byte[] bytes) {
+    char[] chars = new char[2 * bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+
+  private static class DigestedContent {
+
+    private final MessageDigest digest;
+    private final String contentType;
+
+    private DigestedContent(MessageDigest digest, String contentType) {
+      this.digest = digest;
+      this.contentType = contentType;
+    }
+
+  }
+
 }
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.lang.NonNull;
+
+/**
+ * {@link org.springframework.core.io.Resource} backed by a {@link FileChannel} that is opened when
+ * the instance is created. Since the content remains readable through the open channel even if the
+ * file is subsequently deleted (on platforms that permit deleting an open file), this is suitable
+ * for serving files from a cache that may evict them concurrently. The content may be read only
+ * once; closing the channel returned by {@link #readableChannel()} (or the stream returned by
+ * {@link #getInputStream()}) closes this resource, as does {@link #close()}.
+ */
+public class OpenFileResource extends AbstractResource implements Closeable {
+
+  private final Path file;
+  private final FileChannel channel;
+
+  /**
+   * Opens the specified file for reading.
+   *
+   * @param file Location of the file.
+   * @throws IOException If the file does not exist, or cannot be opened.
+   */
+  public OpenFileResource(@NonNull Path file) throws IOException {
+    this.file = file;
+    channel = FileChannel.open(file);
+  }
+
+  @Override
+  public boolean exists() {
+    return channel.isOpen();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return true;
+  }
+
+  @Override
+  public long contentLength() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public ReadableByteChannel readableChannel() {
+    return channel;
+  }
+
+  @NonNull
+  @Override
+  public InputStream getInputStream() {
+    return Channels.newInputStream(channel);
+  }
+
+  @NonNull
+  @Override
+  public String getDescription() {
+    return "Open file [" + file + "]";
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+}
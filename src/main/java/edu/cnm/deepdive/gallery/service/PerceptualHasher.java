@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.service.ImageScaler.Fit;
+import edu.cnm.deepdive.gallery.service.ImageScaler.OutputFormat;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes 64-bit difference hashes (dHash) of images. The image is decoded with subsampling,
+ * reduced to a 9&times;8 grid, and converted to luminance; each bit of the hash records whether
+ * a cell is brighter than its right-hand neighbor. Since the hash reflects only the gradients of
+ * the coarse structure of an image, visually similar images (e.g. re-encoded, resized, or slightly
+ * adjusted copies) have hashes differing in few bits, as measured by {@link #distance(long,
+ * long)}.
+ */
+@Component
+public class PerceptualHasher {
+
+  private static final int GRID_WIDTH = 9;
+  private static final int GRID_HEIGHT = 8;
+  /**
+   * Factor by which the decoded image is larger than the grid; subsampling while decoding is
+   * effectively point sampling, so decoding much closer to the grid size would make the hash
+   * sensitive to aliasing (and thus to the dimensions of the original).
+   */
+  private static final int OVERSAMPLING = 8;
+
+  /**
+   * Width (in pixels) that should be passed to {@link ImageScaler#read(Resource, int, int)} when
+   * decoding an image to be passed to {@link #hash(BufferedImage)}.
+   */
+  public static final int DECODE_WIDTH = GRID_WIDTH * OVERSAMPLING;
+  /**
+   * Height (in pixels) that should be passed to {@link ImageScaler#read(Resource, int, int)} when
+   * decoding an image to be passed to {@link #hash(BufferedImage)}.
+   */
+  public static final int DECODE_HEIGHT = GRID_HEIGHT * OVERSAMPLING;
+
+  private final ImageScaler scaler;
+
+  /**
+   * Initializes this instance with the {@link ImageScaler} used to decode and reduce images.
+   *
+   * @param scaler Image decoder and scaler.
+   */
+  @Autowired
+  public PerceptualHasher(ImageScaler scaler) {
+    this.scaler = scaler;
+  }
+
+  /**
+   * Computes and returns the difference hash of the image content of {@code resource}, after
+   * applying the rotation and/or reflection specified by its EXIF {@code orientation}; thus, copies
+   * of an image that differ only in whether they are stored rotated or tagged for rotation have the
+   * same hash.
+   *
+   * @param resource    Image content.
+   * @param orientation EXIF orientation (1&ndash;8) of the image, or {@code null} if none.
+   * @return 64-bit difference hash.
+   * @throws IOException If the content cannot be read or decoded.
+   */
+  public long hash(@NonNull Resource resource, Integer orientation) throws IOException {
+    return hash(scaler.orient(scaler.read(resource, DECODE_WIDTH, DECODE_HEIGHT), orientation));
+  }
+
+  /**
+   * Computes and returns the difference hash of an image that has already been decoded, with
+   * subsampling limited as specified by {@link #DECODE_WIDTH} and {@link #DECODE_HEIGHT}, and put
+   * in display orientation (see {@link ImageScaler#orient(BufferedImage, Integer)}).
+   *
+   * @param decoded Decoded image.
+   * @return 64-bit difference hash.
+   */
+  public long hash(@NonNull BufferedImage decoded) {
+    BufferedImage grid =
+        scaler.scale(decoded, GRID_WIDTH, GRID_HEIGHT, Fit.FILL, OutputFormat.JPEG);
+    long hash = 0;
+    for (int y = 0; y < GRID_HEIGHT; y++) {
+      int left = luminance(grid.getRGB(0, y));
+      for (int x = 1; x < GRID_WIDTH; x++) {
+        int right = luminance(grid.getRGB(x, y));
+        hash = (hash << 1) | ((left > right) ? 1 : 0);
+        left = right;
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the Hamming distance (the number of differing bits) between two hashes.
+   *
+   * @param hash1 Hash of one image.
+   * @param hash2 Hash of another image.
+   * @return Number of bits (0&ndash;64) in which the hashes differ.
+   */
+  public static int distance(long hash1, long hash2) {
+    return Long.bitCount(hash1 ^ hash2);
+  }
+
+  private int luminance(int rgb) {
+    int red = (rgb >> 16) & 0xff;
+    int green = (rgb >> 8) & 0xff;
+    int blue = rgb & 0xff;
+    return 299 * red + 587 * green + 114 * blue;
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.service.ImageScaler.Fit;
+import edu.cnm.deepdive.gallery.service.ImageScaler.OutputFormat;
+import java.awt.image.BufferedImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes low-quality placeholders of images as <a href="https://blurha.sh/">BlurHash</a> strings.
+ * A BlurHash is a compact (at most 28 characters, for the component counts used here) base-83
+ * encoding of the leading coefficients of a discrete cosine transform of the image; a client can
+ * decode it to a blurred approximation of the image, at any size, and display that until the
+ * image (or a thumbnail) has been loaded. Since only the lowest frequencies are retained, the
+ * placeholder is computed from a small (at most 32&times;32) reduction of the image.
+ */
+@Component
+public class PlaceholderEncoder {
+
+  private static final int SAMPLE_SIZE = 32;
+  private static final int LONG_COMPONENTS = 4;
+  private static final int SHORT_COMPONENTS = 3;
+  private static final String BASE_83_DIGITS =
+      "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+  private static final double[] SRGB_TO_LINEAR = new double[256];
+
+  static {
+    for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+      double value = i / 255.0;
+      SRGB_TO_LINEAR[i] = (value <= 0.04045)
+          ? value / 12.92
+          : Math.pow((value + 0.055) / 1.055, 2.4);
+    }
+  }
+
+  private final ImageScaler scaler;
+
+  /**
+   * Initializes this instance with the {@link ImageScaler} used to reduce images before encoding.
+   *
+   * @param scaler Image scaler.
+   */
+  @Autowired
+  public PlaceholderEncoder(ImageScaler scaler) {
+    this.scaler = scaler;
+  }
+
+  /**
+   * Computes and returns the BlurHash of {@code image}. 4 horizontal and 3 vertical components are
+   * encoded for a landscape image; 3 horizontal and 4 vertical, for a portrait image.
+   *
+   * @param image Decoded image (possibly already reduced, e.g. by subsampling when decoding), in
+   *              display orientation (see {@link ImageScaler#orient(BufferedImage, Integer)}).
+   * @return BlurHash string.
+   */
+  @NonNull
+  public String encode(@NonNull BufferedImage image) {
+    BufferedImage sample =
+        scaler.scale(image, SAMPLE_SIZE, SAMPLE_SIZE, Fit.CONTAIN, OutputFormat.JPEG);
+    int width = sample.getWidth();
+    int height = sample.getHeight();
+    int componentsX = (width >= height) ? LONG_COMPONENTS : SHORT_COMPONENTS;
+    int componentsY = (width >= height) ? SHORT_COMPONENTS : LONG_COMPONENTS;
+    int[] pixels = sample.getRGB(0, 0, width, height, null, 0, width);
+    double[][] factors = new double[componentsX * componentsY][];
+    for (int j = 0; j < componentsY; j++) {
+      for (int i = 0; i < componentsX; i++) {
+        factors[j * componentsX + i] = factor(pixels, width, height, i, j);
+      }
+    }
+    StringBuilder builder = new StringBuilder();
+    appendBase83(builder, (componentsX - 1) + (componentsY - 1) * 9, 1);
+    double maximum = 0;
+    for (int i = 1; i < factors.length; i++) {
+      for (double value : factors[i]) {
+        maximum = Math.max(maximum, Math.abs(value));
+      }
+    }
+    int quantizedMaximum = (int) Math.max(0, Math.min(82, Math.floor(maximum * 166 - 0.5)));
+    double scale = (quantizedMaximum + 1) / 166.0;
+    appendBase83(builder, quantizedMaximum, 1);
+    double[] dc = factors[0];
+    appendBase83(builder,
+        (linearToSrgb(dc[0]) << 16) | (linearToSrgb(dc[1]) << 8) | linearToSrgb(dc[2]), 4);
+    for (int i = 1; i < factors.length; i++) {
+      double[] ac = factors[i];
+      int red = quantize(ac[0] / scale);
+      int green = quantize(ac[1] / scale);
+      int blue = quantize(ac[2] / scale);
+      appendBase83(builder, (red * 19 + green) * 19 + blue, 2);
+    }
+    return builder.toString();
+  }
+
+  private double[] factor(int[] pixels, int width, int height, int componentX, int componentY) {
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    for (int y = 0; y < height; y++) {
+      double basisY = Math.cos(Math.PI * componentY * y / height);
+      for (int x = 0; x < width; x++) {
+        double basis = Math.cos(Math.PI * componentX * x / width) * basisY;
+        int rgb = pixels[y * width + x];
+        red += basis * SRGB_TO_LINEAR[(rgb >> 16) & 0xff];
+        green += basis * SRGB_TO_LINEAR[(rgb >> 8) & 0xff];
+        blue += basis * SRGB_TO_LINEAR[rgb & 0xff];
+      }
+    }
+    double normalization = ((componentX == 0 && componentY == 0) ? 1.0 : 2.0) / (width * height);
+    return new double[]{red * normalization, green * normalization, blue * normalization};
+  }
+
+  private static int linearToSrgb(double value) {
+    double clamped = Math.max(0, Math.min(1, value));
+    return (clamped <= 0.0031308)
+        ? (int) (clamped * 12.92 * 255 + 0.5)
+        : (int) ((1.055 * Math.pow(clamped, 1 / 2.4) - 0.055) * 255 + 0.5);
+  }
+
+  private static int quantize(double value) {
+    double signedRoot = Math.copySign(Math.sqrt(Math.abs(value)), value);
+    return (int) Math.max(0, Math.min(18, Math.floor(signedRoot * 9 + 9.5)));
+  }
+
+  private static void appendBase83(StringBuilder builder, int value, int length) {
+    int divisor = 1;
+    for (int i = 1; i < length; i++) {
+      divisor *= 83;
+    }
+    for (int i = 0; i < length; i++) {
+      builder.append(BASE_83_DIGITS.charAt((value / divisor) % 83));
+      divisor /= 83;
+    }
+  }
+
+}
@@ -0,0 +1,303 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.CacheProperties;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.service.ImageScaler.Fit;
+import edu.cnm.deepdive.gallery.service.ImageScaler.OutputFormat;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resizes stored images on demand, keeping the results in an on-disk cache with a limit on the
+ * total size of cached files. When that limit is exceeded, the least recently used files are
+ * evicted. Concurrent requests for the same resized image are coalesced, so that only one of them
+ * performs the resizing, while the others wait for (and share) the result; the number of distinct
+ * images resized concurrently is bounded, and requests beyond that bound are rejected rather than
+ * queued. To bound the number of cached variants of each image, requested dimensions are snapped
+ * to a fixed set of supported dimensions, and never exceed those of the original.
+ * <p>As with {@link DerivativeService}, cached files are keyed by the opaque storage reference,
+ * rather than by {@link Image}.</p>
+ */
+@Service
+public class ResizeService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ResizeService.class);
+
+  private static final String CACHED_FILENAME_FORMAT = "%dx%d-%s.%s";
+  private static final String EVICTION_FAILURE_FORMAT = "Unable to evict %s from resize cache";
+  private static final String REJECTED_MESSAGE = "Too many images being resized";
+  private static final int[] DIMENSIONS = {
+      16, 24, 32, 48, 64, 96, 128, 160, 192, 256, 320, 384, 480, 512, 640, 768, 800, 960, 1024,
+      1280, 1440, 1600, 1920, 2048, 2560, 3072, 3840, 4096
+  };
+
+  private final StorageService storageService;
+  private final ImageScaler scaler;
+  private final Path cacheDirectory;
+  private final long maxSize;
+  private final Semaphore permits;
+  private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+  private final ConcurrentMap<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+  private long size;
+
+  /**
+   * Initializes this instance with the collaborators used to read stored content and scale images,
+   * along with the cache configuration. Any files already in the cache directory are indexed, in
+   * order of last modification, as the initial least-recently-used order.
+   *
+   * @param storageService      File store containing original images.
+   * @param scaler              Image decoder, scaler, and encoder.
+   * @param uploadConfiguration Configuration object read from application properties.
+   * @param applicationHome     Application location context.
+   * @throws IOException If the cache directory cannot be created or read.
+   */
+  @Autowired
+  public ResizeService(StorageService storageService, ImageScaler scaler,
+      UploadConfiguration uploadConfiguration, ApplicationHome applicationHome)
+      throws IOException {
+    this.storageService = storageService;
+    this.scaler = scaler;
+    CacheProperties properties = uploadConfiguration.getCache();
+    maxSize = properties.getMaxSize().toBytes();
+    permits = new Semaphore(properties.getMaxConcurrent());
+    String cachePath = properties.getDirectory();
+    cacheDirectory = uploadConfiguration.isApplicationHome()
+        ? applicationHome.getDir().toPath().resolve(cachePath)
+        : Path.of(cachePath);
+    Files.createDirectories(cacheDirectory);
+    try (Stream<Path> files = Files.walk(cacheDirectory)) {
+      List<Map.Entry<Path, BasicFileAttributes>> entries = files
+          .filter(Files::isRegularFile)
+          .map((file) -> Map.entry(file, readAttributes(file)))
+          .sorted(Comparator.comparing((entry) -> entry.getValue().lastModifiedTime()))
+          .collect(Collectors.toList());
+      synchronized (index) {
+        entries.forEach((entry) -> add(entry.getKey(), entry.getValue().size()));
+        evict();
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Returns the content of {@code image}, scaled to the specified {@code width} and {@code height}
+   * as constrained by {@code fit}. If the resized image is not already in the cache, it is
+   * generated and added to the cache before being returned. The cached file is opened while the
+   * cache index is locked, so that it can still be read if it is evicted before (or while) it is
+   * served; the caller must close the returned resource.
+   *
+   * @param image  {@link Image} whose content is to be resized.
+   * @param width  Target width (in pixels).
+   * @param height Target height (in pixels).
+   * @param fit    Constraint on the relationship between the source and target dimensions.
+   * @return Resized image content, open for reading.
+   * @throws IOException                If the stored content cannot be read or resized, or the
+   *                                    result cannot be written to the cache.
+   * @throws RejectedExecutionException If the resized image is not in the cache, and the maximum
+   *                                    number of images are already being resized.
+   */
+  @NonNull
+  public OpenFileResource retrieve(@NonNull Image image, int width, int height, @NonNull Fit fit)
+      throws IOException {
+    OutputFormat format = getFormat(image);
+    Path file = cacheDirectory
+        .resolve(image.getPath())
+        .resolve(String.format(CACHED_FILENAME_FORMAT,
+            width, height, fit.name().toLowerCase(Locale.ROOT), format.getExtension()));
+    OpenFileResource resource = open(file);
+    while (resource == null) {
+      CompletableFuture<Path> future = new CompletableFuture<>();
+      CompletableFuture<Path> pending = inFlight.putIfAbsent(file, future);
+      if (pending == null) {
+        try {
+          resource = open(file);
+          if (resource == null) {
+            if (!permits.tryAcquire()) {
+              throw new RejectedExecutionException(REJECTED_MESSAGE);
+            }
+            try {
+              Resource source = storageService.retrieve(image.getPath());
+              scaler.write(scaler.scale(scaler.read(source, width, height), width, height, fit,
+                  format), format, file);
+            } finally {
+              permits.release();
+            }
+            synchronized (index) {
+              add(file, Files.size(file));
+              resource = new OpenFileResource(file); // Opened before it can be evicted.
+              evict();
+            }
+          }
+          future.complete(file);
+        } catch (IOException | RuntimeException e) {
+          future.completeExceptionally(e);
+          throw e;
+        } finally {
+          inFlight.remove(file, future);
+        }
+      } else {
+        await(pending);
+        resource = open(file); // If already evicted, generate it again.
+      }
+    }
+    return resource;
+  }
+
+  /**
+   * Returns the smallest supported dimension not less than {@code dimension} (or the largest
+   * supported dimension, if {@code dimension} exceeds it), limited to {@code original}, if that is
+   * known. Resizing only to the dimensions returned by this method bounds the number of resized
+   * images cached for each original, and avoids scaling up.
+   *
+   * @param dimension Requested width or height (in pixels).
+   * @param original  Corresponding dimension of the original image, or {@code null} if unknown.
+   * @return Supported width or height (in pixels).
+   */
+  public int snap(int dimension, Integer original) {
+    int index = Arrays.binarySearch(DIMENSIONS, dimension);
+    int snapped = DIMENSIONS[Math.min((index >= 0) ? index : -index - 1, DIMENSIONS.length - 1)];
+    return (original != null && original > 0) ? Math.min(snapped, original) : snapped;
+  }
+
+  /**
+   * Returns the format in which resized images of {@code image} are encoded.
+   *
+   * @param image {@link Image} to be resized.
+   * @return Resized image format, including MIME type.
+   */
+  @NonNull
+  public OutputFormat getFormat(@NonNull Image image) {
+    return OutputFormat.forContentType(image.getContentType());
+  }
+
+  /**
+   * Removes all cached resized images generated from the stored content referenced by {@code
+   * reference}.
+   *
+   * @param reference Opaque reference to stored content.
+   * @throws IOException If a cached file exists but cannot be deleted.
+   */
+  public void delete(@NonNull String reference) throws IOException {
+    Path directory = cacheDirectory.resolve(reference);
+    synchronized (index) {
+      for (Iterator<Map.Entry<Path, Long>> iter = index.entrySet().iterator(); iter.hasNext(); ) {
+        Map.Entry<Path, Long> entry = iter.next();
+        if (entry.getKey().startsWith(directory)) {
+          Files.deleteIfExists(entry.getKey());
+          size -= entry.getValue();
+          iter.remove();
+        }
+      }
+      try {
+        Files.deleteIfExists(directory);
+      } catch (DirectoryNotEmptyException e) {
+        // Files not (yet) indexed remain; they'll be evicted in due course.
+      }
+    }
+  }
+
+  /**
+   * Opens {@code file} if it is in the cache (updating the access order), or returns {@code null}
+   * otherwise. A cached file deleted by some other means is removed from the index, so that it
+   * will be generated again.
+   */
+  private OpenFileResource open(Path file) throws IOException {
+    synchronized (index) {
+      OpenFileResource resource = null;
+      Long fileSize = index.get(file);
+      if (fileSize != null) {
+        try {
+          resource = new OpenFileResource(file);
+        } catch (NoSuchFileException e) {
+          index.remove(file);
+          size -= fileSize;
+        }
+      }
+      return resource;
+    }
+  }
+
+  private void await(CompletableFuture<Path> pending) throws IOException {
+    try {
+      pending.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw (cause instanceof RuntimeException) ? (RuntimeException) cause : e;
+    }
+  }
+
+  private void add(Path file, long fileSize) {
+    Long previous = index.put(file, fileSize);
+    size += fileSize - ((previous != null) ? previous : 0);
+  }
+
+  private void evict() {
+    for (Iterator<Map.Entry<Path, Long>> iter = index.entrySet().iterator();
+        size > maxSize && iter.hasNext(); ) {
+      Map.Entry<Path, Long> entry = iter.next();
+      try {
+        Files.deleteIfExists(entry.getKey());
+        size -= entry.getValue();
+        iter.remove();
+      } catch (IOException e) {
+        logger.warn(String.format(EVICTION_FAILURE_FORMAT, entry.getKey()), e);
+      }
+    }
+  }
+
+  private static BasicFileAttributes readAttributes(Path file) {
+    try {
+      return Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
@@ -0,0 +1,282 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains an in-memory index of the perceptual hashes (see {@link PerceptualHasher}) of images,
+ * supporting search for all hashes within a specified Hamming distance of a query hash. The index
+ * is partitioned (by hash value) into shards, each of which is a BK-tree: since Hamming distance
+ * is a metric, the triangle inequality allows a search to skip every subtree whose edge distance
+ * differs from the distance between the query and the subtree's parent by more than the search
+ * radius. The shards are independent, so that they can be built concurrently by {@link
+ * #rebuild(Map, Executor, int)}.
+ */
+@Component
+public class SimilarityIndex {
+
+  private static final int DEFAULT_SHARDS = 1;
+
+  private final Map<UUID, Long> hashes = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Shard[] shards = newShards(DEFAULT_SHARDS);
+
+  /**
+   * Adds the image with the specified {@code id} to the index, replacing any previously indexed
+   * hash for the same {@code id}.
+   *
+   * @param id   Unique identifier of the image.
+   * @param hash Perceptual hash of the image.
+   */
+  public void put(@NonNull UUID id, long hash) {
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      unindex(id);
+      hashes.put(id, hash);
+      shardFor(shards, hash).add(hash, id);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Removes the image with the specified {@code id} from the index. If no image with the specified
+   * {@code id} is indexed, this method has no effect.
+   *
+   * @param id Unique identifier of the image.
+   */
+  public void remove(@NonNull UUID id) {
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      unindex(id);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the indexed hash of the image with the specified {@code id}, or {@code null} if the
+   * image is not indexed.
+   *
+   * @param id Unique identifier of the image.
+   * @return Perceptual hash of the image, or {@code null}.
+   */
+  public Long get(@NonNull UUID id) {
+    Lock readLock = lock.readLock();
+    readLock.lock();
+    try {
+      return hashes.get(id);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the identifiers of all indexed images with hashes within {@code maxDistance} bits of
+   * {@code hash}, ordered by increasing distance.
+   *
+   * @param hash        Perceptual hash of the query image.
+   * @param maxDistance Maximum Hamming distance (inclusive) of matching hashes.
+   * @return Identifiers of matching images.
+   */
+  @NonNull
+  public List<UUID> search(long hash, int maxDistance) {
+    List<Match> matches = new ArrayList<>();
+    Lock readLock = lock.readLock();
+    readLock.lock();
+    try {
+      for (Shard shard : shards) {
+        shard.search(hash, maxDistance, matches);
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return matches.stream()
+        .sorted(Comparator.comparingInt((Match match) -> match.distance))
+        .flatMap((match) -> match.ids.stream())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Replaces the contents of the index with the specified hashes, building {@code shardCount}
+   * shards concurrently on {@code executor}. The existing index remains searchable until the new
+   * shards are complete; any images added to the index while the rebuild is in progress are
+   * discarded when the new shards are installed.
+   *
+   * @param source     Perceptual hashes, keyed by image identifier.
+   * @param executor   Executor on which shards are built.
+   * @param shardCount Number of shards.
+   */
+  public void rebuild(@NonNull Map<UUID, Long> source, @NonNull Executor executor,
+      int shardCount) {
+    Shard[] rebuilt = newShards(Math.max(1, shardCount));
+    List<List<Map.Entry<UUID, Long>>> partitions = new ArrayList<>(rebuilt.length);
+    for (int i = 0; i < rebuilt.length; i++) {
+      partitions.add(new LinkedList<>());
+    }
+    for (Map.Entry<UUID, Long> entry : source.entrySet()) {
+      partitions.get(shardIndex(rebuilt.length, entry.getValue())).add(entry);
+    }
+    CompletableFuture<?>[] tasks = new CompletableFuture<?>[rebuilt.length];
+    for (int i = 0; i < rebuilt.length; i++) {
+      Shard shard = rebuilt[i];
+      List<Map.Entry<UUID, Long>> partition = partitions.get(i);
+      tasks[i] = CompletableFuture.runAsync(() -> {
+        for (Map.Entry<UUID, Long> entry : partition) {
+          shard.add(entry.getValue(), entry.getKey());
+        }
+      }, executor);
+    }
+    CompletableFuture.allOf(tasks).join();
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      hashes.clear();
+      hashes.putAll(source);
+      shards = rebuilt;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void unindex(UUID id) {
+    Long hash = hashes.remove(id);
+    if (hash != null) {
+      shardFor(shards, hash).remove(hash, id);
+    }
+  }
+
+  private static Shard[] newShards(int count) {
+    Shard[] shards = new Shard[count];
+    for (int i = 0; i < count; i++) {
+      shards[i] = new Shard();
+    }
+    return shards;
+  }
+
+  private static Shard shardFor(Shard[] shards, long hash) {
+    return shards[shardIndex(shards.length, hash)];
+  }
+
+  private static int shardIndex(int count, long hash) {
+    return Math.floorMod(Long.hashCode(hash), count);
+  }
+
+  /**
+   * BK-tree of distinct hashes. Images with identical hashes share a node; when the last image is
+   * removed from a node, the node is retained (with no identifiers), since it may still be on the
+   * search path to its descendants.
+   */
+  private static class Shard {
+
+    private final Map<Long, Node> nodes = new HashMap<>();
+
+    private Node root;
+
+    void add(long hash, UUID id) {
+      Node node = nodes.get(hash);
+      if (node == null) {
+        node = new Node(hash);
+        nodes.put(hash, node);
+        if (root == null) {
+          root = node;
+        } else {
+          Node parent = root;
+          int distance;
+          Node child;
+          while ((child = parent.children.get(
+              distance = PerceptualHasher.distance(parent.hash, hash))) != null) {
+            parent = child;
+          }
+          parent.children.put(distance, node);
+        }
+      }
+      node.ids.add(id);
+    }
+
+    void remove(long hash, UUID id) {
+      Node node = nodes.get(hash);
+      if (node != null) {
+        node.ids.remove(id);
+      }
+    }
+
+    void search(long hash, int maxDistance, List<Match> matches) {
+      if (root != null) {
+        List<Node> pending = new LinkedList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+          Node node = pending.remove(0);
+          int distance = PerceptualHasher.distance(node.hash, hash);
+          if (distance <= maxDistance && !node.ids.isEmpty()) {
+            matches.add(new Match(distance, new ArrayList<>(node.ids)));
+          }
+          for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+            if (Math.abs(entry.getKey() - distance) <= maxDistance) {
+              pending.add(entry.getValue());
+            }
+          }
+        }
+      }
+    }
+
+  }
+
+  private static class Node {
+
+    private final long hash;
+    private final Set<UUID> ids = new LinkedHashSet<>();
+    private final Map<Integer, Node> children = new HashMap<>();
+
+    Node(long hash) {
+      this.hash = hash;
+    }
+
+  }
+
+  private static class Match {
+
+    private final int distance;
+    private final List<UUID> ids;
+
+    Match(int distance, List<UUID> ids) {
+      this.distance = distance;
+      this.ids = ids;
+    }
+
+  }
+
+}
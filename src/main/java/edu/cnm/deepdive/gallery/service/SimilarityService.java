@@ -0,0 +1,212 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.SimilarityProperties;
+import edu.cnm.deepdive.gallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Computes perceptual hashes of stored images, and maintains the {@link SimilarityIndex} used to
+ * find visually similar (and near-duplicate) images. On startup, the index is rebuilt from the
+ * hashes persisted with the images, with the shards of the index built concurrently by a
+ * fixed-size pool of worker threads; hashes missing from the database (i.e. for images stored
+ * before hashing was introduced) are then computed by the same workers, in the background.
+ */
+@Service
+public class SimilarityService {
+
+  private static final Logger logger = LoggerFactory.getLogger(SimilarityService.class);
+
+  private static final String WORKER_THREAD_PREFIX = "similarity-";
+  private static final String HASH_FAILURE_FORMAT = "Unable to compute perceptual hash of %s";
+  private static final String REBUILD_FORMAT =
+      "Similarity index built from %d hashes; %d missing hashes scheduled for computation";
+
+  private final ImageRepository imageRepository;
+  private final StorageService storageService;
+  private final PerceptualHasher hasher;
+  private final SimilarityIndex index;
+  private final int workers;
+  private final int duplicateDistance;
+  private final int maxDistance;
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Initializes this instance with the collaborators used to read images and stored content,
+   * compute hashes, and index them, along with the configuration of similarity thresholds and
+   * worker threads.
+   *
+   * @param imageRepository     Spring Data repository providing CRUD operations on {@link Image}
+   *                            instances.
+   * @param storageService      File store containing original images.
+   * @param hasher              Perceptual hash calculator.
+   * @param index               In-memory index of perceptual hashes.
+   * @param uploadConfiguration Configuration object read from application properties.
+   */
+  @Autowired
+  public SimilarityService(ImageRepository imageRepository, StorageService storageService,
+      PerceptualHasher hasher, SimilarityIndex index, UploadConfiguration uploadConfiguration) {
+    this.imageRepository = imageRepository;
+    this.storageService = storageService;
+    this.hasher = hasher;
+    this.index = index;
+    SimilarityProperties properties = uploadConfiguration.getSimilarity();
+    workers = Math.max(1, properties.getWorkers());
+    duplicateDistance = properties.getDuplicateDistance();
+    maxDistance = properties.getMaxDistance();
+    executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), new CustomizableThreadFactory(WORKER_THREAD_PREFIX));
+  }
+
+  /**
+   * Rebuilds the similarity index from the persisted hashes, and schedules computation of any
+   * missing hashes. Images are added to the index as their hashes are computed.
+   */
+  @PostConstruct
+  public void rebuild() {
+    Map<UUID, Long> hashes = new HashMap<>();
+    List<Object[]> unhashed = new ArrayList<>();
+    for (Object[] row : imageRepository.getAllPerceptualHashes()) {
+      if (row[1] != null) {
+        hashes.put((UUID) row[0], (Long) row[1]);
+      } else {
+        unhashed.add(row);
+      }
+    }
+    index.rebuild(hashes, executor, workers);
+    unhashed.forEach((row) -> executor.execute(
+        () -> backfill((UUID) row[0], (String) row[2], (Integer) row[3])));
+    logger.info(String.format(REBUILD_FORMAT, hashes.size(), unhashed.size()));
+  }
+
+  /**
+   * Shuts down the worker threads; any pending hash computations are abandoned, to be resumed on
+   * the next startup.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Computes and returns the perceptual hash of the specified image, which must have been decoded
+   * with subsampling limited as specified by {@link PerceptualHasher#DECODE_WIDTH} and {@link
+   * PerceptualHasher#DECODE_HEIGHT}, and put in display orientation (see {@link
+   * ImageScaler#orient(BufferedImage, Integer)}).
+   *
+   * @param decoded Decoded image.
+   * @return Perceptual hash.
+   */
+  public long hash(@NonNull BufferedImage decoded) {
+    return hasher.hash(decoded);
+  }
+
+  /**
+   * Adds {@code image} to the similarity index, if its perceptual hash has been computed.
+   *
+   * @param image Persisted image.
+   */
+  public void index(@NonNull Image image) {
+    if (image.getPerceptualHash() != null) {
+      index.put(image.getId(), image.getPerceptualHash());
+    }
+  }
+
+  /**
+   * Removes {@code image} from the similarity index.
+   *
+   * @param image Deleted image.
+   */
+  public void remove(@NonNull Image image) {
+    index.remove(image.getId());
+  }
+
+  /**
+   * Returns the identifiers of images with perceptual hashes within {@code maxDistance} bits of
+   * that of {@code image}, in increasing order of distance. {@code image} itself is excluded; if
+   * its hash has not been computed, the result is empty.
+   *
+   * @param image       Query image.
+   * @param maxDistance Maximum Hamming distance (inclusive) between hashes.
+   * @return Identifiers of similar images.
+   */
+  @NonNull
+  public List<UUID> findSimilar(@NonNull Image image, int maxDistance) {
+    Long hash = (image.getPerceptualHash() != null)
+        ? image.getPerceptualHash()
+        : index.get(image.getId());
+    return (hash == null)
+        ? List.of()
+        : index.search(hash, maxDistance).stream()
+            .filter((id) -> !id.equals(image.getId()))
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the identifiers of likely duplicates of {@code image}, i.e. images with perceptual
+   * hashes within the configured {@code upload.similarity.duplicate-distance} of its hash.
+   *
+   * @param image Query image.
+   * @return Identifiers of likely duplicates.
+   */
+  @NonNull
+  public List<UUID> findDuplicates(@NonNull Image image) {
+    return findSimilar(image, duplicateDistance);
+  }
+
+  /**
+   * Returns the maximum distance that may be specified in a similarity search, as configured by
+   * {@code upload.similarity.max-distance}.
+   *
+   * @return Maximum search distance.
+   */
+  public int getMaxDistance() {
+    return maxDistance;
+  }
+
+  private void backfill(UUID id, String path, Integer orientation) {
+    try {
+      long hash = hasher.hash(storageService.retrieve(path), orientation);
+      if (imageRepository.setPerceptualHash(id, hash) == 1) {
+        index.put(id, hash);
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn(String.format(HASH_FAILURE_FORMAT, path), e);
+    }
+  }
+
+}
@@ -0,0 +1,235 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.CollectorProperties;
+import edu.cnm.deepdive.gallery.model.dao.DeletionTaskRepository;
+import edu.cnm.deepdive.gallery.model.dao.ImageRepository;
+import edu.cnm.deepdive.gallery.model.entity.DeletionTask;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Deletes stored content (along with its derivatives and resized copies) that is no longer
+ * referenced by any {@link Image}. Rather than deleting files in the request thread, deletion of an
+ * image records a {@link DeletionTask} in the same transaction; pending tasks are then processed in
+ * batches by a periodic collection. In addition, the entire file store is periodically reconciled
+ * against the database, to reclaim files orphaned by failures (e.g. content stored for an image
+ * that could not be persisted).
+ * <p>Since identical content is stored only once, a file may only be deleted when no image
+ * references it; this check (followed by deletion of the file) must not overlap with a store
+ * operation that may be adding a reference to the same content. The latter is therefore expected
+ * to hold the lock returned by {@link #lockReferences()} for the duration of the operation.</p>
+ */
+@Service
+public class StorageCollector {
+
+  private static final Logger logger = LoggerFactory.getLogger(StorageCollector.class);
+
+  private static final String DELETION_FAILURE_FORMAT = "Unable to delete %s (attempt %d)";
+  private static final String ORPHAN_FAILURE_FORMAT = "Unable to delete unreferenced file %s";
+  private static final String RECONCILIATION_FAILURE_MESSAGE = "Unable to reconcile file store";
+  private static final String RECONCILIATION_FORMAT = "Deleted %d unreferenced files";
+
+  private final ImageRepository imageRepository;
+  private final DeletionTaskRepository taskRepository;
+  private final StorageService storageService;
+  private final DerivativeService derivativeService;
+  private final ResizeService resizeService;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final ReadWriteLock referenceLock = new ReentrantReadWriteLock();
+
+  /**
+   * Initializes this instance with the collaborators used to check for references to stored
+   * content, persist pending deletions, and delete files, along with the batch configuration.
+   *
+   * @param imageRepository     Spring Data repository providing CRUD operations on {@link Image}
+   *                            instances.
+   * @param taskRepository      Spring Data repository providing CRUD operations on {@link
+   *                            DeletionTask} instances.
+   * @param storageService      File store.
+   * @param derivativeService   Generator &amp; store of resized derivatives.
+   * @param resizeService       On-demand resizer &amp; cache of resized images.
+   * @param uploadConfiguration Configuration object read from application properties.
+   */
+  @Autowired
+  public StorageCollector(ImageRepository imageRepository, DeletionTaskRepository taskRepository,
+      StorageService storageService, DerivativeService derivativeService,
+      ResizeService resizeService, UploadConfiguration uploadConfiguration) {
+    this.imageRepository = imageRepository;
+    this.taskRepository = taskRepository;
+    this.storageService = storageService;
+    this.derivativeService = derivativeService;
+    this.resizeService = resizeService;
+    CollectorProperties properties = uploadConfiguration.getCollector();
+    batchSize = properties.getBatchSize();
+    maxAttempts = properties.getMaxAttempts();
+  }
+
+  /**
+   * Acquires and returns a shared lock, which prevents collection of stored content while a new
+   * reference to that content is being persisted. Any number of such locks may be held
+   * concurrently; the caller must release the lock (via {@link Lock#unlock()}) when the reference
+   * has been persisted (or the operation has failed).
+   *
+   * @return Acquired lock.
+   */
+  @NonNull
+  public Lock lockReferences() {
+    Lock lock = referenceLock.readLock();
+    lock.lock();
+    return lock;
+  }
+
+  /**
+   * Records a pending deletion of the content referenced by {@code reference}. If invoked within a
+   * transaction (e.g. one in which an {@link Image} is deleted), the pending deletion is persisted
+   * only if that transaction is committed.
+   *
+   * @param reference Opaque reference to stored content that may no longer be in use.
+   */
+  public void schedule(@NonNull String reference) {
+    DeletionTask task = new DeletionTask();
+    task.setPath(reference);
+    taskRepository.save(task);
+  }
+
+  /**
+   * Processes pending deletions, in batches of (at most) {@code upload.collector.batch-size}, until
+   * none remain. The content (with derivatives and resized copies) referenced by each task is
+   * deleted if no {@link Image} references it; tasks that fail are retried in a subsequent
+   * collection, up to {@code upload.collector.max-attempts} times.
+   */
+  @Scheduled(fixedDelayString = "#{@uploadConfiguration.collector.interval.toMillis()}")
+  public void collect() {
+    boolean more;
+    do {
+      List<DeletionTask> tasks =
+          taskRepository.getAllByOrderByCreatedAsc(PageRequest.of(0, batchSize));
+      if (tasks.isEmpty()) {
+        break;
+      }
+      List<DeletionTask> completed = new ArrayList<>(tasks.size());
+      List<DeletionTask> failed = new ArrayList<>();
+      Set<String> collected = new HashSet<>();
+      Lock lock = referenceLock.writeLock();
+      lock.lock();
+      try {
+        Set<String> referenced = imageRepository.findAllReferencedPaths(
+            tasks.stream().map(DeletionTask::getPath).collect(Collectors.toSet()));
+        for (DeletionTask task : tasks) {
+          try {
+            if (collected.add(task.getPath()) && !referenced.contains(task.getPath())) {
+              delete(task.getPath());
+            }
+            completed.add(task);
+          } catch (IOException | RuntimeException e) {
+            task.setAttempts(task.getAttempts() + 1);
+            logger.warn(
+                String.format(DELETION_FAILURE_FORMAT, task.getPath(), task.getAttempts()), e);
+            if (task.getAttempts() >= maxAttempts) {
+              completed.add(task);
+            } else {
+              failed.add(task);
+            }
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      taskRepository.deleteInBatch(completed);
+      taskRepository.saveAll(failed);
+      more = tasks.size() == batchSize && failed.isEmpty(); // Leave failures for the next run.
+    } while (more);
+  }
+
+  /**
+   * Walks the file store, deleting all files (with derivatives and resized copies) not referenced
+   * by any {@link Image}. Files are checked in batches of {@code upload.collector.batch-size}, with
+   * a single query per batch, so that store operations are blocked only briefly.
+   */
+  @Scheduled(
+      initialDelayString = "#{@uploadConfiguration.collector.reconcileInterval.toMillis()}",
+      fixedDelayString = "#{@uploadConfiguration.collector.reconcileInterval.toMillis()}"
+  )
+  public void reconcile() {
+    int deleted = 0;
+    try (Stream<String> references = storageService.list()) {
+      Iterator<String> iterator = references.iterator();
+      List<String> batch = new ArrayList<>(batchSize);
+      while (iterator.hasNext()) {
+        batch.add(iterator.next());
+        if (batch.size() == batchSize || !iterator.hasNext()) {
+          deleted += deleteIfUnreferenced(batch);
+          batch.clear();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn(RECONCILIATION_FAILURE_MESSAGE, e);
+    }
+    if (deleted > 0) {
+      logger.info(String.format(RECONCILIATION_FORMAT, deleted));
+    }
+  }
+
+  private int deleteIfUnreferenced(List<String> references) {
+    int deleted = 0;
+    Lock lock = referenceLock.writeLock();
+    lock.lock();
+    try {
+      Set<String> referenced = imageRepository.findAllReferencedPaths(references);
+      for (String reference : references) {
+        try {
+          if (!referenced.contains(reference) && delete(reference)) {
+            deleted++;
+          }
+        } catch (IOException e) {
+          logger.warn(String.format(ORPHAN_FAILURE_FORMAT, reference), e);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return deleted;
+  }
+
+  private boolean delete(String reference) throws IOException {
+    boolean deleted = storageService.delete(reference);
+    derivativeService.delete(reference);
+    resizeService.delete(reference);
+    return deleted;
+  }
+
+}
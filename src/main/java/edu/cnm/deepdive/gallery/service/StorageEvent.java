@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted by {@link LocalFilesystemStorageService} for each store, commit, or
+ * delete operation on the file store.
+ */
+@Name("edu.cnm.deepdive.gallery.Storage")
+@Label("File Store Operation")
+@Category({"Gallery", "Storage"})
+@Description("Operation on the local file store")
+class StorageEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Reference")
+  String reference;
+
+  @Label("Content Type")
+  String contentType;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Stored")
+  @Description("Whether a new file was added to the store (false if the content was a duplicate)")
+  boolean stored;
+
+}
@@ -16,34 +16,46 @@
 package edu.cnm.deepdive.gallery.service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.stream.Stream;
 import org.springframework.core.io.Resource;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
- * Declares {@link #store(MultipartFile)}, {@link #retrieve(String)}, and {@link #delete(String)}
- * methods for a file store. The key expectations for implementing and consuming this interface are
- * these:
+ * Declares {@link #store(MultipartFile)}, {@link #retrieve(String)}, {@link #delete(String)}, and
+ * {@link #list()} methods for a file store, along with methods for staging content (whether streamed
+ * directly from a request body, or written incrementally in a resumable upload) and then committing
+ * it to the store. The key expectations for implementing and consuming this interface
+ * are these:
  * <ul>
  *   <li>Files will not be updated or versioned; updates must be saved as distinct files.</li>
  *   <li>Filenames will not be respected by the file store itself; instead, an opaque {@link String}
- *   reference, presumed unique, will be returned when a file is stored, and the same reference must
- *   be provided when retrieving or deleting a file. On the other hand, this means that a consumer
- *   of a service implementing this interface need not be concerned with filename collisions.</li>
+ *   reference will be returned when a file is stored, and the same reference must be provided when
+ *   retrieving or deleting a file. On the other hand, this means that a consumer of a service
+ *   implementing this interface need not be concerned with filename collisions.</li>
+ *   <li>An implementation may store files with identical content only once, returning the same
+ *   reference each time such content is stored. Consequently, a consumer must not delete a file
+ *   while any other reference to it is still in use.</li>
  * </ul>
  */
 public interface StorageService {
 
   /**
-   * Stores the specified file, returning an opaque reference to the file as a {@link String}.
+   * Stores the specified file, returning a {@link StoredContent} containing an opaque reference to
+   * the file as a {@link String}, along with the MIME type detected from the file content. An
+   * implementation should not trust the content type declared for {@code file}; instead, the
+   * detected type must be allowed, and compatible with the declared type.
    *
    * @param file Uploaded file.
-   * @return Opaque reference, to be used when retrieving or deleting the file from the store.
+   * @return {@link StoredContent} with opaque reference, to be used when retrieving or deleting the
+   * file from the store, and detected MIME type.
    * @throws IOException                         If the file cannot be written for any reason.
-   * @throws HttpMediaTypeNotAcceptableException If the content-type of {@code file} is not
-   *                                             allowed.
+   * @throws HttpMediaTypeNotAcceptableException If the detected content type of {@code file} is not
+   *                                             allowed, or is not compatible with the declared
+   *                                             content type.
    */
-  String store(MultipartFile file) throws IOException, HttpMediaTypeNotAcceptableException;
+  StoredContent store(MultipartFile file) throws IOException, HttpMediaTypeNotAcceptableException;
 
   /**
    * Retrieves a file from a reference (as returned by {@link #store(MultipartFile)}), returning a
@@ -58,7 +70,9 @@ public interface StorageService {
   Resource retrieve(String reference) throws IOException;
 
   /**
-   * Deletes the file referred to by the provided opaque {@code reference}.
+   * Deletes the file referred to by the provided opaque {@code reference}. Since references to
+   * identical content may be shared, the consumer is responsible for ensuring that no other
+   * references to the file remain before invoking this method.
    *
    * @param reference Opaque reference {@link String} returned from {@link #store(MultipartFile)}.
    * @return {@code true} if the file was successfully deleted from the store; false otherwise.
@@ -71,4 +85,99 @@ public interface StorageService {
   boolean delete(String reference)
       throws IOException, UnsupportedOperationException, SecurityException;
 
+  /**
+   * Returns the references to all files in the store, in no particular order. This is intended for
+   * reconciliation of the file store against the references in use, and is not expected to be
+   * invoked frequently. The returned {@link Stream} may hold open file system resources, and should
+   * be closed after use.
+   *
+   * @return {@link Stream} of opaque references, as returned by {@link #store(MultipartFile)}.
+   * @throws IOException If the file store cannot be read.
+   */
+  Stream<String> list() throws IOException;
+
+  /**
+   * Reserves a staging location for content that will be written incrementally, returning an
+   * opaque staging reference. The staged content is not visible in the store until it is passed to
+   * {@link #commit(String)}.
+   *
+   * @param originalFilename Original name of the file (used only for its extension).
+   * @param contentType      MIME type of the content.
+   * @return Opaque staging reference.
+   * @throws IOException                         If the staging location cannot be created.
+   * @throws HttpMediaTypeNotAcceptableException If {@code contentType} is not allowed.
+   */
+  String stage(String originalFilename, String contentType)
+      throws IOException, HttpMediaTypeNotAcceptableException;
+
+  /**
+   * Stages content read from {@code input} (e.g. the body of a request, as it is received),
+   * returning an opaque staging reference, which may then be passed to {@link #commit(String)}. An
+   * implementation should detect the content type from the leading bytes of the content, and check
+   * it against the whitelist and {@code contentType}, before writing any of the content.
+   *
+   * @param input            Source of content to be staged.
+   * @param originalFilename Original name of the file (used only for its extension).
+   * @param contentType      Declared MIME type of the content.
+   * @param limit            Maximum number of bytes to be staged.
+   * @return Opaque staging reference.
+   * @throws IOException                         If the content cannot be read or written.
+   * @throws HttpMediaTypeNotAcceptableException If the detected content type is not allowed, or is
+   *                                             not compatible with {@code contentType}.
+   * @throws ContentTooLargeException            If {@code input} contains more than {@code limit}
+   *                                             bytes.
+   */
+  String stage(InputStream input, String originalFilename, String contentType, long limit)
+      throws IOException, HttpMediaTypeNotAcceptableException, ContentTooLargeException;
+
+  /**
+   * Returns the number of bytes written so far to the staged content.
+   *
+   * @param staged Opaque staging reference, as returned by {@link #stage(String, String)}.
+   * @return Length (in bytes) of the staged content.
+   * @throws IOException If the staged content cannot be read.
+   */
+  long getStagedLength(String staged) throws IOException;
+
+  /**
+   * Appends content read from {@code input} to the staged content, starting at {@code offset},
+   * which must be equal to the current length of the staged content. At most {@code limit} bytes
+   * are read; if {@code input} contains more, the excess is not written, and an exception is
+   * thrown.
+   *
+   * @param staged Opaque staging reference, as returned by {@link #stage(String, String)}.
+   * @param offset Position at which the content is to be written.
+   * @param input  Source of content to be appended.
+   * @param limit  Maximum number of bytes to be appended.
+   * @return Length (in bytes) of the staged content after appending.
+   * @throws IOException              If the content cannot be read or written.
+   * @throws IllegalStateException    If {@code offset} is not equal to the current length of the
+   *                                  staged content, or if content is being appended concurrently.
+   * @throws ContentTooLargeException If {@code input} contains more than {@code limit} bytes.
+   */
+  long append(String staged, long offset, InputStream input, long limit)
+      throws IOException, IllegalStateException, ContentTooLargeException;
+
+  /**
+   * Moves the staged content into the store, returning an opaque reference to the stored file and
+   * the MIME type detected from its content, as for {@link #store(MultipartFile)}.
+   *
+   * @param staged Opaque staging reference, as returned by {@link #stage(String, String)}.
+   * @return {@link StoredContent} with opaque reference, to be used when retrieving or deleting the
+   * file from the store, and detected MIME type.
+   * @throws IOException                         If the staged content cannot be read or moved.
+   * @throws HttpMediaTypeNotAcceptableException If the content type detected from the staged
+   *                                             content is not allowed; in this case, the staged
+   *                                             content is discarded.
+   */
+  StoredContent commit(String staged) throws IOException, HttpMediaTypeNotAcceptableException;
+
+  /**
+   * Deletes the staged content, if it exists.
+   *
+   * @param staged Opaque staging reference, as returned by {@link #stage(String, String)}.
+   * @throws IOException If the staged content cannot be deleted.
+   */
+  void discard(String staged) throws IOException;
+
 }
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+/**
+ * Describes content written to a {@link StorageService}: the opaque reference to the stored file,
+ * and the MIME type detected from the content itself (which is authoritative, regardless of the
+ * MIME type declared by the client).
+ */
+public final class StoredContent {
+
+  private final String reference;
+  private final String contentType;
+
+  /**
+   * Initializes this instance with the specified reference and detected MIME type.
+   *
+   * @param reference   Opaque reference to the stored file.
+   * @param contentType MIME type detected from the content.
+   */
+  public StoredContent(String reference, String contentType) {
+    this.reference = reference;
+    this.contentType = contentType;
+  }
+
+  /**
+   * Returns the opaque reference to the stored file, to be used when retrieving or deleting it.
+   */
+  public String getReference() {
+    return reference;
+  }
+
+  /**
+   * Returns the MIME type detected from the content.
+   */
+  public String getContentType() {
+    return contentType;
+  }
+
+}
@@ -1,6 +1,8 @@
 package edu.cnm.deepdive.gallery.service;
 
 import edu.cnm.deepdive.gallery.model.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.Collections;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
@@ -11,16 +13,24 @@ import org.springframework.stereotype.Service;
 
 /**
  * Converter to create a {@link UsernamePasswordAuthenticationToken} from a JSON web token (JWT)
- * bearer token.
+ * bearer token. The latency of each conversion is recorded by the {@code gallery.auth.convert}
+ * timer.
  */
 @Service
 public class TokenConverterService implements Converter<Jwt, UsernamePasswordAuthenticationToken> {
 
+  private static final String CONVERT_TIMER = "gallery.auth.convert";
+
   private final UserService userService;
+  private final Timer convertTimer;
 
   @Autowired
-  public TokenConverterService(UserService userService) {
+  public TokenConverterService(UserService userService, MeterRegistry meterRegistry) {
     this.userService = userService;
+    convertTimer = Timer.builder(CONVERT_TIMER)
+        .description("Latency of bearer token conversion (including user lookup)")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
   }
 
   /**
@@ -34,11 +44,11 @@ public class TokenConverterService implements Converter<Jwt, UsernamePasswordAut
    */
   @Override
   public UsernamePasswordAuthenticationToken convert(Jwt jwt) {
-    return new UsernamePasswordAuthenticationToken(
+    return convertTimer.record(() -> new UsernamePasswordAuthenticationToken(
         userService.getOrCreate(jwt.getSubject(), jwt.getClaim("name")),
         jwt.getTokenValue(),
         Collections.singleton(new SimpleGrantedAuthority("ROLE_USER"))
-    );
+    ));
   }
 
 }
@@ -0,0 +1,200 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import java.text.Normalizer;
+import java.text.Normalizer.Form;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains an in-memory inverted index of the trigrams (3-character substrings) found in the text
+ * fields of indexed documents, supporting substring search in time proportional to the number of
+ * candidate documents, rather than to the total number of documents. Text is normalized (by
+ * lowercasing and removing diacritical marks) before indexing and searching, so that matching is
+ * insensitive to case and accents, consistent with the database collation.
+ */
+@Component
+public class TrigramIndex {
+
+  /** Minimum length of a (normalized) search fragment that can be resolved by this index. */
+  public static final int GRAM_LENGTH = 3;
+
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+  private final Map<String, Set<UUID>> postings = new HashMap<>();
+  private final Map<UUID, List<String>> documents = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Adds the specified document to the index, replacing any previously indexed fields for the same
+   * {@code id}. {@code null} fields are ignored.
+   *
+   * @param id     Unique identifier of the document.
+   * @param fields Text fields of the document.
+   */
+  public void put(@NonNull UUID id, String... fields) {
+    List<String> normalized = new ArrayList<>(fields.length);
+    for (String field : fields) {
+      if (field != null) {
+        normalized.add(normalize(field));
+      }
+    }
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      unindex(id);
+      documents.put(id, normalized);
+      for (String field : normalized) {
+        for (String gram : trigrams(field)) {
+          postings.computeIfAbsent(gram, (key) -> new HashSet<>()).add(id);
+        }
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Removes the specified document from the index. If no document with the specified {@code id} is
+   * indexed, this method has no effect.
+   *
+   * @param id Unique identifier of the document.
+   */
+  public void remove(@NonNull UUID id) {
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      unindex(id);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Removes all documents from the index.
+   */
+  public void clear() {
+    Lock writeLock = lock.writeLock();
+    writeLock.lock();
+    try {
+      postings.clear();
+      documents.clear();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Returns a flag indicating whether {@code fragment} is long enough (after normalization) to be
+   * resolved by {@link #search(String)}.
+   *
+   * @param fragment Search text.
+   * @return {@code true} if {@code fragment} contains at least one trigram; {@code false}
+   * otherwise.
+   */
+  public boolean isSearchable(@NonNull String fragment) {
+    return normalize(fragment).length() >= GRAM_LENGTH;
+  }
+
+  /**
+   * Returns the identifiers of all indexed documents with at least one field containing {@code
+   * fragment}. The trigrams of {@code fragment} are used to select candidate documents (starting
+   * with the least common trigram), and each candidate is then verified against the normalized
+   * fields, so the result contains no false positives.
+   *
+   * @param fragment Search text; should satisfy {@link #isSearchable(String)}.
+   * @return Identifiers of matching documents.
+   */
+  @NonNull
+  public Set<UUID> search(@NonNull String fragment) {
+    String normalized = normalize(fragment);
+    Set<UUID> matches = new HashSet<>();
+    Lock readLock = lock.readLock();
+    readLock.lock();
+    try {
+      List<Set<UUID>> candidates = new LinkedList<>();
+      for (String gram : trigrams(normalized)) {
+        Set<UUID> ids = postings.get(gram);
+        if (ids == null) {
+          return matches;
+        }
+        candidates.add(ids);
+      }
+      if (!candidates.isEmpty()) {
+        candidates.sort(Comparator.comparingInt(Set::size));
+        Set<UUID> smallest = candidates.remove(0);
+        for (UUID id : smallest) {
+          if (candidates.stream().allMatch((ids) -> ids.contains(id))
+              && documents.get(id).stream().anyMatch((field) -> field.contains(normalized))) {
+            matches.add(id);
+          }
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return matches;
+  }
+
+  private void unindex(UUID id) {
+    List<String> fields = documents.remove(id);
+    if (fields != null) {
+      for (String field : fields) {
+        for (String gram : trigrams(field)) {
+          Set<UUID> ids = postings.get(gram);
+          if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(gram);
+          }
+        }
+      }
+    }
+  }
+
+  private static Set<String> trigrams(String text) {
+    if (text.length() < GRAM_LENGTH) {
+      return Collections.emptySet();
+    }
+    Set<String> grams = new HashSet<>();
+    for (int i = 0; i <= text.length() - GRAM_LENGTH; i++) {
+      grams.add(text.substring(i, i + GRAM_LENGTH));
+    }
+    return grams;
+  }
+
+  private static String normalize(String text) {
+    return COMBINING_MARKS
+        .matcher(Normalizer.normalize(text, Form.NFD))
+        .replaceAll("")
+        .toLowerCase(Locale.ROOT);
+  }
+
+}
@@ -0,0 +1,251 @@
+/*
+ *  Copyright 2020 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.gallery.service;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.SessionProperties;
+import edu.cnm.deepdive.gallery.model.dao.UploadSessionRepository;
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import edu.cnm.deepdive.gallery.model.entity.UploadSession;
+import edu.cnm.deepdive.gallery.model.entity.User;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+/**
+ * Implements resumable (chunked) uploads: a client creates an {@link UploadSession}, declaring the
+ * total length and MIME type of the content; sends the content in one or more chunks, each starting
+ * at the offset given by the number of bytes received so far; and finally completes the session,
+ * creating an {@link Image}. Chunks are appended directly to staged content in the file store, so
+ * an interrupted transfer can be resumed without re-sending the chunks already received. Sessions
+ * not updated within the configured time-to-live are deleted, along with their staged content.
+ */
+@Service
+public class UploadSessionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+  private static final String UNTITLED_FILENAME = "untitled";
+  private static final String INVALID_LENGTH_FORMAT =
+      "Declared length %d is not in the allowed range (1 to %d bytes)";
+  private static final String INCOMPLETE_FORMAT = "Received %d of %d bytes";
+  private static final String CLEANUP_FAILURE_FORMAT =
+      "Unable to delete staged content of expired upload session %s";
+
+  private final UploadSessionRepository sessionRepository;
+  private final StorageService storageService;
+  private final ImageService imageService;
+  private final ContentSniffer contentSniffer;
+  private final long maxSize;
+  private final Duration ttl;
+
+  /**
+   * Initializes this instance with the collaborators used to persist sessions, stage content,
+   * detect content types, and create images, along with the configured session limits.
+   *
+   * @param sessionRepository   Spring Data repository providing CRUD operations on {@link
+   *                            UploadSession} instances.
+   * @param storageService      File store.
+   * @param imageService        Service used to create images from completed sessions.
+   * @param contentSniffer      Detector of MIME types from leading content bytes.
+   * @param uploadConfiguration Configuration object read from application properties.
+   */
+  @Autowired
+  public UploadSessionService(UploadSessionRepository sessionRepository,
+      StorageService storageService, ImageService imageService, ContentSniffer contentSniffer,
+      UploadConfiguration uploadConfiguration) {
+    this.sessionRepository = sessionRepository;
+    this.storageService = storageService;
+    this.imageService = imageService;
+    this.contentSniffer = contentSniffer;
+    SessionProperties properties = uploadConfiguration.getSessions();
+    maxSize = properties.getMaxSize().toBytes();
+    ttl = properties.getTtl();
+  }
+
+  /**
+   * Reserves staging space for the content described by {@code session}, and persists the session
+   * for {@code contributor}.
+   *
+   * @param session     New session, specifying (at least) the total length and MIME type of the
+   *                    content to be uploaded.
+   * @param contributor Uploading {@link User}.
+   * @return Persisted session.
+   * @throws IOException                         If the staging space cannot be reserved.
+   * @throws HttpMediaTypeNotAcceptableException If the MIME type of the content is not on the
+   *                                             whitelist.
+   * @throws ContentTooLargeException            If the declared length exceeds the configured
+   *                                             maximum.
+   * @throws IllegalArgumentException            If the declared length is not positive.
+   */
+  public UploadSession create(@NonNull UploadSession session, @NonNull User contributor)
+      throws IOException, HttpMediaTypeNotAcceptableException, ContentTooLargeException,
+      IllegalArgumentException {
+    if (session.getLength() <= 0) {
+      throw new IllegalArgumentException(
+          String.format(INVALID_LENGTH_FORMAT, session.getLength(), maxSize));
+    }
+    if (session.getLength() > maxSize) {
+      throw new ContentTooLargeException(
+          String.format(INVALID_LENGTH_FORMAT, session.getLength(), maxSize));
+    }
+    if (session.getName() == null) {
+      session.setName(UNTITLED_FILENAME);
+    }
+    session.setStaged(storageService.stage(session.getName(), session.getContentType()));
+    session.setReceived(0);
+    session.setContributor(contributor);
+    return sessionRepository.save(session);
+  }
+
+  /**
+   * Selects and returns the session with the specified {@code id}, created by {@code contributor},
+   * as the content of an {@link Optional}. If no such session exists, the {@link Optional} is
+   * empty. The number of bytes received is taken from the staged content, rather than the
+   * persisted session (which may lag, e.g. if the process was stopped during a transfer); if the
+   * two differ, the session is updated accordingly.
+   *
+   * @param id          Unique identifier of the session.
+   * @param contributor {@link User} that created the session.
+   * @return {@link Optional Optional&lt;UploadSession&gt;} containing the selected session.
+   */
+  public Optional<UploadSession> get(@NonNull UUID id, @NonNull User contributor) {
+    return sessionRepository.findFirstByIdAndContributor(id, contributor)
+        .map(this::synchronizeReceived);
+  }
+
+  /**
+   * Appends a chunk of content, read from {@code input}, to the staged content of {@code session}.
+   * If the transfer is interrupted, the bytes received before the interruption are retained, and
+   * the number of bytes received is updated accordingly. The first chunk must include the leading
+   * bytes (the signature) of the content, from which the content type is detected; if that type is
+   * not compatible with the declared content type, the chunk is rejected before any of it is
+   * written.
+   *
+   * @param session Session to which the chunk is to be appended.
+   * @param offset  Position of the chunk in the content; this must be equal to the number of bytes
+   *                received so far.
+   * @param input   Chunk content.
+   * @return Updated session.
+   * @throws IOException                         If the chunk cannot be read or written.
+   * @throws HttpMediaTypeNotAcceptableException If this is the first chunk, and the content type
+   *                                             detected from it is not compatible with the
+   *                                             declared content type.
+   * @throws IllegalStateException               If {@code offset} is not equal to the number of
+   *                                             bytes received so far, or another chunk is being
+   *                                             appended concurrently.
+   * @throws ContentTooLargeException            If the chunk extends beyond the declared length.
+   */
+  public UploadSession append(@NonNull UploadSession session, long offset,
+      @NonNull InputStream input) throws IOException, HttpMediaTypeNotAcceptableException,
+      IllegalStateException, ContentTooLargeException {
+    String staged = session.getStaged();
+    if (offset == 0) {
+      input = new BufferedInputStream(input);
+      if (!contentSniffer.isCompatible(session.getContentType(), contentSniffer.detect(input))) {
+        throw new HttpMediaTypeNotAcceptableException(session.getContentType());
+      }
+    }
+    try {
+      session.setReceived(
+          storageService.append(staged, offset, input, session.getLength() - offset));
+    } catch (IOException e) {
+      session.setReceived(storageService.getStagedLength(staged));
+      sessionRepository.save(session);
+      throw e;
+    }
+    return sessionRepository.save(session);
+  }
+
+  /**
+   * Commits the staged content of {@code session} to the file store, creating and returning an
+   * {@link Image}; the session is then deleted. The session is also deleted if the staged content
+   * is rejected, since the content is discarded in that case.
+   *
+   * @param session Session whose content has been received in full.
+   * @return {@link Image} instance referencing and describing the uploaded content.
+   * @throws IOException                         If the staged content cannot be committed.
+   * @throws HttpMediaTypeNotAcceptableException If the content type detected from the staged
+   *                                             content is not on the whitelist.
+   * @throws IllegalStateException               If the content has not been received in full.
+   */
+  public Image complete(@NonNull UploadSession session)
+      throws IOException, HttpMediaTypeNotAcceptableException, IllegalStateException {
+    long received = storageService.getStagedLength(session.getStaged());
+    if (received != session.getLength()) {
+      throw new IllegalStateException(
+          String.format(INCOMPLETE_FORMAT, received, session.getLength()));
+    }
+    try {
+      return imageService.store(session.getStaged(), session.getName(),
+          session.getTitle(), session.getDescription(), session.getContributor());
+    } finally {
+      sessionRepository.delete(session);
+    }
+  }
+
+  /**
+   * Deletes {@code session}, discarding its staged content.
+   *
+   * @param session Session to be deleted.
+   * @throws IOException If the staged content cannot be deleted.
+   */
+  public void delete(@NonNull UploadSession session) throws IOException {
+    storageService.discard(session.getStaged());
+    sessionRepository.delete(session);
+  }
+
+  /**
+   * Deletes all sessions (with their staged content) not updated within the configured
+   * time-to-live.
+   */
+  @Scheduled(fixedDelayString = "#{@uploadConfiguration.sessions.cleanupInterval.toMillis()}")
+  public void cleanup() {
+    Date cutoff = new Date(System.currentTimeMillis() - ttl.toMillis());
+    for (UploadSession session : sessionRepository.getAllByUpdatedBefore(cutoff)) {
+      try {
+        delete(session);
+      } catch (IOException e) {
+        logger.warn(String.format(CLEANUP_FAILURE_FORMAT, session.getId()), e);
+      }
+    }
+  }
+
+  private UploadSession synchronizeReceived(UploadSession session) {
+    try {
+      long received = storageService.getStagedLength(session.getStaged());
+      if (received != session.getReceived()) {
+        session.setReceived(received);
+        session = sessionRepository.save(session);
+      }
+    } catch (IOException e) {
+      // Staged content unreadable; this is reported when appending or completing.
+    }
+    return session;
+  }
+
+}
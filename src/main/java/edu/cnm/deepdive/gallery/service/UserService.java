@@ -19,7 +19,11 @@ import edu.cnm.deepdive.gallery.model.dao.UserRepository;
 import edu.cnm.deepdive.gallery.model.entity.User;
 import java.util.Optional;
 import java.util.UUID;
+import javax.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
@@ -32,6 +36,9 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserService {
 
+  /** Name of the cache of {@link User} instances, keyed by OAuth key (i.e. JWT subject). */
+  public static final String USER_CACHE = "users";
+
   private final UserRepository userRepository;
 
   /**
@@ -44,21 +51,41 @@ public class UserService {
     this.userRepository = userRepository;
   }
 
+  /**
+   * Corrects any image counts that differ from the number of images actually contributed by each
+   * user. After this, the counts are maintained incrementally, as images are stored and deleted via
+   * {@link ImageService}.
+   */
+  @PostConstruct
+  public void reconcileImageCounts() {
+    userRepository.reconcileImageCounts();
+  }
+
   /**
    * Retrieves an instance of {@link User} with the specified {@code oauthKey}; if none exists,
-   * creates and persists a new instance.
+   * creates and persists a new instance. Results are cached (with a bounded size and expiration
+   * time) by {@code oauthKey}, so that authenticated requests don't require a database query; for
+   * concurrent invocations with the same {@code oauthKey}, only one proceeds past the cache, while
+   * the others wait for its result. If another process inserts the same user concurrently, the
+   * resulting constraint violation is resolved by selecting the inserted instance.
    *
    * @param oauthKey    OpenID unique identifier.
    * @param displayName Name used for display (not identification) purposes.
    * @return Created or retrieved instance of {@link User}.
    */
+  @Cacheable(cacheNames = USER_CACHE, key = "#oauthKey", sync = true)
   public User getOrCreate(@NonNull String oauthKey, @NonNull String displayName) {
     return userRepository.findFirstByOauthKey(oauthKey)
         .orElseGet(() -> {
           User user = new User();
           user.setOauthKey(oauthKey);
           user.setDisplayName(displayName);
-          return userRepository.save(user);
+          try {
+            return userRepository.save(user);
+          } catch (DataIntegrityViolationException e) {
+            return userRepository.findFirstByOauthKey(oauthKey)
+                .orElseThrow(() -> e);
+          }
         });
   }
 
@@ -76,14 +103,17 @@ public class UserService {
   /**
    * Selects and returns a {@link User} with the specified {@code id}, as the content of an {@link
    * Optional Optional&lt;User&gt;}&mdash;but only if that user is the same as that passed in {@code
-   * user}. This can be used to deny access without information leakage.
+   * user}. This can be used to deny access without information leakage. The returned instance is
+   * freshly loaded, rather than {@code user} itself; since the latter is typically the cached
+   * authentication principal, this allows the returned instance to be modified without affecting
+   * concurrent requests, or leaving the cache inconsistent if the modifications aren't persisted.
    *
    * @param id Unique identifier of the {@link User}.
    * @param user Test user.
    * @return {@link Optional Optional&lt;User&gt;} containing the selected user.
    */
   public Optional<User> get(@NonNull UUID id, @NonNull User user) {
-    return Optional.ofNullable(user.getId().equals(id) ? user : null);
+    return user.getId().equals(id) ? userRepository.findById(id) : Optional.empty();
   }
 
   /**
@@ -95,11 +125,14 @@ public class UserService {
 
   /**
    * Persists (creates or updates) the specified {@link User} to the database, updating the instance
-   * accordingly. (The instance is updated in-place, but the reference to it is also returned.)
+   * accordingly. (The instance is updated in-place, but the reference to it is also returned.) Any
+   * cached instance with the same OAuth key is evicted&mdash;before the update is attempted, so that
+   * the cache doesn't retain a stale (or partially modified) instance if the update fails.
    *
    * @param user Instance to be persisted.
    * @return Updated instance.
    */
+  @CacheEvict(cacheNames = USER_CACHE, key = "#user.oauthKey", beforeInvocation = true)
   public User save(@NonNull User user) {
     return userRepository.save(user);
   }
@@ -0,0 +1,82 @@
+package edu.cnm.deepdive.gallery.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedUuidGeneratorTest {
+
+  private static final int COUNT = 100_000;
+  private static final int THREADS = 4;
+  /**
+   * Maximum lead (in milliseconds) of the encoded timestamp over the clock; the timestamp runs
+   * ahead when more than 4096 values are generated in a millisecond, e.g. by other tests.
+   */
+  private static final long MAX_LEAD = 1_000;
+
+  @Test
+  void next_setsVersionAndVariant() {
+    UUID id = TimeOrderedUuidGenerator.next();
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+  }
+
+  @Test
+  void next_encodesCurrentTime() {
+    long before = System.currentTimeMillis();
+    UUID id = TimeOrderedUuidGenerator.next();
+    long after = System.currentTimeMillis();
+    long timestamp = id.getMostSignificantBits() >>> 16;
+    assertTrue(timestamp >= before, "timestamp precedes generation");
+    assertTrue(timestamp <= after + MAX_LEAD, "timestamp too far ahead of clock");
+  }
+
+  @Test
+  void next_isStrictlyIncreasingAsUnsignedBytes() {
+    byte[] previous = toBytes(TimeOrderedUuidGenerator.next());
+    for (int i = 0; i < COUNT; i++) {
+      byte[] current = toBytes(TimeOrderedUuidGenerator.next());
+      assertTrue(Arrays.compareUnsigned(previous, current) < 0, "keys out of order");
+      previous = current;
+    }
+  }
+
+  @Test
+  void next_isUniqueAcrossThreads() throws Exception {
+    Set<UUID> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      Future<?>[] tasks = new Future<?>[THREADS];
+      for (int i = 0; i < THREADS; i++) {
+        tasks[i] = executor.submit(() -> {
+          for (int j = 0; j < COUNT; j++) {
+            ids.add(TimeOrderedUuidGenerator.next());
+          }
+        });
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(THREADS * COUNT, ids.size());
+  }
+
+  private static byte[] toBytes(UUID id) {
+    return ByteBuffer.allocate(2 * Long.BYTES)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+
+}
@@ -0,0 +1,228 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ContentRangeWriterTest {
+
+  private static final String CONTENT = "0123456789";
+  private static final String CONTENT_TYPE = "text/plain";
+  private static final String ETAG = "\"0123abcd\"";
+  private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+  private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ContentRangeWriter writer = new ContentRangeWriter(meterRegistry);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void write_sendsEntireContentWithoutRange() throws IOException {
+    MockHttpServletResponse response = write(request(null));
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+    assertEquals(CONTENT_TYPE, response.getContentType());
+    assertEquals("10", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    assertEquals(CONTENT, response.getContentAsString());
+  }
+
+  @Test
+  void write_sendsSingleRange() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=2-5"));
+    assertPartial(response, "bytes 2-5/10", "2345");
+  }
+
+  @Test
+  void write_sendsSuffixRange() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=-3"));
+    assertPartial(response, "bytes 7-9/10", "789");
+  }
+
+  @Test
+  void write_truncatesRangeExtendingBeyondContent() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=8-20"));
+    assertPartial(response, "bytes 8-9/10", "89");
+  }
+
+  @Test
+  void write_rejectsRangeStartingBeyondContent() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=10-"));
+    assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+    assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+  }
+
+  @Test
+  void write_sendsSatisfiableRangesOnly() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=20-30,4-4"));
+    assertPartial(response, "bytes 4-4/10", "4");
+  }
+
+  @Test
+  void write_ignoresMalformedRange() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=five-six"));
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals(CONTENT, response.getContentAsString());
+  }
+
+  @Test
+  void write_ignoresOverlappingRangesExceedingContent() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=0-9,0-9"));
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals(CONTENT, response.getContentAsString());
+  }
+
+  @Test
+  void write_sendsMultipleRangesAsMultipart() throws IOException {
+    MockHttpServletResponse response = write(request("bytes=0-1,5-6"));
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    String contentType = response.getContentType();
+    assertTrue(contentType.startsWith("multipart/byteranges; boundary="), contentType);
+    String boundary = contentType.substring(contentType.indexOf('=') + 1);
+    String body = response.getContentAsString();
+    assertEquals(body.length(), Integer.parseInt(response.getHeader(HttpHeaders.CONTENT_LENGTH)));
+    assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n--" + boundary), body);
+    assertTrue(body.contains("Content-Range: bytes 5-6/10\r\n\r\n56\r\n--" + boundary + "--"),
+        body);
+    assertTrue(body.contains("Content-Type: " + CONTENT_TYPE), body);
+  }
+
+  @Test
+  void write_honorsIfRangeWithMatchingEtag() throws IOException {
+    MockHttpServletRequest request = request("bytes=2-5");
+    request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+    assertPartial(write(request), "bytes 2-5/10", "2345");
+  }
+
+  @Test
+  void write_sendsEntireContentForMismatchedEtag() throws IOException {
+    MockHttpServletRequest request = request("bytes=2-5");
+    request.addHeader(HttpHeaders.IF_RANGE, "\"ffffffff\"");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals(CONTENT, response.getContentAsString());
+  }
+
+  @Test
+  void write_sendsEntireContentForWeakEtag() throws IOException {
+    MockHttpServletRequest request = request("bytes=2-5");
+    request.addHeader(HttpHeaders.IF_RANGE, "W/" + ETAG);
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals(CONTENT, response.getContentAsString());
+  }
+
+  @Test
+  void write_honorsIfRangeWithMatchingDate() throws IOException {
+    MockHttpServletRequest request = request("bytes=2-5");
+    request.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED);
+    assertPartial(write(request), "bytes 2-5/10", "2345");
+  }
+
+  @Test
+  void write_sendsEntireContentForMismatchedDate() throws IOException {
+    MockHttpServletRequest request = request("bytes=2-5");
+    request.addHeader(HttpHeaders.IF_RANGE, "Thu, 22 Oct 2015 07:28:00 GMT");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals(CONTENT, response.getContentAsString());
+  }
+
+  @Test
+  void write_omitsBodyForHead() throws IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/");
+    request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+    MockHttpServletResponse response = write(request);
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    assertEquals("4", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void write_transfersRangeOfFile() throws IOException {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    writer.write(request("bytes=3-6"), response, file(), CONTENT_TYPE);
+    assertPartial(response, "bytes 3-6/10", "3456");
+  }
+
+  @Test
+  void write_delegatesFileRangeToSendfile() throws IOException {
+    MockHttpServletRequest request = request("bytes=3-6");
+    request.setAttribute(SENDFILE_SUPPORT_ATTRIBUTE, true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    Resource resource = file();
+    writer.write(request, response, resource, CONTENT_TYPE);
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    assertEquals(resource.getFile().getAbsolutePath(),
+        request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    assertEquals(3L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+    assertEquals(7L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void write_countsServedBytes() throws IOException {
+    write(request("bytes=2-5"));
+    write(request("bytes=0-1,5-6"));
+    MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/");
+    write(head);
+    assertEquals(8.0, meterRegistry.get("gallery.content.served").counter().count());
+  }
+
+  @Test
+  void write_timesTransfersButNotHeadRequests() throws IOException {
+    write(request(null));
+    write(request("bytes=0-1,5-6"));
+    write(new MockHttpServletRequest("HEAD", "/"));
+    write(request("bytes=20-"));
+    assertEquals(2, meterRegistry.get("gallery.content.transfer").timer().count());
+  }
+
+  private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    response.setHeader(HttpHeaders.ETAG, ETAG);
+    response.setHeader(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED);
+    writer.write(request, response,
+        new ByteArrayResource(CONTENT.getBytes(StandardCharsets.US_ASCII)), CONTENT_TYPE);
+    return response;
+  }
+
+  private Resource file() throws IOException {
+    Path file = directory.resolve("content.txt");
+    Files.write(file, CONTENT.getBytes(StandardCharsets.US_ASCII));
+    return new FileSystemResource(file);
+  }
+
+  private static MockHttpServletRequest request(String range) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    if (range != null) {
+      request.addHeader(HttpHeaders.RANGE, range);
+    }
+    return request;
+  }
+
+  private static void assertPartial(
+      MockHttpServletResponse response, String contentRange, String body) throws IOException {
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    assertEquals(contentRange, response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals(String.valueOf(body.length()), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    assertEquals(body, response.getContentAsString());
+  }
+
+}
@@ -0,0 +1,45 @@
+package edu.cnm.deepdive.gallery.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class KeysetCursorTest {
+
+  private static final UUID ID = UUID.fromString("017f22e2-79b0-7cc3-98c4-dc0c0c07398f");
+  private static final Date TIMESTAMP = new Date(1_600_000_000_123L);
+
+  @Test
+  void decode_returnsEncodedKey() {
+    KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(ID, TIMESTAMP));
+    assertEquals(TIMESTAMP, cursor.getTimestamp());
+    assertEquals(ID, cursor.getId());
+  }
+
+  @Test
+  void encode_isUrlSafe() {
+    UUID id = new UUID(-1L, -1L);
+    String cursor = KeysetCursor.encode(id, new Date(-1L));
+    assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    assertEquals(id, KeysetCursor.decode(cursor).getId());
+  }
+
+  @Test
+  void decode_rejectsMalformedValue() {
+    assertThrows(InvalidPageException.class, () -> KeysetCursor.decode("not a cursor!"));
+  }
+
+  @Test
+  void decode_rejectsValueOfWrongLength() {
+    String truncated = KeysetCursor.encode(ID, TIMESTAMP).substring(4);
+    assertThrows(InvalidPageException.class, () -> KeysetCursor.decode(truncated));
+    String empty = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[0]);
+    assertThrows(InvalidPageException.class, () -> KeysetCursor.decode(empty));
+  }
+
+}
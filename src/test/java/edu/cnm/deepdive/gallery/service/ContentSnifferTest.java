@@ -0,0 +1,78 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ContentSnifferTest {
+
+  private static final byte[] PNG =
+      {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+  private static final byte[] JPEG = {(byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0, 0, 16};
+
+  private final ContentSniffer sniffer = new ContentSniffer();
+
+  @Test
+  void detect_recognizesSupportedSignatures() {
+    assertEquals("image/png", detect(PNG));
+    assertEquals("image/jpeg", detect(JPEG));
+    assertEquals("image/gif", detect(ascii("GIF87a")));
+    assertEquals("image/gif", detect(ascii("GIF89a")));
+    assertEquals("image/tiff", detect(new byte[]{'I', 'I', 0x2a, 0x00, 8, 0, 0, 0}));
+    assertEquals("image/tiff", detect(new byte[]{'M', 'M', 0x00, 0x2a, 0, 0, 0, 8}));
+    assertEquals("image/bmp", detect(ascii("BM")));
+  }
+
+  @Test
+  void detect_rejectsUnknownContent() {
+    assertNull(detect(ascii("<svg xmlns=\"http://www.w3.org/2000/svg\"/>")));
+    assertNull(detect(ascii("GIF90a")));
+    assertNull(detect(new byte[0]));
+  }
+
+  @Test
+  void detect_ignoresBytesBeyondLength() {
+    assertNull(sniffer.detect(PNG, 7));
+    assertEquals("image/jpeg", sniffer.detect(JPEG, 3));
+    assertNull(sniffer.detect(JPEG, 2));
+  }
+
+  @Test
+  void detect_doesNotConsumeStream() throws IOException {
+    InputStream input = new BufferedInputStream(new ByteArrayInputStream(PNG));
+    assertEquals("image/png", sniffer.detect(input));
+    assertEquals(PNG.length, input.readAllBytes().length);
+  }
+
+  @Test
+  void isCompatible_acceptsEqualAliasedOrGenericDeclaredType() {
+    assertTrue(sniffer.isCompatible("image/png", "image/png"));
+    assertTrue(sniffer.isCompatible("image/pjpeg", "image/jpeg"));
+    assertTrue(sniffer.isCompatible("application/octet-stream", "image/gif"));
+    assertTrue(sniffer.isCompatible(null, "image/bmp"));
+  }
+
+  @Test
+  void isCompatible_rejectsMismatchedOrUndetectedType() {
+    assertFalse(sniffer.isCompatible("image/png", "image/jpeg"));
+    assertFalse(sniffer.isCompatible("image/png", null));
+    assertFalse(sniffer.isCompatible(null, null));
+  }
+
+  private String detect(byte[] header) {
+    return sniffer.detect(header, header.length);
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+}
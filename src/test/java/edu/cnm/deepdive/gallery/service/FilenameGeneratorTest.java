@@ -0,0 +1,126 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties;
+import edu.cnm.deepdive.gallery.configuration.UploadConfiguration.FilenameProperties.TimestampProperties;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FilenameGeneratorTest {
+
+  private static final String EXTENSION = "jpg";
+  private static final int THREADS = 4;
+  private static final int COUNT = 25_000;
+
+  private UploadConfiguration configuration;
+
+  @BeforeEach
+  void setUp() {
+    FilenameProperties filename = new FilenameProperties();
+    filename.setTimestamp(new TimestampProperties());
+    configuration = new UploadConfiguration();
+    configuration.setFilename(filename);
+  }
+
+  @Test
+  void generate_appliesDefaultFormat() {
+    String filename = new FilenameGenerator(configuration).generate(EXTENSION);
+    assertTrue(filename.matches("\\d{17}-\\d{1,6}\\.jpg"), filename);
+  }
+
+  @Test
+  void generate_fallsBackToFormatterForComplexFormat() {
+    configuration.getFilename().setFormat("%1$s_%2$06d.%3$s");
+    String filename = new FilenameGenerator(configuration).generate(EXTENSION);
+    assertTrue(filename.matches("\\d{17}_\\d{6}\\.jpg"), filename);
+  }
+
+  @Test
+  void generate_isUniqueAcrossThreads() throws Exception {
+    FilenameGenerator generator = new FilenameGenerator(configuration);
+    Set<String> filenames = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      Future<?>[] tasks = new Future<?>[THREADS];
+      for (int i = 0; i < THREADS; i++) {
+        tasks[i] = executor.submit(() -> {
+          for (int j = 0; j < COUNT; j++) {
+            filenames.add(generator.generate(EXTENSION));
+          }
+        });
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(THREADS * COUNT, filenames.size());
+  }
+
+  @Test
+  void generate_isUniqueWhenRandomizerLimitIsExhausted() {
+    configuration.getFilename().setRandomizerLimit(10);
+    FilenameGenerator generator = new FilenameGenerator(configuration);
+    Set<String> filenames = new HashSet<>();
+    for (int i = 0; i < 200; i++) {
+      filenames.add(generator.generate(EXTENSION));
+    }
+    assertEquals(200, filenames.size());
+  }
+
+  @Test
+  void generate_advancesLogicallyWhenRandomizerLimitIsExhausted() {
+    configuration.getFilename().setRandomizerLimit(1);
+    FilenameGenerator generator = new FilenameGenerator(configuration);
+    DateTimeFormatter formatter =
+        DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC);
+    long previous = Long.MIN_VALUE;
+    for (int i = 0; i < 5_000; i++) {
+      String filename = generator.generate(EXTENSION);
+      long millis = Instant.from(formatter.parse(filename.substring(0, 17))).toEpochMilli();
+      assertTrue(millis > previous, filename);
+      previous = millis;
+    }
+    // One name per millisecond, so the last timestamp is (well) ahead of the clock if no thread
+    // waited for the clock to catch up.
+    assertTrue(previous > System.currentTimeMillis());
+  }
+
+  @Test
+  void getSubdirectory_slicesFixedWidthGroups() {
+    FilenameGenerator generator = new FilenameGenerator(configuration);
+    assertEquals("2020/12/31", generator.getSubdirectory("20201231235959999-42.jpg"));
+    assertEquals("", generator.getSubdirectory("2020123"));
+  }
+
+  @Test
+  void getSubdirectory_matchesOtherPatterns() {
+    configuration.setSubdirectoryPattern(Pattern.compile("^(\\d{4})(\\d{2}).*$"));
+    FilenameGenerator generator = new FilenameGenerator(configuration);
+    assertEquals("2020/12", generator.getSubdirectory("20201231235959999-42.jpg"));
+    assertEquals("", generator.getSubdirectory("untitled.jpg"));
+  }
+
+  @Test
+  void getExtension_returnsTextAfterLastPeriod() {
+    FilenameGenerator generator = new FilenameGenerator(configuration);
+    assertEquals("jpeg", generator.getExtension("photo.final.jpeg"));
+    assertEquals("", generator.getExtension("README"));
+    assertEquals("", generator.getExtension("trailing."));
+  }
+
+}
@@ -0,0 +1,203 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.cnm.deepdive.gallery.model.entity.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+class ImageMetadataReaderTest {
+
+  private static final String JPEG = "image/jpeg";
+  private static final int WIDTH = 40;
+  private static final int HEIGHT = 30;
+  private static final short TYPE_ASCII = 2;
+  private static final short TYPE_SHORT = 3;
+  private static final short TYPE_LONG = 4;
+  private static final int IFD0_OFFSET = 8;
+  private static final int EXIF_IFD_OFFSET = 38;
+  private static final int DATE_TIME_ENTRY = EXIF_IFD_OFFSET + 2;
+  private static final int DATA_OFFSET = 68;
+  private static final String DATE_TIME = "2019:07:04 18:30:15";
+
+  private static byte[] plainJpeg;
+
+  private final ImageMetadataReader reader = new ImageMetadataReader();
+
+  @BeforeAll
+  static void encodeJpeg() throws IOException {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpeg", output);
+    plainJpeg = output.toByteArray();
+  }
+
+  @Test
+  void read_setsDimensionsAndLengthWithoutExif() throws IOException {
+    Image image = read(plainJpeg);
+    assertEquals(WIDTH, image.getWidth());
+    assertEquals(HEIGHT, image.getHeight());
+    assertEquals(plainJpeg.length, image.getContentLength());
+    assertNull(image.getOrientation());
+    assertNull(image.getCaptured());
+  }
+
+  @Test
+  void read_setsOrientationAndCapturedInRecordedOffset() throws IOException {
+    Image image = read(jpegWithExif(tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, "-06:00")));
+    assertEquals(WIDTH, image.getWidth());
+    assertEquals(6, image.getOrientation());
+    assertEquals(Date.from(Instant.parse("2019-07-05T00:30:15Z")), image.getCaptured());
+  }
+
+  @Test
+  void read_readsLittleEndianExif() throws IOException {
+    Image image = read(jpegWithExif(tiff(ByteOrder.LITTLE_ENDIAN, 3, DATE_TIME, null)));
+    assertEquals(3, image.getOrientation());
+    assertEquals(Date.from(Instant.parse("2019-07-04T18:30:15Z")), image.getCaptured());
+  }
+
+  @Test
+  void read_assumesUtcForInvalidOffset() throws IOException {
+    Image image = read(jpegWithExif(tiff(ByteOrder.BIG_ENDIAN, 1, DATE_TIME, "+99:99")));
+    assertEquals(Date.from(Instant.parse("2019-07-04T18:30:15Z")), image.getCaptured());
+  }
+
+  @Test
+  void read_ignoresUnknownDateTimeAndInvalidOrientation() throws IOException {
+    Image image =
+        read(jpegWithExif(tiff(ByteOrder.BIG_ENDIAN, 9, "0000:00:00 00:00:00", null)));
+    assertNull(image.getOrientation());
+    assertNull(image.getCaptured());
+  }
+
+  @Test
+  void read_ignoresTruncatedExif() throws IOException {
+    ByteBuffer tiff = tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, null);
+    byte[] truncated = Arrays.copyOf(tiff.array(), EXIF_IFD_OFFSET + 8);
+    Image image = read(jpegWithExif(ByteBuffer.wrap(truncated)));
+    assertEquals(6, image.getOrientation());
+    assertNull(image.getCaptured());
+  }
+
+  @Test
+  void read_ignoresExifWithEntryCountBeyondSegment() throws IOException {
+    ByteBuffer tiff = tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, null);
+    tiff.putShort(EXIF_IFD_OFFSET, (short) 0xffff);
+    Image image = read(jpegWithExif(tiff));
+    assertEquals(6, image.getOrientation());
+    assertNull(image.getCaptured());
+  }
+
+  @Test
+  void read_ignoresAsciiValueWithExcessiveCount() throws IOException {
+    ByteBuffer tiff = tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, null);
+    tiff.putInt(DATE_TIME_ENTRY + 4, Integer.MAX_VALUE);
+    Image image = read(jpegWithExif(tiff));
+    assertEquals(6, image.getOrientation());
+    assertNull(image.getCaptured());
+  }
+
+  @Test
+  void read_ignoresAsciiValueWithOffsetOutsideExif() throws IOException {
+    ByteBuffer tiff = tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, null);
+    tiff.putInt(DATE_TIME_ENTRY + 8, -DATA_OFFSET);
+    assertNull(read(jpegWithExif(tiff)).getCaptured());
+    tiff.putInt(DATE_TIME_ENTRY + 8, tiff.capacity() - 4);
+    assertNull(read(jpegWithExif(tiff)).getCaptured());
+  }
+
+  @Test
+  void read_ignoresIfdOffsetOutsideExif() throws IOException {
+    ByteBuffer tiff = tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, null);
+    tiff.putInt(4, Integer.MIN_VALUE);
+    Image image = read(jpegWithExif(tiff));
+    assertEquals(WIDTH, image.getWidth());
+    assertNull(image.getOrientation());
+  }
+
+  @Test
+  void read_ignoresTruncatedJpeg() throws IOException {
+    byte[] jpeg = jpegWithExif(tiff(ByteOrder.BIG_ENDIAN, 6, DATE_TIME, null));
+    Image image = read(Arrays.copyOf(jpeg, 30));
+    assertNull(image.getWidth());
+    assertNull(image.getOrientation());
+  }
+
+  @Test
+  void read_ignoresContentThatIsNotAnImage() throws IOException {
+    Image image = read("not an image".getBytes(StandardCharsets.US_ASCII));
+    assertNull(image.getWidth());
+    assertNull(image.getOrientation());
+  }
+
+  private Image read(byte[] content) throws IOException {
+    Image image = new Image();
+    reader.read(new ByteArrayResource(content), JPEG, image);
+    return image;
+  }
+
+  /**
+   * Returns a TIFF structure containing IFD0 (with orientation and Exif IFD pointer entries),
+   * followed by the Exif IFD (with the original datetime, and optionally the original offset), and
+   * then the ASCII values.
+   */
+  private static ByteBuffer tiff(
+      ByteOrder order, int orientation, String dateTime, String offsetTime) {
+    byte[] dateTimeValue = (dateTime + '\0').getBytes(StandardCharsets.US_ASCII);
+    byte[] offsetTimeValue = (offsetTime != null)
+        ? (offsetTime + '\0').getBytes(StandardCharsets.US_ASCII)
+        : new byte[0];
+    ByteBuffer tiff = ByteBuffer
+        .allocate(DATA_OFFSET + dateTimeValue.length + offsetTimeValue.length)
+        .order(order);
+    tiff.putShort((short) ((order == ByteOrder.BIG_ENDIAN) ? 0x4d4d : 0x4949));
+    tiff.putShort((short) 42);
+    tiff.putInt(IFD0_OFFSET);
+    tiff.putShort((short) 2);
+    tiff.putShort((short) 0x0112).putShort(TYPE_SHORT).putInt(1)
+        .putShort((short) orientation).putShort((short) 0);
+    tiff.putShort((short) 0x8769).putShort(TYPE_LONG).putInt(1).putInt(EXIF_IFD_OFFSET);
+    tiff.putInt(0);
+    tiff.putShort((short) ((offsetTime != null) ? 2 : 1));
+    tiff.putShort((short) 0x9003).putShort(TYPE_ASCII).putInt(dateTimeValue.length)
+        .putInt(DATA_OFFSET);
+    if (offsetTime != null) {
+      tiff.putShort((short) 0x9011).putShort(TYPE_ASCII).putInt(offsetTimeValue.length)
+          .putInt(DATA_OFFSET + dateTimeValue.length);
+    } else {
+      tiff.put(new byte[12]);
+    }
+    tiff.putInt(0);
+    tiff.put(dateTimeValue).put(offsetTimeValue);
+    return tiff;
+  }
+
+  /**
+   * Returns {@link #plainJpeg}, with an {@code APP1} segment containing {@code tiff} inserted
+   * immediately after the start-of-image marker.
+   */
+  private static byte[] jpegWithExif(ByteBuffer tiff) {
+    byte[] exif = tiff.array();
+    byte[] identifier = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer jpeg = ByteBuffer.allocate(plainJpeg.length + 4 + identifier.length + exif.length);
+    jpeg.put(plainJpeg, 0, 2);
+    jpeg.putShort((short) 0xffe1).putShort((short) (2 + identifier.length + exif.length));
+    jpeg.put(identifier).put(exif);
+    jpeg.put(plainJpeg, 2, plainJpeg.length - 2);
+    return jpeg.array();
+  }
+
+}
@@ -0,0 +1,63 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class ImageScalerTest {
+
+  private static final int WIDTH = 3;
+  private static final int HEIGHT = 2;
+
+  private final ImageScaler scaler = new ImageScaler();
+
+  @Test
+  void orient_returnsSourceForDefaultOrMissingOrientation() {
+    BufferedImage source = numbered();
+    assertSame(source, scaler.orient(source, null));
+    assertSame(source, scaler.orient(source, 1));
+    assertSame(source, scaler.orient(source, 9));
+  }
+
+  @Test
+  void orient_mirrorsAndRotatesWithoutTransposing() {
+    assertPixels(new int[][]{{2, 1, 0}, {5, 4, 3}}, scaler.orient(numbered(), 2));
+    assertPixels(new int[][]{{5, 4, 3}, {2, 1, 0}}, scaler.orient(numbered(), 3));
+    assertPixels(new int[][]{{3, 4, 5}, {0, 1, 2}}, scaler.orient(numbered(), 4));
+  }
+
+  @Test
+  void orient_transposesDimensions() {
+    assertPixels(new int[][]{{0, 3}, {1, 4}, {2, 5}}, scaler.orient(numbered(), 5));
+    assertPixels(new int[][]{{3, 0}, {4, 1}, {5, 2}}, scaler.orient(numbered(), 6));
+    assertPixels(new int[][]{{5, 2}, {4, 1}, {3, 0}}, scaler.orient(numbered(), 7));
+    assertPixels(new int[][]{{2, 5}, {1, 4}, {0, 3}}, scaler.orient(numbered(), 8));
+  }
+
+  /**
+   * Returns a {@value WIDTH}&times;{@value HEIGHT} image, in which each pixel value is its index
+   * in row-major order.
+   */
+  private static BufferedImage numbered() {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        image.setRGB(x, y, y * WIDTH + x);
+      }
+    }
+    return image;
+  }
+
+  private static void assertPixels(int[][] expected, BufferedImage actual) {
+    assertEquals(expected.length, actual.getHeight());
+    assertEquals(expected[0].length, actual.getWidth());
+    for (int y = 0; y < expected.length; y++) {
+      for (int x = 0; x < expected[y].length; x++) {
+        assertEquals(expected[y][x], actual.getRGB(x, y) & 0xffffff);
+      }
+    }
+  }
+
+}
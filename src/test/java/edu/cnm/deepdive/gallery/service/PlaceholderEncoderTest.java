@@ -0,0 +1,69 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class PlaceholderEncoderTest {
+
+  /** Reference BlurHash of a black image, encoded with 4&times;3 components. */
+  private static final String BLACK_LANDSCAPE = "L00000fQfQfQfQfQfQfQfQfQfQfQ";
+  /** Base-83 encoding of the sRGB value {@code 0xffffff}, as the 4-digit DC component. */
+  private static final String WHITE_DC = "TSUA";
+
+  private final PlaceholderEncoder encoder = new PlaceholderEncoder(new ImageScaler());
+
+  @Test
+  void encode_matchesReferenceForBlackImage() {
+    assertEquals(BLACK_LANDSCAPE, encoder.encode(filled(64, 48, Color.BLACK)));
+  }
+
+  @Test
+  void encode_encodesAverageColorInDcComponent() {
+    assertEquals(WHITE_DC, encoder.encode(filled(48, 64, Color.WHITE)).substring(2, 6));
+  }
+
+  @Test
+  void encode_usesComponentCountsForOrientation() {
+    assertEquals('L', encoder.encode(gradient(300, 200)).charAt(0));
+    assertEquals('T', encoder.encode(gradient(200, 300)).charAt(0));
+  }
+
+  @Test
+  void encode_encodesVariationInAcComponents() {
+    String hash = encoder.encode(gradient(300, 200));
+    assertEquals(BLACK_LANDSCAPE.length(), hash.length());
+    assertTrue(hash.charAt(1) != '0'); // Nonzero maximum AC value.
+    assertNotEquals(BLACK_LANDSCAPE.substring(6), hash.substring(6));
+  }
+
+  private static BufferedImage filled(int width, int height, Color color) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(color);
+      graphics.fillRect(0, 0, width, height);
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  private static BufferedImage gradient(int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int red = 255 * x / width;
+        int blue = 255 * y / height;
+        image.setRGB(x, y, (red << 16) | blue);
+      }
+    }
+    return image;
+  }
+
+}
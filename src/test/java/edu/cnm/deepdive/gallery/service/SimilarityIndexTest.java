@@ -0,0 +1,117 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimilarityIndexTest {
+
+  private static final long HASH = 0x0123_4567_89ab_cdefL;
+  private static final UUID EXACT = UUID.randomUUID();
+  private static final UUID ONE_BIT = UUID.randomUUID();
+  private static final UUID THREE_BITS = UUID.randomUUID();
+  private static final UUID DISTANT = UUID.randomUUID();
+
+  private SimilarityIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new SimilarityIndex();
+    index.put(DISTANT, ~HASH);
+    index.put(THREE_BITS, HASH ^ 0b1011);
+    index.put(ONE_BIT, HASH ^ (1L << 63));
+    index.put(EXACT, HASH);
+  }
+
+  @Test
+  void search_returnsMatchesWithinDistanceInOrder() {
+    assertEquals(List.of(EXACT, ONE_BIT, THREE_BITS), index.search(HASH, 3));
+    assertEquals(List.of(EXACT, ONE_BIT), index.search(HASH, 2));
+    assertEquals(List.of(EXACT), index.search(HASH, 0));
+    assertEquals(List.of(DISTANT), index.search(~HASH, 0));
+  }
+
+  @Test
+  void search_returnsAllImagesWithIdenticalHash() {
+    UUID copy = UUID.randomUUID();
+    index.put(copy, HASH);
+    assertEquals(List.of(EXACT, copy), index.search(HASH, 0));
+  }
+
+  @Test
+  void remove_excludesImageFromSearch() {
+    index.remove(ONE_BIT);
+    assertEquals(List.of(EXACT, THREE_BITS), index.search(HASH, 3));
+    assertNull(index.get(ONE_BIT));
+  }
+
+  @Test
+  void remove_retainsDescendantsOfRemovedNode() {
+    index.remove(DISTANT); // First node added, i.e. the root of the tree.
+    index.remove(EXACT);
+    assertEquals(List.of(ONE_BIT, THREE_BITS), index.search(HASH, 3));
+  }
+
+  @Test
+  void put_replacesPreviousHash() {
+    index.put(EXACT, ~HASH);
+    assertEquals(List.of(ONE_BIT, THREE_BITS), index.search(HASH, 3));
+    assertEquals(Long.valueOf(~HASH), index.get(EXACT));
+  }
+
+  @Test
+  void search_agreesWithExhaustiveScan() {
+    Random rng = new Random(42);
+    Map<UUID, Long> hashes = new HashMap<>();
+    for (int i = 0; i < 2_000; i++) {
+      long hash = rng.nextLong() & rng.nextLong() & rng.nextLong(); // Biased, to cluster hashes.
+      UUID id = UUID.randomUUID();
+      hashes.put(id, hash);
+      index.put(id, hash);
+    }
+    for (int i = 0; i < 20; i++) {
+      long query = rng.nextLong() & rng.nextLong() & rng.nextLong();
+      int maxDistance = 12;
+      List<UUID> expected = hashes.entrySet().stream()
+          .filter((entry) -> PerceptualHasher.distance(entry.getValue(), query) <= maxDistance)
+          .map(Map.Entry::getKey)
+          .sorted()
+          .collect(Collectors.toList());
+      List<UUID> actual = index.search(query, maxDistance).stream()
+          .sorted()
+          .collect(Collectors.toList());
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  void rebuild_replacesContents() {
+    UUID other = UUID.randomUUID();
+    Map<UUID, Long> source = new HashMap<>();
+    source.put(EXACT, HASH);
+    source.put(other, HASH ^ 1);
+    for (int i = 0; i < 100; i++) {
+      source.put(UUID.randomUUID(), ~HASH ^ i);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      index.rebuild(source, executor, 4);
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(List.of(EXACT, other), index.search(HASH, 3));
+    assertNull(index.get(ONE_BIT));
+    assertEquals(100, index.search(~HASH, 7).size());
+  }
+
+}
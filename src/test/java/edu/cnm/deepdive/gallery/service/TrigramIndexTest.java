@@ -0,0 +1,86 @@
+package edu.cnm.deepdive.gallery.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+  private static final UUID SUNSET = UUID.randomUUID();
+  private static final UUID CAFE = UUID.randomUUID();
+  private static final UUID PLATYPUS = UUID.randomUUID();
+
+  private TrigramIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new TrigramIndex();
+    index.put(SUNSET, "Sunset over the Sandia Mountains", "Taken from the west mesa");
+    index.put(CAFE, "Caf\u00e9 de Flore", null);
+    index.put(PLATYPUS, "Platypus", "Seen at dusk, near the river");
+  }
+
+  @Test
+  void search_matchesSubstringOfAnyField() {
+    assertEquals(Set.of(SUNSET), index.search("mesa"));
+    assertEquals(Set.of(SUNSET, PLATYPUS), index.search("the"));
+  }
+
+  @Test
+  void search_ignoresCase() {
+    assertEquals(Set.of(SUNSET), index.search("SANDIA"));
+    assertEquals(Set.of(PLATYPUS), index.search("pLaTyPuS"));
+  }
+
+  @Test
+  void search_ignoresAccents() {
+    assertEquals(Set.of(CAFE), index.search("cafe"));
+    assertEquals(Set.of(CAFE), index.search("CAF\u00c9"));
+    assertEquals(Set.of(SUNSET), index.search("S\u00e0nd\u00eea"));
+  }
+
+  @Test
+  void search_excludesDocumentsContainingOnlyTheTrigrams() {
+    index.put(UUID.randomUUID(), "Sun, unsure onsets");
+    assertEquals(Set.of(SUNSET), index.search("sunset"));
+  }
+
+  @Test
+  void search_returnsEmptySetForUnknownTrigram() {
+    assertTrue(index.search("xyz").isEmpty());
+  }
+
+  @Test
+  void put_replacesPreviousFields() {
+    index.put(PLATYPUS, "Echidna", null);
+    assertTrue(index.search("platypus").isEmpty());
+    assertTrue(index.search("river").isEmpty());
+    assertEquals(Set.of(PLATYPUS), index.search("echidna"));
+  }
+
+  @Test
+  void remove_excludesDocumentFromSearch() {
+    index.remove(SUNSET);
+    assertTrue(index.search("sunset").isEmpty());
+    assertEquals(Set.of(PLATYPUS), index.search("the"));
+  }
+
+  @Test
+  void clear_removesAllDocuments() {
+    index.clear();
+    assertTrue(index.search("the").isEmpty());
+  }
+
+  @Test
+  void isSearchable_requiresOneTrigramAfterNormalization() {
+    assertTrue(index.isSearchable("abc"));
+    assertFalse(index.isSearchable("ab"));
+    assertFalse(index.isSearchable("e\u0301e\u0301"));
+  }
+
+}